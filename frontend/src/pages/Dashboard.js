@@ -1,6 +1,6 @@
 import React, { useState, useEffect } from 'react';
 import { Container, Typography, Grid, Card, CardContent, CircularProgress } from '@mui/material';
-import { getPortfolios } from '../services/api';
+import { getPortfolios, portfoliosStreamUrl } from '../services/api';
 
 const Dashboard = () => {
     const [portfolios, setPortfolios] = useState([]);
@@ -11,6 +11,30 @@ const Dashboard = () => {
         fetchPortfolios();
     }, []);
 
+    // Subscribe to live valuation updates instead of re-polling (one stream for all portfolios)
+    const portfolioIds = portfolios.map((portfolio) => portfolio.portfolioID).join(',');
+    useEffect(() => {
+        if (!portfolioIds) {
+            return undefined;
+        }
+        const source = new EventSource(portfoliosStreamUrl(portfolioIds.split(',')));
+        source.addEventListener('valuation', (event) => {
+            const update = JSON.parse(event.data);
+            setPortfolios((current) => current.map((portfolio) =>
+                portfolio.portfolioID === update.portfolioId
+                    ? {
+                        ...portfolio,
+                        totalValue: update.totalValue,
+                        totalCost: update.totalCost,
+                        gainLoss: update.gainLoss,
+                        gainLossPercentage: update.gainLossPercentage,
+                    }
+                    : portfolio
+            ));
+        });
+        return () => source.close();
+    }, [portfolioIds]);
+
     const fetchPortfolios = async () => {
         try {
             const response = await getPortfolios();
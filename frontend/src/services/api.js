@@ -8,6 +8,8 @@ const api = axios.create({
 
 // Portfolio functions - Use /api/portfolios (from PortfolioController)
 export const getPortfolios = () => api.get('/api/portfolios');
+export const portfolioStreamUrl = (portfolioId) => `${api.defaults.baseURL}/api/portfolios/${portfolioId}/stream`;
+export const portfoliosStreamUrl = (portfolioIds) => `${api.defaults.baseURL}/api/portfolios/stream?ids=${portfolioIds.join(',')}`;
 
 // Transaction functions - Use /api/transactions (from TransactionController)
 export const getTransactions = () => api.get('/test/transactions');
@@ -0,0 +1,10 @@
+package com.InvestaTrack.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Enables @Scheduled background jobs (bar flushing, write-behind flushes, etc.)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,25 @@
+package com.InvestaTrack.config;
+
+import com.InvestaTrack.controllers.PriceTickerHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final PriceTickerHandler priceTickerHandler;
+
+    public WebSocketConfig(PriceTickerHandler priceTickerHandler) {
+        this.priceTickerHandler = priceTickerHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // Same origins the REST API allows (React dev server)
+        registry.addHandler(priceTickerHandler, "/ws/prices")
+                .setAllowedOriginPatterns("http://localhost:*", "http://127.0.0.1:*");
+    }
+}
@@ -0,0 +1,88 @@
+package com.InvestaTrack.controllers;
+
+import com.InvestaTrack.services.MarketFeedSimulator;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/market-feed")
+@Tag(name = "Market Feed Simulator", description = "Synthetic price feed for load testing revaluation")
+public class MarketFeedController {
+
+    private final MarketFeedSimulator marketFeedSimulator;
+
+    public MarketFeedController(MarketFeedSimulator marketFeedSimulator) {
+        this.marketFeedSimulator = marketFeedSimulator;
+    }
+
+    @Operation(
+            summary = "Start the simulated feed",
+            description = "Start emitting geometric Brownian motion prices for stocks that have a price. " +
+                    "Omitted parameters use the investatrack.feed.* defaults. Mode 'batch' uses the bulk price path, " +
+                    "'single' updates one symbol per call."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Feed started",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"running\": true, \"mode\": \"batch\", \"symbols\": 3, \"targetTicksPerSecond\": 500, \"ticksSent\": 0}")
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Feed already running, invalid parameters or no priced stocks",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"error\": \"Market feed is already running\"}")
+                    )
+            )
+    })
+    @PostMapping("/start")
+    public ResponseEntity<?> start(
+            @Parameter(description = "Target ticks per second across all symbols", example = "500")
+            @RequestParam(required = false) Integer ticksPerSecond,
+            @Parameter(description = "Number of symbols to simulate (0 for all)", example = "100")
+            @RequestParam(required = false) Integer symbols,
+            @Parameter(description = "batch or single", example = "batch")
+            @RequestParam(required = false) String mode
+    ) {
+        try {
+            return ResponseEntity.ok(marketFeedSimulator.start(ticksPerSecond, symbols, mode));
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    @Operation(
+            summary = "Stop the simulated feed",
+            description = "Stop emitting prices and return the final statistics for the run."
+    )
+    @PostMapping("/stop")
+    public ResponseEntity<Map<String, Object>> stop() {
+        return ResponseEntity.ok(marketFeedSimulator.stop());
+    }
+
+    @Operation(
+            summary = "Get feed status",
+            description = "Ticks sent, achieved ticks per second and price update call latency (average, p50, p99, max) " +
+                    "for the current or most recent run."
+    )
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> status() {
+        return ResponseEntity.ok(marketFeedSimulator.status());
+    }
+}
@@ -1,8 +1,11 @@
 package com.InvestaTrack.controllers;
 
 import com.InvestaTrack.models.Portfolio;
+import com.InvestaTrack.models.TaxLot;
 import com.InvestaTrack.dto.PortfolioDTO;
 import com.InvestaTrack.services.PortfolioService;
+import com.InvestaTrack.services.PortfolioStreamService;
+import com.InvestaTrack.services.TaxLotService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.Hidden;
@@ -14,8 +17,10 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
@@ -28,9 +33,15 @@ import java.util.stream.Collectors;
 public class PortfolioController {
 
     private final PortfolioService portfolioService;
+    private final PortfolioStreamService portfolioStreamService;
+    private final TaxLotService taxLotService;
 
-    public PortfolioController(PortfolioService portfolioService) {
+    public PortfolioController(PortfolioService portfolioService,
+                               PortfolioStreamService portfolioStreamService,
+                               TaxLotService taxLotService) {
         this.portfolioService = portfolioService;
+        this.portfolioStreamService = portfolioStreamService;
+        this.taxLotService = taxLotService;
     }
 
     @Operation(
@@ -131,6 +142,139 @@ public class PortfolioController {
         }
     }
 
+    @Operation(
+            summary = "Reconcile all portfolio totals",
+            description = "Trades adjust portfolio totals by each position's change. This recomputes every portfolio's " +
+                    "total value and cost from its active positions, one portfolio at a time, and corrects any drift."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Reconcile finished",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"corrected\": 0}")
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "Internal server error"
+            )
+    })
+    @PostMapping("/reconcile")
+    public ResponseEntity<?> reconcileAllPortfolios() {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("corrected", portfolioService.reconcileAllPortfolios());
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
+    @Operation(
+            summary = "Get open tax lots",
+            description = "Open lots of a portfolio, oldest first, optionally for one stock. Each buy opens a lot; sells " +
+                    "consume lots FIFO, LIFO or by lot ID and store their realized gain. The portfolio's running " +
+                    "realized gain is part of the transaction summary."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Open lots retrieved successfully",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "[{\"lotId\": 1, \"portfolioId\": 1, \"stockId\": 1, \"buyTransactionId\": 1, \"acquiredDate\": \"2025-01-15T09:30:00\", \"originalQuantity\": 10, \"remainingQuantity\": 4, \"originalCost\": 1907.25, \"remainingCost\": 762.90, \"open\": true}]")
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Portfolio not found"
+            )
+    })
+    @GetMapping("/{id}/lots")
+    public ResponseEntity<List<TaxLot>> getOpenLots(
+            @Parameter(description = "Portfolio ID to list lots for", example = "1", required = true)
+            @PathVariable Long id,
+            @Parameter(description = "Only lots of this stock", example = "1")
+            @RequestParam(required = false) Long stockId
+    ) {
+        try {
+            portfolioService.getPortfolioById(id);
+            return ResponseEntity.ok(taxLotService.getOpenLots(id, stockId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @Operation(
+            summary = "Stream live portfolio valuation",
+            description = "Server-Sent Events stream for one portfolio. Sends the current valuation on connect, then a " +
+                    "'valuation' event whenever a price change or trade moves the portfolio's value or cost. " +
+                    "Bursts of changes are conflated; valueChange is the total change since the previous event."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Event stream opened",
+                    content = @Content(
+                            mediaType = "text/event-stream",
+                            examples = @ExampleObject(value = "event:valuation\ndata:{\"portfolioId\": 1, \"totalValue\": 15750.50, \"totalCost\": 13250.25, \"valueChange\": 12.40, \"gainLoss\": 2500.25, \"gainLossPercentage\": 18.8700, \"timestamp\": \"2025-01-15T09:30:00\"}")
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Portfolio not found"
+            )
+    })
+    @GetMapping(value = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamPortfolioValuation(
+            @Parameter(description = "Portfolio ID to stream", example = "1", required = true)
+            @PathVariable Long id
+    ) {
+        try {
+            Portfolio portfolio = portfolioService.getPortfolioById(id);
+            return ResponseEntity.ok(portfolioStreamService.subscribe(portfolio));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @Operation(
+            summary = "Stream live valuation of several portfolios",
+            description = "One Server-Sent Events stream for a list of portfolios. Sends each portfolio's current " +
+                    "valuation on connect, then the same 'valuation' events as the single-portfolio stream; " +
+                    "portfolioId tells them apart."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Event stream opened",
+                    content = @Content(mediaType = "text/event-stream")
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "A portfolio was not found"
+            )
+    })
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamPortfolioValuations(
+            @Parameter(description = "Portfolio IDs to stream", example = "1,2", required = true)
+            @RequestParam List<Long> ids
+    ) {
+        try {
+            List<Portfolio> portfolios = ids.stream()
+                    .distinct()
+                    .map(portfolioService::getPortfolioById)
+                    .collect(Collectors.toList());
+            return ResponseEntity.ok(portfolioStreamService.subscribe(portfolios));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     // === HIDDEN ENDPOINTS - Full entity endpoints that expose user data ===
 
     @Hidden
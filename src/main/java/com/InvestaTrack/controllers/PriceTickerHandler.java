@@ -0,0 +1,61 @@
+package com.InvestaTrack.controllers;
+
+import com.InvestaTrack.dto.TickerCommandDTO;
+import com.InvestaTrack.services.PriceTickerService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.util.List;
+import java.util.Map;
+
+// WebSocket endpoint for the live price ticker (/ws/prices).
+// Clients send {"action": "subscribe" | "unsubscribe", "symbols": [...]} and receive
+// {"type": "prices", "ticks": [{"symbol", "price", "timestamp"}, ...]} frames.
+@Component
+public class PriceTickerHandler extends TextWebSocketHandler {
+
+    private final PriceTickerService priceTickerService;
+    private final ObjectMapper objectMapper;
+
+    public PriceTickerHandler(PriceTickerService priceTickerService, ObjectMapper objectMapper) {
+        this.priceTickerService = priceTickerService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        priceTickerService.register(session);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        TickerCommandDTO command;
+        try {
+            command = objectMapper.readValue(message.getPayload(), TickerCommandDTO.class);
+        } catch (JsonProcessingException e) {
+            priceTickerService.sendFrame(session, priceTickerService.errorFrame("Invalid message: expected JSON command"));
+            return;
+        }
+
+        String action = command.getAction() != null ? command.getAction().toLowerCase() : "";
+        List<String> symbols = command.getSymbols() != null ? command.getSymbols() : List.of();
+        Map<String, Object> reply;
+        switch (action) {
+            case "subscribe" -> reply = priceTickerService.subscribe(session, symbols);
+            case "unsubscribe" -> reply = priceTickerService.unsubscribe(session, symbols);
+            default -> reply = priceTickerService.errorFrame("Unknown action: " + command.getAction());
+        }
+        priceTickerService.sendFrame(session, reply);
+        priceTickerService.sendPending(session);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        priceTickerService.unregister(session);
+    }
+}
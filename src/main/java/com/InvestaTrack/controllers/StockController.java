@@ -1,7 +1,15 @@
 package com.InvestaTrack.controllers;
 
+import com.InvestaTrack.dto.PriceUpdateDTO;
+import com.InvestaTrack.dto.PriceUpdateResultDTO;
+import com.InvestaTrack.dto.StockSuggestionDTO;
+import com.InvestaTrack.models.PriceBar;
 import com.InvestaTrack.models.Stock;
+import com.InvestaTrack.services.BarAggregator;
+import com.InvestaTrack.services.PriceHistoryStore;
 import com.InvestaTrack.services.StockService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -11,11 +19,15 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
@@ -26,9 +38,18 @@ import java.util.HashMap;
 public class StockController {
 
     private final StockService stockService;
+    private final PriceHistoryStore priceHistoryStore;
+    private final BarAggregator barAggregator;
+    private final ObjectMapper objectMapper;
 
-    public StockController(StockService stockService) {
+    public StockController(StockService stockService,
+                           PriceHistoryStore priceHistoryStore,
+                           BarAggregator barAggregator,
+                           ObjectMapper objectMapper) {
         this.stockService = stockService;
+        this.priceHistoryStore = priceHistoryStore;
+        this.barAggregator = barAggregator;
+        this.objectMapper = objectMapper;
     }
 
     @Operation(
@@ -124,7 +145,8 @@ public class StockController {
 
     @Operation(
             summary = "Search stocks",
-            description = "Search for stocks by symbol or company name. Leave query empty to return all stocks."
+            description = "Search for stocks by symbol or company name. Results are ranked with an exact symbol match first, " +
+                    "then symbol or name prefix matches, then substring matches. Leave query empty to return all stocks."
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -153,6 +175,131 @@ public class StockController {
         }
     }
 
+    @Operation(
+            summary = "Autocomplete stocks",
+            description = "Typeahead suggestions for a symbol or company-name prefix, served from memory. " +
+                    "An exact symbol match ranks first, then symbol prefixes, then company-name word prefixes; " +
+                    "larger market caps rank higher within each group."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Suggestions returned successfully",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "[{\"stockId\": 1, \"symbol\": \"AAPL\", \"companyName\": \"Apple Inc.\", \"currentPrice\": 190.23, \"marketCap\": 2950000000000}]")
+                    )
+            )
+    })
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<StockSuggestionDTO>> autocomplete(
+            @Parameter(description = "Prefix typed so far", example = "ap")
+            @RequestParam(required = false) String q,
+            @Parameter(description = "Maximum number of suggestions (1-50)", example = "10")
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(stockService.autocomplete(q, limit));
+    }
+
+    @Operation(
+            summary = "Get price history",
+            description = "Stream the recorded price history for a symbol, oldest first. " +
+                    "Both bounds are optional ISO date-times; omit them to stream the full history."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Price history streamed successfully",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "[{\"timestamp\": \"2025-01-15T09:30:00\", \"price\": 190.23}, {\"timestamp\": \"2025-01-15T09:30:01\", \"price\": 190.31}]")
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "No price history recorded for the symbol"
+            )
+    })
+    @GetMapping("/{symbol}/history")
+    public ResponseEntity<StreamingResponseBody> getPriceHistory(
+            @Parameter(description = "Stock ticker symbol", example = "AAPL", required = true)
+            @PathVariable String symbol,
+            @Parameter(description = "Start of the range (inclusive)", example = "2025-01-15T09:30:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End of the range (inclusive)", example = "2025-01-15T16:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        if (!priceHistoryStore.hasHistory(symbol)) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "No price history for symbol: " + symbol.toUpperCase());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(outputStream -> objectMapper.writeValue(outputStream, error));
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                priceHistoryStore.forEachInRange(symbol, from, to, (epochMillis, price) -> {
+                    generator.writeStartObject();
+                    generator.writeStringField("timestamp", PriceHistoryStore.toLocalDateTime(epochMillis).toString());
+                    generator.writeFieldName("price");
+                    generator.writeNumber(price.stripTrailingZeros().toPlainString());
+                    generator.writeEndObject();
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @Operation(
+            summary = "Get OHLC bars",
+            description = "Retrieve open/high/low/close bars for a symbol at 1m, 1h or 1d resolution. " +
+                    "Includes the currently open bar. Defaults to the last 500 buckets when no range is given."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Bars retrieved successfully",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = PriceBar.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Unsupported interval",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"error\": \"Unsupported bar interval: 5m (expected 1m, 1h or 1d)\"}")
+                    )
+            )
+    })
+    @GetMapping("/{symbol}/bars")
+    public ResponseEntity<?> getPriceBars(
+            @Parameter(description = "Stock ticker symbol", example = "AAPL", required = true)
+            @PathVariable String symbol,
+            @Parameter(description = "Bar interval: 1m, 1h or 1d", example = "1m")
+            @RequestParam(defaultValue = "1m") String interval,
+            @Parameter(description = "Start of the range (inclusive)", example = "2025-01-15T09:30:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End of the range (inclusive)", example = "2025-01-15T16:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        try {
+            PriceBar.Interval barInterval = PriceBar.Interval.fromCode(interval);
+            LocalDateTime end = to != null ? to : LocalDateTime.now();
+            LocalDateTime start = from != null ? from : barInterval.bucketsBefore(end, 500);
+            List<PriceBar> bars = barAggregator.getBars(symbol, barInterval, start, end);
+            return ResponseEntity.ok(bars);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     @Operation(
             summary = "Get stocks by sector",
             description = "Retrieve all stocks belonging to a specific market sector (e.g., Technology, Healthcare)."
@@ -306,6 +453,51 @@ public class StockController {
         }
     }
 
+    @Operation(
+            summary = "Batch update stock prices",
+            description = "Apply many symbol/price ticks in a single transaction using JDBC batch updates. " +
+                    "Returns a result for every symbol; unknown symbols and invalid prices are reported without failing the batch."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Batch processed",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"updated\": 1, \"failed\": 1, \"results\": [{\"symbol\": \"AAPL\", \"price\": 195.50, \"updated\": true}, {\"symbol\": \"XYZ\", \"price\": 10.00, \"updated\": false, \"error\": \"Stock not found with symbol: XYZ\"}]}")
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Empty or malformed batch"
+            )
+    })
+    @PostMapping("/prices/batch")
+    public ResponseEntity<?> updateStockPrices(
+            @Parameter(description = "Array of symbol/price pairs")
+            @RequestBody List<PriceUpdateDTO> updates
+    ) {
+        if (updates == null || updates.isEmpty()) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Batch must contain at least one price update");
+            return ResponseEntity.badRequest().body(error);
+        }
+        try {
+            List<PriceUpdateResultDTO> results = stockService.updateStockPrices(updates);
+            long updated = results.stream().filter(PriceUpdateResultDTO::isUpdated).count();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("updated", updated);
+            response.put("failed", results.size() - updated);
+            response.put("results", results);
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     @Operation(
             summary = "Delete stock",
             description = "Remove a stock from the system. Note: This will also affect any associated transactions and positions."
@@ -38,6 +38,10 @@ public class TestDataController {
     @Autowired private StockService stockService;
     @Autowired private TransactionService transactionService;
     @Autowired private PositionService positionService;
+    @Autowired private InsertBenchmarkService insertBenchmarkService;
+    @Autowired private PriceHistoryStore priceHistoryStore;
+    @Autowired private BarAggregator barAggregator;
+    @Autowired private IdempotencyCache idempotencyCache;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -249,7 +253,7 @@ public class TestDataController {
     @Operation(
             summary = "Clear all test data",
             description = "Remove all data from the system including users, portfolios, stocks, transactions, and positions. " +
-                    "Also resets auto-increment sequences. This action cannot be undone."
+                    "IDs are not reused; new data continues the ID sequences. This action cannot be undone."
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -257,7 +261,7 @@ public class TestDataController {
                     description = "All test data cleared successfully",
                     content = @Content(
                             mediaType = "text/plain",
-                            examples = @ExampleObject(value = "All test data cleared and sequences reset")
+                            examples = @ExampleObject(value = "All test data cleared")
                     )
             ),
             @ApiResponse(
@@ -271,7 +275,7 @@ public class TestDataController {
         try {
             logger.info("Starting to clear all test data...");
             clearAllData();
-            String message = "All test data cleared and sequences reset";
+            String message = "All test data cleared";
             logger.info(message);
             return ResponseEntity.ok(message);
 
@@ -282,6 +286,40 @@ public class TestDataController {
         }
     }
 
+    @Operation(
+            summary = "Benchmark bulk transaction inserts",
+            description = "Insert the given number of transactions into a temporary portfolio and report inserts per second. " +
+                    "Mode 'unbatched' forces one JDBC round trip per row, 'batched' uses hibernate.jdbc.batch_size, " +
+                    "'both' runs the two back to back. Benchmark rows are deleted afterwards. Disable show-sql for meaningful numbers."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Benchmark finished",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = "{\"rows\": 100000, \"jdbcBatchSize\": 50, \"unbatched\": {\"insertsPerSecond\": 25000.0}, \"batched\": {\"insertsPerSecond\": 90000.0}, \"speedup\": 3.6}")
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid row count or mode"
+            )
+    })
+    @PostMapping("/benchmark/inserts")
+    public ResponseEntity<?> benchmarkInserts(
+            @Parameter(description = "Number of transactions to insert per mode", example = "1000000")
+            @RequestParam(defaultValue = "100000") int rows,
+            @Parameter(description = "batched, unbatched or both", example = "both")
+            @RequestParam(defaultValue = "both") String mode
+    ) {
+        try {
+            return ResponseEntity.ok(insertBenchmarkService.run(rows, mode));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @Operation(
             summary = "Get database status",
             description = "Get current counts of all entities in the database for monitoring test data state."
@@ -381,19 +419,13 @@ public class TestDataController {
         portfolioService.deleteAllPortfolios();
         stockService.deleteAllStocks();
         userService.deleteAllUsers();
+        priceHistoryStore.clear();
+        barAggregator.clear();
+        // Stored results point at transactions that no longer exist
+        idempotencyCache.clear();
 
-        // Reset primary key sequences
-        try {
-            entityManager.createNativeQuery("ALTER TABLE users ALTER COLUMN id RESTART WITH 1").executeUpdate();
-            entityManager.createNativeQuery("ALTER TABLE portfolios ALTER COLUMN portfolio_id RESTART WITH 1").executeUpdate();
-            entityManager.createNativeQuery("ALTER TABLE stocks ALTER COLUMN stock_id RESTART WITH 1").executeUpdate();
-            entityManager.createNativeQuery("ALTER TABLE transactions ALTER COLUMN transaction_id RESTART WITH 1").executeUpdate();
-            entityManager.createNativeQuery("ALTER TABLE positions ALTER COLUMN position_id RESTART WITH 1").executeUpdate();
-            logger.info("Database sequences reset successfully");
-        } catch (Exception e) {
-            logger.warn("Could not reset sequences (might not be H2/PostgreSQL): " + e.getMessage());
-        }
-
+        // Primary keys are not reset: IDs come from pooled sequences whose blocks are cached
+        // in memory, so restarting the sequences here would hand out duplicate keys.
         entityManager.flush();
         entityManager.clear();
     }
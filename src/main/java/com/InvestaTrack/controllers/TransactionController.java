@@ -1,22 +1,41 @@
 package com.InvestaTrack.controllers;
 
+import com.InvestaTrack.models.TaxLot;
 import com.InvestaTrack.models.Transaction;
 import com.InvestaTrack.models.Transaction.TransactionType;
+import com.InvestaTrack.dto.TradeRequestDTO;
+import com.InvestaTrack.dto.TradeResultDTO;
+import com.InvestaTrack.dto.TransactionCursor;
 import com.InvestaTrack.dto.TransactionDTO;
+import com.InvestaTrack.services.AsyncTradeService;
+import com.InvestaTrack.services.BatchTradeService;
+import com.InvestaTrack.services.IdempotencyCache;
+import com.InvestaTrack.services.TradeImportService;
+import com.InvestaTrack.services.TradeSequencer;
+import com.InvestaTrack.services.TransactionExportService;
 import com.InvestaTrack.services.TransactionService;
+import com.InvestaTrack.services.TransactionSummaryService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @RestController
@@ -25,9 +44,30 @@ import java.util.stream.Collectors;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final BatchTradeService batchTradeService;
+    private final TradeImportService tradeImportService;
+    private final TradeSequencer tradeSequencer;
+    private final IdempotencyCache idempotencyCache;
+    private final AsyncTradeService asyncTradeService;
+    private final TransactionExportService transactionExportService;
+    private final TransactionSummaryService transactionSummaryService;
 
-    public TransactionController(TransactionService transactionService) {
+    public TransactionController(TransactionService transactionService,
+                                 BatchTradeService batchTradeService,
+                                 TradeImportService tradeImportService,
+                                 TradeSequencer tradeSequencer,
+                                 IdempotencyCache idempotencyCache,
+                                 AsyncTradeService asyncTradeService,
+                                 TransactionExportService transactionExportService,
+                                 TransactionSummaryService transactionSummaryService) {
         this.transactionService = transactionService;
+        this.batchTradeService = batchTradeService;
+        this.tradeImportService = tradeImportService;
+        this.tradeSequencer = tradeSequencer;
+        this.idempotencyCache = idempotencyCache;
+        this.asyncTradeService = asyncTradeService;
+        this.transactionExportService = transactionExportService;
+        this.transactionSummaryService = transactionSummaryService;
     }
 
     // Get all transactions as DTOs
@@ -45,6 +85,29 @@ public class TransactionController {
         }
     }
 
+    // Stream every transaction (or one portfolio's) as CSV or NDJSON without loading them into memory
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) Long portfolioId) {
+        TransactionExportService.Format exportFormat;
+        try {
+            exportFormat = TransactionExportService.Format.fromName(format);
+        } catch (RuntimeException e) {
+            // The streaming return type cannot carry a Map, so the usual error body is written directly
+            byte[] error = ("{\"error\":\"" + e.getMessage() + "\"}").getBytes(StandardCharsets.UTF_8);
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(output -> output.write(error));
+        }
+        StreamingResponseBody body = output -> transactionExportService.export(exportFormat, portfolioId, output);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"transactions." + exportFormat.getExtension() + "\"")
+                .body(body);
+    }
+
     // Get transaction by ID as DTO
     @GetMapping("/{id}")
     @Transactional(readOnly = true)
@@ -57,53 +120,36 @@ public class TransactionController {
         }
     }
 
-    // Get transactions by portfolio as DTOs
+    // Get a portfolio's transactions as DTOs, newest first, one page at a time.
+    // Pass the X-Next-Cursor response header back as ?cursor= for the next page; no header means the last page.
     @GetMapping("/portfolio/{portfolioId}")
     @Transactional(readOnly = true)
-    public ResponseEntity<List<TransactionDTO>> getTransactionsByPortfolioId(@PathVariable Long portfolioId) {
-        try {
-            List<TransactionDTO> transactions = transactionService.getTransactionsByPortfolioId(portfolioId)
-                    .stream()
-                    .map(TransactionDTO::new)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(transactions);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public ResponseEntity<?> getTransactionsByPortfolioId(
+            @PathVariable Long portfolioId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return transactionPage(portfolioId, null, null, null, cursor, limit);
     }
 
-    // Get transactions by type as DTOs
+    // Get transactions by type as DTOs (paged like /portfolio/{portfolioId})
     @GetMapping("/portfolio/{portfolioId}/type/{type}")
     @Transactional(readOnly = true)
-    public ResponseEntity<List<TransactionDTO>> getTransactionsByType(
+    public ResponseEntity<?> getTransactionsByType(
             @PathVariable Long portfolioId,
-            @PathVariable TransactionType type) {
-        try {
-            List<TransactionDTO> transactions = transactionService.getTransactionsByType(portfolioId, type)
-                    .stream()
-                    .map(TransactionDTO::new)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(transactions);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+            @PathVariable TransactionType type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return transactionPage(portfolioId, type, null, null, cursor, limit);
     }
 
-    // Get recent transactions as DTOs
+    // Get recent transactions as DTOs (paged like /portfolio/{portfolioId})
     @GetMapping("/portfolio/{portfolioId}/recent")
     @Transactional(readOnly = true)
-    public ResponseEntity<List<TransactionDTO>> getRecentTransactions(
+    public ResponseEntity<?> getRecentTransactions(
             @PathVariable Long portfolioId,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "10") int limit) {
-        try {
-            List<TransactionDTO> transactions = transactionService.getRecentTransactions(portfolioId, limit)
-                    .stream()
-                    .map(TransactionDTO::new)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(transactions);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+        return transactionPage(portfolioId, null, null, null, cursor, limit);
     }
 
     // Get transaction summary
@@ -117,9 +163,39 @@ public class TransactionController {
         }
     }
 
+    // Recompute every portfolio's transaction summary from the transactions table
+    @PostMapping("/summaries/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildTransactionSummaries() {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("drifted", transactionSummaryService.rebuildAll());
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+        }
+    }
+
     // Create buy transaction
     @PostMapping("/buy")
-    public ResponseEntity<?> createBuyTransaction(@RequestBody Map<String, Object> transactionData) {
+    public ResponseEntity<?> createBuyTransaction(
+            @RequestBody Map<String, Object> transactionData,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return submitTrade(TransactionType.BUY, transactionData, idempotencyKey);
+    }
+
+    // Create sell transaction
+    @PostMapping("/sell")
+    public ResponseEntity<?> createSellTransaction(
+            @RequestBody Map<String, Object> transactionData,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return submitTrade(TransactionType.SELL, transactionData, idempotencyKey);
+    }
+
+    // Shared body of /buy and /sell. With an Idempotency-Key, a retry of the same request replays
+    // the original result (Idempotent-Replayed: true) instead of creating a second trade.
+    private ResponseEntity<?> submitTrade(TransactionType type, Map<String, Object> transactionData, String idempotencyKey) {
         try {
             Long portfolioId = Long.parseLong(transactionData.get("portfolioId").toString());
             Long stockId = Long.parseLong(transactionData.get("stockId").toString());
@@ -127,11 +203,32 @@ public class TransactionController {
             BigDecimal pricePerShare = new BigDecimal(transactionData.get("pricePerShare").toString());
             BigDecimal fees = transactionData.containsKey("fees") ?
                     new BigDecimal(transactionData.get("fees").toString()) : BigDecimal.ZERO;
+            // Sells may pick their lots: lotMethod FIFO, LIFO or SPECIFIC_ID (with lotId)
+            TaxLot.MatchingMethod lotMethod = transactionData.get("lotMethod") != null ?
+                    TaxLot.MatchingMethod.valueOf(transactionData.get("lotMethod").toString().toUpperCase()) : null;
+            Long lotId = transactionData.get("lotId") != null ?
+                    Long.parseLong(transactionData.get("lotId").toString()) : null;
+
+            // Trades for one portfolio apply one at a time on its sequencer lane
+            Supplier<TransactionDTO> trade = () -> new TransactionDTO(tradeSequencer.execute(portfolioId, () ->
+                    type == TransactionType.BUY
+                            ? transactionService.createBuyTransaction(portfolioId, stockId, quantity, pricePerShare, fees)
+                            : transactionService.createSellTransaction(portfolioId, stockId, quantity, pricePerShare, fees,
+                                    lotMethod, lotId)));
 
-            Transaction transaction = transactionService.createBuyTransaction(
-                    portfolioId, stockId, quantity, pricePerShare, fees
-            );
-            return ResponseEntity.status(HttpStatus.CREATED).body(new TransactionDTO(transaction));
+            if (idempotencyKey == null || idempotencyKey.isBlank()) {
+                return ResponseEntity.status(HttpStatus.CREATED).body(trade.get());
+            }
+            IdempotencyCache.Result<TransactionDTO> result = idempotencyCache.execute(
+                    type.name() + ":" + idempotencyKey,
+                    fingerprint(type, portfolioId, stockId, quantity, pricePerShare, fees, lotMethod, lotId), trade);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .header("Idempotent-Replayed", String.valueOf(result.isReplayed()))
+                    .body(result.getValue());
+        } catch (IdempotencyCache.KeyReuseException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.unprocessableEntity().body(error);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Invalid transaction data: " + e.getMessage());
@@ -139,41 +236,143 @@ public class TransactionController {
         }
     }
 
-    // Create sell transaction
-    @PostMapping("/sell")
-    public ResponseEntity<?> createSellTransaction(@RequestBody Map<String, Object> transactionData) {
+    // Identifies a trade request by its parsed fields, so key order, number formatting
+    // ("10.5" vs "10.50") and ignored extra fields don't make a retry look like another request
+    private static String fingerprint(TransactionType type, Long portfolioId, Long stockId, Integer quantity,
+                                      BigDecimal pricePerShare, BigDecimal fees,
+                                      TaxLot.MatchingMethod lotMethod, Long lotId) {
+        return type + "|" + portfolioId + "|" + stockId + "|" + quantity
+                + "|" + pricePerShare.stripTrailingZeros().toPlainString()
+                + "|" + fees.stripTrailingZeros().toPlainString()
+                + "|" + lotMethod + "|" + lotId;
+    }
+
+    // Apply many BUY/SELL trades in one transaction, reporting a result per trade
+    @PostMapping("/batch")
+    public ResponseEntity<?> createTransactionsBatch(@RequestBody List<TradeRequestDTO> trades) {
+        if (trades == null || trades.isEmpty()) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "At least one trade is required");
+            return ResponseEntity.badRequest().body(error);
+        }
         try {
-            Long portfolioId = Long.parseLong(transactionData.get("portfolioId").toString());
-            Long stockId = Long.parseLong(transactionData.get("stockId").toString());
-            Integer quantity = Integer.parseInt(transactionData.get("quantity").toString());
-            BigDecimal pricePerShare = new BigDecimal(transactionData.get("pricePerShare").toString());
-            BigDecimal fees = transactionData.containsKey("fees") ?
-                    new BigDecimal(transactionData.get("fees").toString()) : BigDecimal.ZERO;
+            Set<Long> portfolioIds = new HashSet<>();
+            for (TradeRequestDTO trade : trades) {
+                if (trade != null) {
+                    portfolioIds.add(trade.getPortfolioId());
+                }
+            }
+            List<TradeResultDTO> results = tradeSequencer.executeAll(portfolioIds, () -> batchTradeService.applyTrades(trades));
+            long applied = results.stream().filter(TradeResultDTO::isApplied).count();
 
-            Transaction transaction = transactionService.createSellTransaction(
-                    portfolioId, stockId, quantity, pricePerShare, fees
-            );
-            return ResponseEntity.status(HttpStatus.CREATED).body(new TransactionDTO(transaction));
-        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("applied", applied);
+            response.put("failed", results.size() - applied);
+            response.put("results", results);
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Batch failed: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    // Accept a trade for background processing; returns 202 with a ticket to poll for the outcome
+    @PostMapping("/async")
+    public ResponseEntity<?> submitAsyncTrade(@RequestBody TradeRequestDTO trade) {
+        try {
+            Map<String, Object> ticket = asyncTradeService.submit(trade);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header("Location", "/api/transactions/async/" + ticket.get("ticketId"))
+                    .body(ticket);
+        } catch (AsyncTradeService.QueueFullException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(error);
+        } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Invalid transaction data: " + e.getMessage());
             return ResponseEntity.badRequest().body(error);
         }
     }
 
-    // Date range transactions
+    // Outcome of an async trade: QUEUED, APPLYING, APPLIED (with transactionId), REJECTED or FAILED
+    @GetMapping("/async/{ticketId}")
+    public ResponseEntity<?> getAsyncTradeStatus(@PathVariable String ticketId) {
+        try {
+            return ResponseEntity.ok(asyncTradeService.getStatus(ticketId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // Upload a broker-statement CSV; rows are imported in the background in bounded batches
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importTransactions(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) Long portfolioId) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(tradeImportService.startImport(file, portfolioId));
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    // Progress of a CSV import: rows read/applied/failed, rows per second and sample errors
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<?> getImportStatus(@PathVariable String jobId) {
+        try {
+            return ResponseEntity.ok(tradeImportService.getStatus(jobId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // Date range transactions (inclusive bounds, paged like /portfolio/{portfolioId})
     @GetMapping("/portfolio/{portfolioId}/date-range")
     @Transactional(readOnly = true)
-    public ResponseEntity<List<TransactionDTO>> getTransactionsByDateRange(
+    public ResponseEntity<?> getTransactionsByDateRange(
             @PathVariable Long portfolioId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return transactionPage(portfolioId, null, startDate, endDate, cursor, limit);
+    }
+
+    // Shared body of the history endpoints: fetch one row past the page to know whether another page follows
+    private ResponseEntity<?> transactionPage(Long portfolioId, TransactionType type,
+                                              LocalDateTime startDate, LocalDateTime endDate,
+                                              String cursor, Integer limit) {
+        if (limit != null && limit < 1) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Limit must be at least 1");
+            return ResponseEntity.badRequest().body(error);
+        }
+        int pageSize = transactionService.resolvePageSize(limit);
+        TransactionCursor after;
         try {
-            List<TransactionDTO> transactions = transactionService.getTransactionsByDateRange(portfolioId, startDate, endDate)
-                    .stream()
+            after = cursor != null && !cursor.isBlank() ? TransactionCursor.decode(cursor) : null;
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+        try {
+            List<Transaction> rows = transactionService.getTransactionPage(
+                    portfolioId, type, startDate, endDate, after, pageSize + 1);
+            List<Transaction> page = rows.size() > pageSize ? rows.subList(0, pageSize) : rows;
+            List<TransactionDTO> transactions = page.stream()
                     .map(TransactionDTO::new)
                     .collect(Collectors.toList());
-            return ResponseEntity.ok(transactions);
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (rows.size() > pageSize) {
+                response.header("X-Next-Cursor", TransactionCursor.after(page.get(page.size() - 1)).encode());
+            }
+            return response.body(transactions);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -183,7 +382,9 @@ public class TransactionController {
     @PostMapping
     public ResponseEntity<?> createTransaction(@Valid @RequestBody Transaction transaction) {
         try {
-            Transaction createdTransaction = transactionService.createTransaction(transaction);
+            Long portfolioId = transaction.getPortfolio() != null ? transaction.getPortfolio().getPortfolioID() : null;
+            Transaction createdTransaction = tradeSequencer.execute(portfolioId, () ->
+                    transactionService.createTransaction(transaction));
             return ResponseEntity.status(HttpStatus.CREATED).body(new TransactionDTO(createdTransaction));
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
@@ -196,7 +397,10 @@ public class TransactionController {
     @PatchMapping("/{id}")
     public ResponseEntity<?> updateTransaction(@PathVariable Long id, @RequestBody Transaction transactionDetails) {
         try {
-            Transaction updatedTransaction = transactionService.updateTransaction(id, transactionDetails);
+            // A fee edit on a BUY replays the position and lots, so it queues behind the portfolio's other trades
+            Long portfolioId = transactionService.getPortfolioIdForTransaction(id);
+            Transaction updatedTransaction = tradeSequencer.execute(portfolioId, () ->
+                    transactionService.updateTransaction(id, transactionDetails));
             return ResponseEntity.ok(new TransactionDTO(updatedTransaction));
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
@@ -208,13 +412,25 @@ public class TransactionController {
     // Delete transaction
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteTransaction(@PathVariable Long id) {
+        Long portfolioId;
         try {
-            transactionService.deleteTransaction(id);
+            portfolioId = transactionService.getPortfolioIdForTransaction(id);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            tradeSequencer.execute(portfolioId, () -> {
+                transactionService.deleteTransaction(id);
+                return null;
+            });
             Map<String, String> response = new HashMap<>();
             response.put("message", "Transaction with id " + id + " deleted successfully");
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
-            return ResponseEntity.notFound().build();
+            // The trade exists but removing it would break the history, e.g. a BUY that later sells depend on
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
         }
     }
 }
\ No newline at end of file
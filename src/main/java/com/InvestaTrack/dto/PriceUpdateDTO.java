@@ -0,0 +1,22 @@
+package com.InvestaTrack.dto;
+
+import java.math.BigDecimal;
+
+public class PriceUpdateDTO {
+    private String symbol;
+    private BigDecimal price;
+
+    public PriceUpdateDTO() {}
+
+    public PriceUpdateDTO(String symbol, BigDecimal price) {
+        this.symbol = symbol;
+        this.price = price;
+    }
+
+    // Getters and Setters
+    public String getSymbol() { return symbol; }
+    public BigDecimal getPrice() { return price; }
+
+    public void setSymbol(String symbol) { this.symbol = symbol; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+}
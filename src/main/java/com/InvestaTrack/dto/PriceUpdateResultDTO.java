@@ -0,0 +1,31 @@
+package com.InvestaTrack.dto;
+
+import java.math.BigDecimal;
+
+public class PriceUpdateResultDTO {
+    private String symbol;
+    private BigDecimal price;
+    private boolean updated;
+    private String error;
+
+    public PriceUpdateResultDTO(String symbol, BigDecimal price, boolean updated, String error) {
+        this.symbol = symbol;
+        this.price = price;
+        this.updated = updated;
+        this.error = error;
+    }
+
+    public static PriceUpdateResultDTO updated(String symbol, BigDecimal price) {
+        return new PriceUpdateResultDTO(symbol, price, true, null);
+    }
+
+    public static PriceUpdateResultDTO failed(String symbol, BigDecimal price, String error) {
+        return new PriceUpdateResultDTO(symbol, price, false, error);
+    }
+
+    // Getters
+    public String getSymbol() { return symbol; }
+    public BigDecimal getPrice() { return price; }
+    public boolean isUpdated() { return updated; }
+    public String getError() { return error; }
+}
@@ -0,0 +1,34 @@
+package com.InvestaTrack.dto;
+
+import java.math.BigDecimal;
+
+public class StockSuggestionDTO {
+    private Long stockId;
+    private String symbol;
+    private String companyName;
+    private BigDecimal currentPrice;
+    private BigDecimal marketCap;
+
+    public StockSuggestionDTO(Long stockId, String symbol, String companyName,
+                              BigDecimal currentPrice, BigDecimal marketCap) {
+        this.stockId = stockId;
+        this.symbol = symbol;
+        this.companyName = companyName;
+        this.currentPrice = currentPrice;
+        this.marketCap = marketCap;
+    }
+
+    // Getters
+    public Long getStockId() { return stockId; }
+    public String getSymbol() { return symbol; }
+    public String getCompanyName() { return companyName; }
+    public BigDecimal getCurrentPrice() { return currentPrice; }
+    public BigDecimal getMarketCap() { return marketCap; }
+
+    // Setters
+    public void setStockId(Long stockId) { this.stockId = stockId; }
+    public void setSymbol(String symbol) { this.symbol = symbol; }
+    public void setCompanyName(String companyName) { this.companyName = companyName; }
+    public void setCurrentPrice(BigDecimal currentPrice) { this.currentPrice = currentPrice; }
+    public void setMarketCap(BigDecimal marketCap) { this.marketCap = marketCap; }
+}
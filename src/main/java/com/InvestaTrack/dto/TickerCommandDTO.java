@@ -0,0 +1,18 @@
+package com.InvestaTrack.dto;
+
+import java.util.List;
+
+// Message a ticker WebSocket client sends: {"action": "subscribe", "symbols": ["AAPL", "MSFT"]}
+public class TickerCommandDTO {
+    private String action;
+    private List<String> symbols;
+
+    public TickerCommandDTO() {}
+
+    // Getters and Setters
+    public String getAction() { return action; }
+    public List<String> getSymbols() { return symbols; }
+
+    public void setAction(String action) { this.action = action; }
+    public void setSymbols(List<String> symbols) { this.symbols = symbols; }
+}
@@ -0,0 +1,37 @@
+package com.InvestaTrack.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One trade in a batch import; the stock can be given by ID or by symbol
+public class TradeRequestDTO {
+    private Long portfolioId;
+    private Long stockId;
+    private String symbol;
+    private String transactionType;
+    private Integer quantity;
+    private BigDecimal pricePerShare;
+    private BigDecimal fees;
+    private LocalDateTime transactionDate;
+
+    public TradeRequestDTO() {}
+
+    // Getters and Setters
+    public Long getPortfolioId() { return portfolioId; }
+    public Long getStockId() { return stockId; }
+    public String getSymbol() { return symbol; }
+    public String getTransactionType() { return transactionType; }
+    public Integer getQuantity() { return quantity; }
+    public BigDecimal getPricePerShare() { return pricePerShare; }
+    public BigDecimal getFees() { return fees; }
+    public LocalDateTime getTransactionDate() { return transactionDate; }
+
+    public void setPortfolioId(Long portfolioId) { this.portfolioId = portfolioId; }
+    public void setStockId(Long stockId) { this.stockId = stockId; }
+    public void setSymbol(String symbol) { this.symbol = symbol; }
+    public void setTransactionType(String transactionType) { this.transactionType = transactionType; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+    public void setPricePerShare(BigDecimal pricePerShare) { this.pricePerShare = pricePerShare; }
+    public void setFees(BigDecimal fees) { this.fees = fees; }
+    public void setTransactionDate(LocalDateTime transactionDate) { this.transactionDate = transactionDate; }
+}
@@ -0,0 +1,29 @@
+package com.InvestaTrack.dto;
+
+public class TradeResultDTO {
+    private int index;
+    private Long transactionId;
+    private boolean applied;
+    private String error;
+
+    public TradeResultDTO(int index, Long transactionId, boolean applied, String error) {
+        this.index = index;
+        this.transactionId = transactionId;
+        this.applied = applied;
+        this.error = error;
+    }
+
+    public static TradeResultDTO applied(int index, Long transactionId) {
+        return new TradeResultDTO(index, transactionId, true, null);
+    }
+
+    public static TradeResultDTO failed(int index, String error) {
+        return new TradeResultDTO(index, null, false, error);
+    }
+
+    // Getters
+    public int getIndex() { return index; }
+    public Long getTransactionId() { return transactionId; }
+    public boolean isApplied() { return applied; }
+    public String getError() { return error; }
+}
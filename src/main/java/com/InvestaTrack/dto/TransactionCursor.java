@@ -0,0 +1,45 @@
+package com.InvestaTrack.dto;
+
+import com.InvestaTrack.models.Transaction;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Opaque position in a transaction history ordered by (transactionDate, transactionId) descending.
+// Sent to clients as a URL-safe string in the X-Next-Cursor header and passed back as ?cursor=.
+public class TransactionCursor {
+    private final LocalDateTime transactionDate;
+    private final Long transactionId;
+
+    public TransactionCursor(LocalDateTime transactionDate, Long transactionId) {
+        this.transactionDate = transactionDate;
+        this.transactionId = transactionId;
+    }
+
+    // Cursor that continues after the given transaction
+    public static TransactionCursor after(Transaction transaction) {
+        return new TransactionCursor(transaction.getTransactionDate(), transaction.getTransactionId());
+    }
+
+    public static TransactionCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+            return new TransactionCursor(LocalDateTime.parse(decoded.substring(0, separator)),
+                    Long.parseLong(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+            throw new RuntimeException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public String encode() {
+        String raw = transactionDate + "|" + transactionId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Getters
+    public LocalDateTime getTransactionDate() { return transactionDate; }
+    public Long getTransactionId() { return transactionId; }
+}
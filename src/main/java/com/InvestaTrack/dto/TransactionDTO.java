@@ -21,6 +21,7 @@ public class TransactionDTO {
     private BigDecimal fees;
     private String description;
     private BigDecimal netAmount;
+    private BigDecimal realizedGain;
 
     // Constructor that converts from Transaction entity with null safety
     public TransactionDTO(Transaction transaction) {
@@ -53,6 +54,7 @@ public class TransactionDTO {
         this.totalAmount = transaction.getTotalAmount();
         this.transactionDate = transaction.getTransactionDate();
         this.fees = transaction.getFees();
+        this.realizedGain = transaction.getRealizedGain();
 
         // Safe method calls for computed properties
         try {
@@ -83,6 +85,7 @@ public class TransactionDTO {
     public BigDecimal getFees() { return fees; }
     public String getDescription() { return description; }
     public BigDecimal getNetAmount() { return netAmount; }
+    public BigDecimal getRealizedGain() { return realizedGain; }
 
     // Setters
     public void setTransactionId(Long transactionId) { this.transactionId = transactionId; }
@@ -99,4 +102,5 @@ public class TransactionDTO {
     public void setFees(BigDecimal fees) { this.fees = fees; }
     public void setDescription(String description) { this.description = description; }
     public void setNetAmount(BigDecimal netAmount) { this.netAmount = netAmount; }
+    public void setRealizedGain(BigDecimal realizedGain) { this.realizedGain = realizedGain; }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.InvestaTrack.events;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+
+// Published by PortfolioService whenever a portfolio's total value or cost is written
+public class PortfolioValuationChangedEvent {
+    private final Long portfolioId;
+    private final BigDecimal totalValue;
+    private final BigDecimal totalCost;
+    private final BigDecimal valueChange;
+    private final LocalDateTime timestamp;
+
+    public PortfolioValuationChangedEvent(Long portfolioId, BigDecimal totalValue, BigDecimal totalCost,
+                                          BigDecimal valueChange, LocalDateTime timestamp) {
+        this.portfolioId = portfolioId;
+        this.totalValue = totalValue;
+        this.totalCost = totalCost;
+        this.valueChange = valueChange;
+        this.timestamp = timestamp;
+    }
+
+    public Long getPortfolioId() { return portfolioId; }
+    public BigDecimal getTotalValue() { return totalValue; }
+    public BigDecimal getTotalCost() { return totalCost; }
+    public BigDecimal getValueChange() { return valueChange; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+
+    public BigDecimal getGainLoss() {
+        if (totalValue == null || totalCost == null) {
+            return BigDecimal.ZERO;
+        }
+        return totalValue.subtract(totalCost);
+    }
+
+    public BigDecimal getGainLossPercentage() {
+        if (totalCost == null || totalCost.compareTo(BigDecimal.ZERO) == 0) {
+            return BigDecimal.ZERO;
+        }
+        return getGainLoss().divide(totalCost, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100));
+    }
+
+    // Fold a later change for the same portfolio into this one, keeping the newest totals
+    public PortfolioValuationChangedEvent mergeWith(PortfolioValuationChangedEvent later) {
+        BigDecimal change = valueChange != null ? valueChange : BigDecimal.ZERO;
+        if (later.valueChange != null) {
+            change = change.add(later.valueChange);
+        }
+        return new PortfolioValuationChangedEvent(portfolioId, later.totalValue, later.totalCost, change, later.timestamp);
+    }
+}
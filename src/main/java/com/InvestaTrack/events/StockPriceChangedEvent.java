@@ -0,0 +1,33 @@
+package com.InvestaTrack.events;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Published by StockService whenever a stock price is written
+public class StockPriceChangedEvent {
+    private final Long stockId;
+    private final String symbol;
+    private final BigDecimal previousPrice;
+    private final BigDecimal price;
+    private final LocalDateTime timestamp;
+
+    public StockPriceChangedEvent(Long stockId, String symbol, BigDecimal previousPrice,
+                                  BigDecimal price, LocalDateTime timestamp) {
+        this.stockId = stockId;
+        this.symbol = symbol;
+        this.previousPrice = previousPrice;
+        this.price = price;
+        this.timestamp = timestamp;
+    }
+
+    public Long getStockId() { return stockId; }
+    public String getSymbol() { return symbol; }
+    public BigDecimal getPreviousPrice() { return previousPrice; }
+    public BigDecimal getPrice() { return price; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+
+    // True when the price actually moved (or was previously unknown)
+    public boolean isPriceChanged() {
+        return previousPrice == null || price == null || previousPrice.compareTo(price) != 0;
+    }
+}
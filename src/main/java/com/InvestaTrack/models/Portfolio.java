@@ -19,7 +19,8 @@ import java.time.LocalDateTime;
 public class Portfolio implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "portfolio_seq")
+    @SequenceGenerator(name = "portfolio_seq", sequenceName = "portfolios_seq", allocationSize = 50)
     @Column(name = "portfolio_id")
     private Long portfolioID;
 
@@ -47,6 +48,12 @@ public class Portfolio implements Serializable {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
 
+    // Optimistic lock version; concurrent writers conflict instead of overwriting each other
+    @Version
+    @JsonIgnore
+    @Column(nullable = false)
+    private Long version;
+
     // JPA Relationship to User (Standard Spring Boot way)
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
@@ -125,6 +132,10 @@ public class Portfolio implements Serializable {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     public User getUser() {
         return user;
     }
@@ -0,0 +1,127 @@
+package com.InvestaTrack.models;
+
+import com.fasterxml.jackson.annotation.*;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Running buy/sell and realized gain totals for one portfolio, kept in step with its transactions so the
+// transaction summary is a single-row read. Rebuilt from the transactions table on demand.
+@Entity
+@Table(name = "portfolio_transaction_summaries")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class PortfolioTransactionSummary implements Serializable {
+
+    @Id
+    @Column(name = "portfolio_id")
+    private Long portfolioId;
+
+    @Column(nullable = false)
+    private Long buyCount = 0L;
+
+    @Column(nullable = false)
+    private Long sellCount = 0L;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalBuyAmount = BigDecimal.ZERO;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalSellAmount = BigDecimal.ZERO;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalFees = BigDecimal.ZERO;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalRealizedGain = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public PortfolioTransactionSummary() {}
+
+    public PortfolioTransactionSummary(Long portfolioId) {
+        this.portfolioId = portfolioId;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getPortfolioId() {
+        return portfolioId;
+    }
+
+    public void setPortfolioId(Long portfolioId) {
+        this.portfolioId = portfolioId;
+    }
+
+    public Long getBuyCount() {
+        return buyCount;
+    }
+
+    public void setBuyCount(Long buyCount) {
+        this.buyCount = buyCount;
+    }
+
+    public Long getSellCount() {
+        return sellCount;
+    }
+
+    public void setSellCount(Long sellCount) {
+        this.sellCount = sellCount;
+    }
+
+    public BigDecimal getTotalBuyAmount() {
+        return totalBuyAmount;
+    }
+
+    public void setTotalBuyAmount(BigDecimal totalBuyAmount) {
+        this.totalBuyAmount = totalBuyAmount;
+    }
+
+    public BigDecimal getTotalSellAmount() {
+        return totalSellAmount;
+    }
+
+    public void setTotalSellAmount(BigDecimal totalSellAmount) {
+        this.totalSellAmount = totalSellAmount;
+    }
+
+    public BigDecimal getTotalFees() {
+        return totalFees;
+    }
+
+    public void setTotalFees(BigDecimal totalFees) {
+        this.totalFees = totalFees;
+    }
+
+    public BigDecimal getTotalRealizedGain() {
+        return totalRealizedGain;
+    }
+
+    public void setTotalRealizedGain(BigDecimal totalRealizedGain) {
+        this.totalRealizedGain = totalRealizedGain;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "PortfolioTransactionSummary{" +
+                "portfolioId=" + portfolioId +
+                ", buyCount=" + buyCount +
+                ", sellCount=" + sellCount +
+                ", totalBuyAmount=" + totalBuyAmount +
+                ", totalSellAmount=" + totalSellAmount +
+                ", totalFees=" + totalFees +
+                ", totalRealizedGain=" + totalRealizedGain +
+                '}';
+    }
+}
@@ -11,13 +11,16 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "positions")
+@Table(name = "positions", indexes = {
+        @Index(name = "idx_positions_portfolio_stock", columnList = "portfolio_id, stock_id", unique = true)
+})
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "positionId")
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Position implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "position_seq")
+    @SequenceGenerator(name = "position_seq", sequenceName = "positions_seq", allocationSize = 50)
     @Column(name = "position_id")
     private Long positionId;
 
@@ -54,6 +57,12 @@ public class Position implements Serializable {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
 
+    // Optimistic lock version; concurrent writers conflict instead of overwriting each other
+    @Version
+    @JsonIgnore
+    @Column(nullable = false)
+    private Long version;
+
     // Constructors
     public Position() {}
 
@@ -127,6 +136,10 @@ public class Position implements Serializable {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     // Utility method to calculate gain/loss
     @JsonProperty("gainLoss")
     public BigDecimal getGainLoss() {
@@ -153,6 +166,13 @@ public class Position implements Serializable {
         }
     }
 
+    // Utility method to update current value from an already known price
+    public void updateCurrentValue(BigDecimal price) {
+        if (price != null && quantity != null) {
+            this.currentValue = price.multiply(BigDecimal.valueOf(quantity));
+        }
+    }
+
     // Utility method for position summary
     @JsonProperty("summary")
     public String getSummary() {
@@ -0,0 +1,167 @@
+package com.InvestaTrack.models;
+
+import com.fasterxml.jackson.annotation.*;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Cost basis of a position as of one transaction in (transactionDate, transactionId) order.
+// Replays start from the nearest snapshot instead of the first trade.
+@Entity
+@Table(name = "position_snapshots", indexes = {
+        @Index(name = "idx_position_snapshots_pair_key",
+                columnList = "portfolio_id, stock_id, last_transaction_date, last_transaction_id")
+})
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class PositionSnapshot implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "position_snapshot_seq")
+    @SequenceGenerator(name = "position_snapshot_seq", sequenceName = "position_snapshots_seq", allocationSize = 50)
+    @Column(name = "snapshot_id")
+    private Long snapshotId;
+
+    @NotNull
+    @Column(name = "portfolio_id", nullable = false)
+    private Long portfolioId;
+
+    @NotNull
+    @Column(name = "stock_id", nullable = false)
+    private Long stockId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal averageCost;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal totalCost;
+
+    @NotNull
+    @Column(name = "last_transaction_id", nullable = false)
+    private Long lastTransactionId;
+
+    @NotNull
+    @Column(name = "last_transaction_date", nullable = false)
+    private LocalDateTime lastTransactionDate;
+
+    // Number of transactions folded into this snapshot
+    @Column(nullable = false)
+    private Long transactionCount;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public PositionSnapshot() {}
+
+    public PositionSnapshot(Position position, Transaction lastTransaction, long transactionCount) {
+        this.portfolioId = position.getPortfolio().getPortfolioID();
+        this.stockId = position.getStock().getStockID();
+        this.quantity = position.getQuantity();
+        this.averageCost = position.getAverageCost();
+        this.totalCost = position.getTotalCost();
+        this.lastTransactionId = lastTransaction.getTransactionId();
+        this.lastTransactionDate = lastTransaction.getTransactionDate();
+        this.transactionCount = transactionCount;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getSnapshotId() {
+        return snapshotId;
+    }
+
+    public void setSnapshotId(Long snapshotId) {
+        this.snapshotId = snapshotId;
+    }
+
+    public Long getPortfolioId() {
+        return portfolioId;
+    }
+
+    public void setPortfolioId(Long portfolioId) {
+        this.portfolioId = portfolioId;
+    }
+
+    public Long getStockId() {
+        return stockId;
+    }
+
+    public void setStockId(Long stockId) {
+        this.stockId = stockId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public BigDecimal getAverageCost() {
+        return averageCost;
+    }
+
+    public void setAverageCost(BigDecimal averageCost) {
+        this.averageCost = averageCost;
+    }
+
+    public BigDecimal getTotalCost() {
+        return totalCost;
+    }
+
+    public void setTotalCost(BigDecimal totalCost) {
+        this.totalCost = totalCost;
+    }
+
+    public Long getLastTransactionId() {
+        return lastTransactionId;
+    }
+
+    public void setLastTransactionId(Long lastTransactionId) {
+        this.lastTransactionId = lastTransactionId;
+    }
+
+    public LocalDateTime getLastTransactionDate() {
+        return lastTransactionDate;
+    }
+
+    public void setLastTransactionDate(LocalDateTime lastTransactionDate) {
+        this.lastTransactionDate = lastTransactionDate;
+    }
+
+    public Long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(Long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "PositionSnapshot{" +
+                "portfolioId=" + portfolioId +
+                ", stockId=" + stockId +
+                ", quantity=" + quantity +
+                ", totalCost=" + totalCost +
+                ", lastTransactionId=" + lastTransactionId +
+                ", lastTransactionDate=" + lastTransactionDate +
+                ", transactionCount=" + transactionCount +
+                '}';
+    }
+}
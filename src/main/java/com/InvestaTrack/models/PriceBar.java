@@ -0,0 +1,246 @@
+package com.InvestaTrack.models;
+
+import com.fasterxml.jackson.annotation.*;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@Entity
+@Table(name = "price_bars", indexes = {
+        @Index(name = "idx_price_bars_symbol_interval_start", columnList = "symbol, bar_interval, bucket_start",
+                unique = true)
+})
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class PriceBar implements Serializable {
+
+    public enum Interval {
+        ONE_MINUTE("1m", ChronoUnit.MINUTES),
+        ONE_HOUR("1h", ChronoUnit.HOURS),
+        ONE_DAY("1d", ChronoUnit.DAYS);
+
+        private final String code;
+        private final ChronoUnit unit;
+
+        Interval(String code, ChronoUnit unit) {
+            this.code = code;
+            this.unit = unit;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        // Start of the bucket that contains the given time
+        public LocalDateTime bucketStart(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+
+        // Start of the bucket following the given bucket start
+        public LocalDateTime nextBucket(LocalDateTime bucketStart) {
+            return bucketStart.plus(1, unit);
+        }
+
+        // Time that lies the given number of buckets before another time
+        public LocalDateTime bucketsBefore(LocalDateTime time, long count) {
+            return time.minus(count, unit);
+        }
+
+        public static Interval fromCode(String code) {
+            for (Interval interval : values()) {
+                if (interval.code.equalsIgnoreCase(code) || interval.name().equalsIgnoreCase(code)) {
+                    return interval;
+                }
+            }
+            throw new RuntimeException("Unsupported bar interval: " + code + " (expected 1m, 1h or 1d)");
+        }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "price_bar_seq")
+    @SequenceGenerator(name = "price_bar_seq", sequenceName = "price_bars_seq", allocationSize = 50)
+    @Column(name = "bar_id")
+    private Long barId;
+
+    @NotNull
+    @Column(nullable = false, length = 10)
+    private String symbol;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "bar_interval", nullable = false, length = 10)
+    private Interval interval;
+
+    @NotNull
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false, precision = 12, scale = 4)
+    private BigDecimal openPrice;
+
+    @Column(nullable = false, precision = 12, scale = 4)
+    private BigDecimal highPrice;
+
+    @Column(nullable = false, precision = 12, scale = 4)
+    private BigDecimal lowPrice;
+
+    @Column(nullable = false, precision = 12, scale = 4)
+    private BigDecimal closePrice;
+
+    @Column(nullable = false)
+    private Long tickCount = 0L;
+
+    // Constructors
+    public PriceBar() {}
+
+    public PriceBar(String symbol, Interval interval, LocalDateTime bucketStart, BigDecimal price) {
+        this.symbol = symbol;
+        this.interval = interval;
+        this.bucketStart = bucketStart;
+        this.openPrice = price;
+        this.highPrice = price;
+        this.lowPrice = price;
+        this.closePrice = price;
+        this.tickCount = 1L;
+    }
+
+    // Fold another tick into this bar
+    public void addTick(BigDecimal price) {
+        if (price.compareTo(highPrice) > 0) {
+            highPrice = price;
+        }
+        if (price.compareTo(lowPrice) < 0) {
+            lowPrice = price;
+        }
+        closePrice = price;
+        tickCount++;
+    }
+
+    // Fold a bar for the same bucket that was built after this one (e.g. a stored bar continued after a restart)
+    public void append(PriceBar next) {
+        mergeRange(next);
+        closePrice = next.closePrice;
+    }
+
+    // Fold ticks that arrived after this bucket was closed; they are older than the close, so it stays
+    public void mergeLate(PriceBar late) {
+        mergeRange(late);
+    }
+
+    private void mergeRange(PriceBar other) {
+        if (other.highPrice.compareTo(highPrice) > 0) {
+            highPrice = other.highPrice;
+        }
+        if (other.lowPrice.compareTo(lowPrice) < 0) {
+            lowPrice = other.lowPrice;
+        }
+        tickCount += other.tickCount;
+    }
+
+    // Copy of the bar, used to hand out open bars without sharing mutable state
+    public PriceBar copy() {
+        PriceBar copy = new PriceBar(symbol, interval, bucketStart, openPrice);
+        copy.barId = barId;
+        copy.highPrice = highPrice;
+        copy.lowPrice = lowPrice;
+        copy.closePrice = closePrice;
+        copy.tickCount = tickCount;
+        return copy;
+    }
+
+    // Getters and Setters
+    public Long getBarId() {
+        return barId;
+    }
+
+    public void setBarId(Long barId) {
+        this.barId = barId;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(String symbol) {
+        this.symbol = symbol;
+    }
+
+    @JsonIgnore
+    public Interval getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Interval interval) {
+        this.interval = interval;
+    }
+
+    @JsonProperty("interval")
+    public String getIntervalCode() {
+        return interval != null ? interval.getCode() : null;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public BigDecimal getOpenPrice() {
+        return openPrice;
+    }
+
+    public void setOpenPrice(BigDecimal openPrice) {
+        this.openPrice = openPrice;
+    }
+
+    public BigDecimal getHighPrice() {
+        return highPrice;
+    }
+
+    public void setHighPrice(BigDecimal highPrice) {
+        this.highPrice = highPrice;
+    }
+
+    public BigDecimal getLowPrice() {
+        return lowPrice;
+    }
+
+    public void setLowPrice(BigDecimal lowPrice) {
+        this.lowPrice = lowPrice;
+    }
+
+    public BigDecimal getClosePrice() {
+        return closePrice;
+    }
+
+    public void setClosePrice(BigDecimal closePrice) {
+        this.closePrice = closePrice;
+    }
+
+    public Long getTickCount() {
+        return tickCount;
+    }
+
+    public void setTickCount(Long tickCount) {
+        this.tickCount = tickCount;
+    }
+
+    @Override
+    public String toString() {
+        return "PriceBar{" +
+                "symbol='" + symbol + '\'' +
+                ", interval=" + getIntervalCode() +
+                ", bucketStart=" + bucketStart +
+                ", open=" + openPrice +
+                ", high=" + highPrice +
+                ", low=" + lowPrice +
+                ", close=" + closePrice +
+                ", tickCount=" + tickCount +
+                '}';
+    }
+}
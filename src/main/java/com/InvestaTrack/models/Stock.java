@@ -18,7 +18,8 @@ import java.time.LocalDateTime;
 public class Stock implements Serializable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_seq")
+    @SequenceGenerator(name = "stock_seq", sequenceName = "stocks_seq", allocationSize = 50)
     @Column(name = "stock_id")
     private Long stockID;
 
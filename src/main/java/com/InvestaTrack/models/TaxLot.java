@@ -0,0 +1,203 @@
+package com.InvestaTrack.models;
+
+import com.fasterxml.jackson.annotation.*;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+
+// The shares bought by one BUY transaction and what they cost, including the buy's fees.
+// Sells consume open lots (oldest first, newest first or one named lot) and realize the gain
+// against the consumed part of the cost. Lots stay behind once closed so a position's lots can
+// be replayed from its history without losing their IDs.
+@Entity
+@Table(name = "tax_lots", indexes = {
+        @Index(name = "idx_tax_lots_open_pair",
+                columnList = "portfolio_id, stock_id, is_open, acquired_date, buy_transaction_id"),
+        @Index(name = "idx_tax_lots_buy_transaction", columnList = "buy_transaction_id", unique = true)
+})
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class TaxLot implements Serializable {
+
+    // How a sell picks the lots it consumes
+    public enum MatchingMethod {
+        FIFO, LIFO, SPECIFIC_ID
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tax_lot_seq")
+    @SequenceGenerator(name = "tax_lot_seq", sequenceName = "tax_lots_seq", allocationSize = 50)
+    @Column(name = "lot_id")
+    private Long lotId;
+
+    @NotNull
+    @Column(name = "portfolio_id", nullable = false)
+    private Long portfolioId;
+
+    @NotNull
+    @Column(name = "stock_id", nullable = false)
+    private Long stockId;
+
+    @NotNull
+    @Column(name = "buy_transaction_id", nullable = false)
+    private Long buyTransactionId;
+
+    @NotNull
+    @Column(name = "acquired_date", nullable = false)
+    private LocalDateTime acquiredDate;
+
+    @Column(nullable = false)
+    private Integer originalQuantity;
+
+    @Column(nullable = false)
+    private Integer remainingQuantity;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal originalCost;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal remainingCost;
+
+    @Column(name = "is_open", nullable = false)
+    private boolean open;
+
+    // Constructors
+    public TaxLot() {}
+
+    public TaxLot(Transaction buy) {
+        this.portfolioId = buy.getPortfolio().getPortfolioID();
+        this.stockId = buy.getStock().getStockID();
+        this.buyTransactionId = buy.getTransactionId();
+        reset(buy);
+    }
+
+    // Put the lot back to the state its buy created (used when replaying a position's lots)
+    public void reset(Transaction buy) {
+        BigDecimal fees = buy.getFees() != null ? buy.getFees() : BigDecimal.ZERO;
+        this.acquiredDate = buy.getTransactionDate();
+        this.originalQuantity = buy.getQuantity();
+        this.remainingQuantity = buy.getQuantity();
+        this.originalCost = buy.getTotalAmount().add(fees);
+        this.remainingCost = this.originalCost;
+        this.open = true;
+    }
+
+    // Remove shares from the lot and return their cost; the last share takes whatever cost is left
+    public BigDecimal consume(int shares) {
+        if (shares > remainingQuantity) {
+            throw new RuntimeException("Lot " + lotId + " has only " + remainingQuantity + " shares");
+        }
+        BigDecimal cost = shares == remainingQuantity
+                ? remainingCost
+                : remainingCost.multiply(BigDecimal.valueOf(shares))
+                        .divide(BigDecimal.valueOf(remainingQuantity), 2, RoundingMode.HALF_UP);
+        remainingQuantity -= shares;
+        remainingCost = remainingCost.subtract(cost);
+        open = remainingQuantity > 0;
+        return cost;
+    }
+
+    // Give back shares a sell took, with the cost consume returned for them
+    public void restore(int shares, BigDecimal cost) {
+        remainingQuantity += shares;
+        remainingCost = remainingCost.add(cost);
+        open = true;
+    }
+
+    // Getters and Setters
+    public Long getLotId() {
+        return lotId;
+    }
+
+    public void setLotId(Long lotId) {
+        this.lotId = lotId;
+    }
+
+    public Long getPortfolioId() {
+        return portfolioId;
+    }
+
+    public void setPortfolioId(Long portfolioId) {
+        this.portfolioId = portfolioId;
+    }
+
+    public Long getStockId() {
+        return stockId;
+    }
+
+    public void setStockId(Long stockId) {
+        this.stockId = stockId;
+    }
+
+    public Long getBuyTransactionId() {
+        return buyTransactionId;
+    }
+
+    public void setBuyTransactionId(Long buyTransactionId) {
+        this.buyTransactionId = buyTransactionId;
+    }
+
+    public LocalDateTime getAcquiredDate() {
+        return acquiredDate;
+    }
+
+    public void setAcquiredDate(LocalDateTime acquiredDate) {
+        this.acquiredDate = acquiredDate;
+    }
+
+    public Integer getOriginalQuantity() {
+        return originalQuantity;
+    }
+
+    public void setOriginalQuantity(Integer originalQuantity) {
+        this.originalQuantity = originalQuantity;
+    }
+
+    public Integer getRemainingQuantity() {
+        return remainingQuantity;
+    }
+
+    public void setRemainingQuantity(Integer remainingQuantity) {
+        this.remainingQuantity = remainingQuantity;
+    }
+
+    public BigDecimal getOriginalCost() {
+        return originalCost;
+    }
+
+    public void setOriginalCost(BigDecimal originalCost) {
+        this.originalCost = originalCost;
+    }
+
+    public BigDecimal getRemainingCost() {
+        return remainingCost;
+    }
+
+    public void setRemainingCost(BigDecimal remainingCost) {
+        this.remainingCost = remainingCost;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public void setOpen(boolean open) {
+        this.open = open;
+    }
+
+    @Override
+    public String toString() {
+        return "TaxLot{" +
+                "lotId=" + lotId +
+                ", portfolioId=" + portfolioId +
+                ", stockId=" + stockId +
+                ", buyTransactionId=" + buyTransactionId +
+                ", acquiredDate=" + acquiredDate +
+                ", remainingQuantity=" + remainingQuantity +
+                ", remainingCost=" + remainingCost +
+                '}';
+    }
+}
@@ -0,0 +1,127 @@
+package com.InvestaTrack.models;
+
+import com.fasterxml.jackson.annotation.*;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+// The shares and cost one SELL took from one tax lot. Lets a position's latest sell be handed back
+// to the lots it consumed when it is deleted, instead of replaying all of the position's lots.
+@Entity
+@Table(name = "tax_lot_matches", indexes = {
+        @Index(name = "idx_tax_lot_matches_sell", columnList = "sell_transaction_id"),
+        @Index(name = "idx_tax_lot_matches_pair", columnList = "portfolio_id, stock_id")
+})
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class TaxLotMatch implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tax_lot_match_seq")
+    @SequenceGenerator(name = "tax_lot_match_seq", sequenceName = "tax_lot_matches_seq", allocationSize = 50)
+    @Column(name = "match_id")
+    private Long matchId;
+
+    @NotNull
+    @Column(name = "portfolio_id", nullable = false)
+    private Long portfolioId;
+
+    @NotNull
+    @Column(name = "stock_id", nullable = false)
+    private Long stockId;
+
+    @NotNull
+    @Column(name = "sell_transaction_id", nullable = false)
+    private Long sellTransactionId;
+
+    @NotNull
+    @Column(name = "lot_id", nullable = false)
+    private Long lotId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal cost;
+
+    // Constructors
+    public TaxLotMatch() {}
+
+    public TaxLotMatch(Transaction sell, TaxLot lot, int quantity, BigDecimal cost) {
+        this.portfolioId = lot.getPortfolioId();
+        this.stockId = lot.getStockId();
+        this.sellTransactionId = sell.getTransactionId();
+        this.lotId = lot.getLotId();
+        this.quantity = quantity;
+        this.cost = cost;
+    }
+
+    // Getters and Setters
+    public Long getMatchId() {
+        return matchId;
+    }
+
+    public void setMatchId(Long matchId) {
+        this.matchId = matchId;
+    }
+
+    public Long getPortfolioId() {
+        return portfolioId;
+    }
+
+    public void setPortfolioId(Long portfolioId) {
+        this.portfolioId = portfolioId;
+    }
+
+    public Long getStockId() {
+        return stockId;
+    }
+
+    public void setStockId(Long stockId) {
+        this.stockId = stockId;
+    }
+
+    public Long getSellTransactionId() {
+        return sellTransactionId;
+    }
+
+    public void setSellTransactionId(Long sellTransactionId) {
+        this.sellTransactionId = sellTransactionId;
+    }
+
+    public Long getLotId() {
+        return lotId;
+    }
+
+    public void setLotId(Long lotId) {
+        this.lotId = lotId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public BigDecimal getCost() {
+        return cost;
+    }
+
+    public void setCost(BigDecimal cost) {
+        this.cost = cost;
+    }
+
+    @Override
+    public String toString() {
+        return "TaxLotMatch{" +
+                "matchId=" + matchId +
+                ", sellTransactionId=" + sellTransactionId +
+                ", lotId=" + lotId +
+                ", quantity=" + quantity +
+                ", cost=" + cost +
+                '}';
+    }
+}
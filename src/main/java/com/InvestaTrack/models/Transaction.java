@@ -1,7 +1,6 @@
 package com.InvestaTrack.models;
 
 import com.fasterxml.jackson.annotation.*;
-import org.hibernate.annotations.CreationTimestamp;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
@@ -12,7 +11,12 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_portfolio_date",
+                columnList = "portfolio_id, transaction_date, transaction_id"),
+        @Index(name = "idx_transactions_portfolio_stock_date",
+                columnList = "portfolio_id, stock_id, transaction_date, transaction_id")
+})
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "transactionId")
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Transaction implements Serializable {
@@ -22,7 +26,8 @@ public class Transaction implements Serializable {
     }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_seq")
+    @SequenceGenerator(name = "transaction_seq", sequenceName = "transactions_seq", allocationSize = 50)
     @Column(name = "transaction_id")
     private Long transactionId;
 
@@ -56,8 +61,8 @@ public class Transaction implements Serializable {
     @Column(nullable = false, precision = 15, scale = 2)
     private BigDecimal totalAmount;
 
+    // Trade time; set by the service (now by default) so imported trades keep their real dates
     @NotNull
-    @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime transactionDate;
 
@@ -65,6 +70,21 @@ public class Transaction implements Serializable {
     @Column(precision = 8, scale = 2)
     private BigDecimal fees = BigDecimal.ZERO;
 
+    // How a SELL picked its tax lots, and the lot it named for SPECIFIC_ID; null for buys.
+    // Set from trade requests only, never from a Transaction body
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private TaxLot.MatchingMethod lotMethod;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long lotId;
+
+    // Proceeds after fees minus the cost of the lots a SELL consumed; null for buys
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(precision = 15, scale = 2)
+    private BigDecimal realizedGain;
+
     // Constructors
     public Transaction() {}
 
@@ -151,6 +171,30 @@ public class Transaction implements Serializable {
         this.fees = fees;
     }
 
+    public TaxLot.MatchingMethod getLotMethod() {
+        return lotMethod;
+    }
+
+    public void setLotMethod(TaxLot.MatchingMethod lotMethod) {
+        this.lotMethod = lotMethod;
+    }
+
+    public Long getLotId() {
+        return lotId;
+    }
+
+    public void setLotId(Long lotId) {
+        this.lotId = lotId;
+    }
+
+    public BigDecimal getRealizedGain() {
+        return realizedGain;
+    }
+
+    public void setRealizedGain(BigDecimal realizedGain) {
+        this.realizedGain = realizedGain;
+    }
+
     // Utility method to calculate net amount (useful for portfolio calculations)
     @JsonProperty("netAmount")
     public BigDecimal getNetAmount() {
@@ -180,6 +224,7 @@ public class Transaction implements Serializable {
                 ", pricePerShare=" + pricePerShare +
                 ", totalAmount=" + totalAmount +
                 ", fees=" + fees +
+                ", realizedGain=" + realizedGain +
                 ", transactionDate=" + transactionDate +
                 '}';
     }
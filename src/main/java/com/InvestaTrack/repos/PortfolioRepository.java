@@ -6,6 +6,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,4 +34,18 @@ public interface PortfolioRepository extends JpaRepository<Portfolio, Long> {
     // Find portfolios by user ID with user data loaded
     @Query("SELECT p FROM Portfolio p JOIN FETCH p.user WHERE p.user.id = :userId ORDER BY p.portfolioID")
     List<Portfolio> findByUserIdWithUser(@Param("userId") Long userId);
-}
\ No newline at end of file
+
+    // Add deltas to a portfolio's totals in place and bump its version, returning the new
+    // [totalValue, totalCost] from the same statement (H2 data change delta table, like UPDATE ... RETURNING);
+    // empty if the portfolio does not exist
+    @Query(value = "SELECT total_value, total_cost FROM FINAL TABLE (UPDATE portfolios " +
+            "SET total_value = total_value + :valueDelta, total_cost = total_cost + :costDelta, " +
+            "updated_at = :updatedAt, version = version + 1 WHERE portfolio_id = :portfolioId)", nativeQuery = true)
+    List<Object[]> addToTotals(@Param("portfolioId") Long portfolioId,
+                               @Param("valueDelta") BigDecimal valueDelta,
+                               @Param("costDelta") BigDecimal costDelta,
+                               @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Query("SELECT p.portfolioID FROM Portfolio p ORDER BY p.portfolioID")
+    List<Long> findAllIds();
+}
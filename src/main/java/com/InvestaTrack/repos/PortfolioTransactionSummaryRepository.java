@@ -0,0 +1,58 @@
+package com.InvestaTrack.repos;
+
+import com.InvestaTrack.models.PortfolioTransactionSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PortfolioTransactionSummaryRepository extends JpaRepository<PortfolioTransactionSummary, Long> {
+
+    // Add deltas to a portfolio's summary row in the database; returns 0 when the row does not exist yet
+    @Modifying
+    @Query("UPDATE PortfolioTransactionSummary s SET s.buyCount = s.buyCount + :buyCount, " +
+            "s.sellCount = s.sellCount + :sellCount, s.totalBuyAmount = s.totalBuyAmount + :buyAmount, " +
+            "s.totalSellAmount = s.totalSellAmount + :sellAmount, s.totalFees = s.totalFees + :fees, " +
+            "s.totalRealizedGain = s.totalRealizedGain + :realizedGain, s.updatedAt = :updatedAt " +
+            "WHERE s.portfolioId = :portfolioId")
+    int addToTotals(@Param("portfolioId") Long portfolioId,
+                    @Param("buyCount") long buyCount,
+                    @Param("sellCount") long sellCount,
+                    @Param("buyAmount") BigDecimal buyAmount,
+                    @Param("sellAmount") BigDecimal sellAmount,
+                    @Param("fees") BigDecimal fees,
+                    @Param("realizedGain") BigDecimal realizedGain,
+                    @Param("updatedAt") LocalDateTime updatedAt);
+
+    // Start a portfolio's summary row. A plain INSERT, so a row created concurrently makes it fail
+    // instead of being overwritten the way save() would merge over it
+    @Modifying
+    @Query("INSERT INTO PortfolioTransactionSummary (portfolioId, buyCount, sellCount, totalBuyAmount, " +
+            "totalSellAmount, totalFees, totalRealizedGain, updatedAt) VALUES (:portfolioId, :buyCount, " +
+            ":sellCount, :buyAmount, :sellAmount, :fees, :realizedGain, :updatedAt)")
+    int insertTotals(@Param("portfolioId") Long portfolioId,
+                     @Param("buyCount") long buyCount,
+                     @Param("sellCount") long sellCount,
+                     @Param("buyAmount") BigDecimal buyAmount,
+                     @Param("sellAmount") BigDecimal sellAmount,
+                     @Param("fees") BigDecimal fees,
+                     @Param("realizedGain") BigDecimal realizedGain,
+                     @Param("updatedAt") LocalDateTime updatedAt);
+
+    // Load a summary row and lock it; addToTotals on the same row waits until the locking transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM PortfolioTransactionSummary s WHERE s.portfolioId = :portfolioId")
+    Optional<PortfolioTransactionSummary> findByIdForUpdate(@Param("portfolioId") Long portfolioId);
+
+    @Query("SELECT s.portfolioId FROM PortfolioTransactionSummary s")
+    List<Long> findPortfolioIds();
+}
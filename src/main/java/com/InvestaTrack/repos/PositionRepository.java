@@ -1,11 +1,14 @@
 package com.InvestaTrack.repos;
 
 import com.InvestaTrack.models.Position;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +21,17 @@ public interface PositionRepository extends JpaRepository<Position, Long> {
     // Find position by portfolio ID and stock ID
     Optional<Position> findByPortfolioPortfolioIDAndStockStockID(Long portfolioId, Long stockId);
 
+    // Find a position and hold a row lock on it until the transaction ends (SELECT ... FOR UPDATE).
+    // Trades use version checks instead; this is the pessimistic baseline they are measured against.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Position p WHERE p.portfolio.portfolioID = :portfolioId AND p.stock.stockID = :stockId")
+    Optional<Position> findForUpdate(@Param("portfolioId") Long portfolioId, @Param("stockId") Long stockId);
+
+    // Find positions for any of the given portfolios in any of the given stocks
+    @Query("SELECT p FROM Position p WHERE p.portfolio.portfolioID IN :portfolioIds AND p.stock.stockID IN :stockIds")
+    List<Position> findByPortfolioIdsAndStockIds(@Param("portfolioIds") Collection<Long> portfolioIds,
+                                                 @Param("stockIds") Collection<Long> stockIds);
+
     // Find active positions (quantity > 0) for a portfolio
     @Query("SELECT p FROM Position p WHERE p.portfolio.portfolioID = :portfolioId " +
             "AND p.quantity > 0 ORDER BY p.currentValue DESC")
@@ -32,6 +46,15 @@ public interface PositionRepository extends JpaRepository<Position, Long> {
     @Query("SELECT COUNT(p) FROM Position p WHERE p.portfolio.portfolioID = :portfolioId AND p.quantity > 0")
     Long countActivePositions(@Param("portfolioId") Long portfolioId);
 
+    // Sum of value and cost over a portfolio's active positions, computed in the database
+    @Query("SELECT COALESCE(SUM(p.currentValue), 0), COALESCE(SUM(p.totalCost), 0) FROM Position p " +
+            "WHERE p.portfolio.portfolioID = :portfolioId AND p.quantity > 0")
+    List<Object[]> sumActiveTotals(@Param("portfolioId") Long portfolioId);
+
+    // Stock, portfolio and position IDs of every active position (used to build the holdings index)
+    @Query("SELECT p.stock.stockID, p.portfolio.portfolioID, p.positionId FROM Position p WHERE p.quantity > 0")
+    List<Object[]> findActiveHoldings();
+
     // Find top positions by value for a portfolio
     @Query("SELECT p FROM Position p JOIN FETCH p.stock WHERE p.portfolio.portfolioID = :portfolioId " +
             "AND p.quantity > 0 ORDER BY p.currentValue DESC")
@@ -0,0 +1,36 @@
+package com.InvestaTrack.repos;
+
+import com.InvestaTrack.models.PositionSnapshot;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PositionSnapshotRepository extends JpaRepository<PositionSnapshot, Long> {
+
+    // Newest snapshots for a portfolio/stock pair first; pass PageRequest.of(0, 1) for the latest
+    @Query("SELECT s FROM PositionSnapshot s WHERE s.portfolioId = :portfolioId AND s.stockId = :stockId " +
+            "ORDER BY s.lastTransactionDate DESC, s.lastTransactionId DESC")
+    List<PositionSnapshot> findLatest(@Param("portfolioId") Long portfolioId,
+                                      @Param("stockId") Long stockId,
+                                      Pageable pageable);
+
+    // Drop snapshots at or after a (date, id) replay key; a trade added or removed there made them stale
+    @Modifying
+    @Query("DELETE FROM PositionSnapshot s WHERE s.portfolioId = :portfolioId AND s.stockId = :stockId " +
+            "AND (s.lastTransactionDate > :fromDate OR (s.lastTransactionDate = :fromDate AND s.lastTransactionId >= :fromId))")
+    int deleteFrom(@Param("portfolioId") Long portfolioId,
+                   @Param("stockId") Long stockId,
+                   @Param("fromDate") LocalDateTime fromDate,
+                   @Param("fromId") Long fromId);
+
+    @Modifying
+    @Query("DELETE FROM PositionSnapshot s WHERE s.portfolioId = :portfolioId AND s.stockId = :stockId")
+    int deleteByPair(@Param("portfolioId") Long portfolioId, @Param("stockId") Long stockId);
+}
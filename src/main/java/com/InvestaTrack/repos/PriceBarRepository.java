@@ -0,0 +1,23 @@
+package com.InvestaTrack.repos;
+
+import com.InvestaTrack.models.PriceBar;
+import com.InvestaTrack.models.PriceBar.Interval;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PriceBarRepository extends JpaRepository<PriceBar, Long> {
+
+    // Find stored bars for a symbol and interval within a bucket range
+    @Query("SELECT b FROM PriceBar b WHERE b.symbol = :symbol AND b.interval = :interval " +
+            "AND b.bucketStart BETWEEN :from AND :to ORDER BY b.bucketStart")
+    List<PriceBar> findBars(@Param("symbol") String symbol,
+                            @Param("interval") Interval interval,
+                            @Param("from") LocalDateTime from,
+                            @Param("to") LocalDateTime to);
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,4 +34,8 @@ public interface StockRepository extends JpaRepository<Stock, Long> {
 
     // Find stocks by multiple symbols
     List<Stock> findBySymbolIn(List<String> symbols);
+
+    // Resolve symbols to stock IDs without loading full entities
+    @Query("SELECT s.symbol, s.stockID FROM Stock s WHERE s.symbol IN :symbols")
+    List<Object[]> findIdsBySymbolIn(@Param("symbols") Collection<String> symbols);
 }
\ No newline at end of file
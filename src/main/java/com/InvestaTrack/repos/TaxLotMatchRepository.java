@@ -0,0 +1,25 @@
+package com.InvestaTrack.repos;
+
+import com.InvestaTrack.models.TaxLotMatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TaxLotMatchRepository extends JpaRepository<TaxLotMatch, Long> {
+
+    // The lots one sell consumed
+    List<TaxLotMatch> findBySellTransactionId(Long sellTransactionId);
+
+    @Modifying
+    @Query("DELETE FROM TaxLotMatch m WHERE m.portfolioId = :portfolioId AND m.stockId = :stockId")
+    int deleteByPair(@Param("portfolioId") Long portfolioId, @Param("stockId") Long stockId);
+
+    @Modifying
+    @Query("DELETE FROM TaxLotMatch m WHERE m.portfolioId = :portfolioId")
+    int deleteByPortfolio(@Param("portfolioId") Long portfolioId);
+}
@@ -0,0 +1,57 @@
+package com.InvestaTrack.repos;
+
+import com.InvestaTrack.models.TaxLot;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TaxLotRepository extends JpaRepository<TaxLot, Long> {
+
+    // Open lots of a portfolio/stock pair after an (acquiredDate, buyTransactionId) key, oldest first.
+    // No flush: lots consumed but not yet written come back as the same managed (closed) instances.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+    @Query("SELECT l FROM TaxLot l WHERE l.portfolioId = :portfolioId AND l.stockId = :stockId AND l.open = true " +
+            "AND (l.acquiredDate > :afterDate OR (l.acquiredDate = :afterDate AND l.buyTransactionId > :afterId)) " +
+            "ORDER BY l.acquiredDate ASC, l.buyTransactionId ASC")
+    List<TaxLot> findOpenOldestFirst(@Param("portfolioId") Long portfolioId,
+                                     @Param("stockId") Long stockId,
+                                     @Param("afterDate") LocalDateTime afterDate,
+                                     @Param("afterId") Long afterId,
+                                     Pageable pageable);
+
+    // Open lots of a portfolio/stock pair before an (acquiredDate, buyTransactionId) key, newest first
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+    @Query("SELECT l FROM TaxLot l WHERE l.portfolioId = :portfolioId AND l.stockId = :stockId AND l.open = true " +
+            "AND (l.acquiredDate < :beforeDate OR (l.acquiredDate = :beforeDate AND l.buyTransactionId < :beforeId)) " +
+            "ORDER BY l.acquiredDate DESC, l.buyTransactionId DESC")
+    List<TaxLot> findOpenNewestFirst(@Param("portfolioId") Long portfolioId,
+                                     @Param("stockId") Long stockId,
+                                     @Param("beforeDate") LocalDateTime beforeDate,
+                                     @Param("beforeId") Long beforeId,
+                                     Pageable pageable);
+
+    // Open lots of a portfolio, by stock and then oldest first
+    @Query("SELECT l FROM TaxLot l WHERE l.portfolioId = :portfolioId AND l.open = true " +
+            "ORDER BY l.stockId, l.acquiredDate, l.buyTransactionId")
+    List<TaxLot> findOpenByPortfolio(@Param("portfolioId") Long portfolioId);
+
+    Optional<TaxLot> findByBuyTransactionId(Long buyTransactionId);
+
+    // Every lot of a portfolio/stock pair, open or closed (for replays)
+    List<TaxLot> findByPortfolioIdAndStockId(Long portfolioId, Long stockId);
+
+    @Modifying
+    @Query("DELETE FROM TaxLot l WHERE l.portfolioId = :portfolioId")
+    int deleteByPortfolio(@Param("portfolioId") Long portfolioId);
+}
@@ -2,13 +2,21 @@ package com.InvestaTrack.repos;
 
 import com.InvestaTrack.models.Transaction;
 import com.InvestaTrack.models.Transaction.TransactionType;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
@@ -19,27 +27,94 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     // Find transactions by portfolio ID ordered by date
     List<Transaction> findByPortfolioPortfolioIDOrderByTransactionDateDesc(Long portfolioId);
 
-    // Find transactions by portfolio ID and transaction type
-    List<Transaction> findByPortfolioPortfolioIDAndTransactionType(Long portfolioId, TransactionType transactionType);
-
     // Find transactions by portfolio and stock
     List<Transaction> findByPortfolioPortfolioIDAndStockStockID(Long portfolioId, Long stockId);
 
-    // Find transactions within date range
-    @Query("SELECT t FROM Transaction t WHERE t.portfolio.portfolioID = :portfolioId " +
-            "AND t.transactionDate BETWEEN :startDate AND :endDate " +
-            "ORDER BY t.transactionDate DESC")
-    List<Transaction> findByPortfolioAndDateRange(@Param("portfolioId") Long portfolioId,
-                                                  @Param("startDate") LocalDateTime startDate,
-                                                  @Param("endDate") LocalDateTime endDate);
+    // One page of a portfolio's history, newest first: trades from fromDate up to (not including)
+    // the (beforeDate, beforeId) key. The page size comes from the Pageable; its page number stays 0.
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.stock WHERE t.portfolio.portfolioID = :portfolioId " +
+            "AND t.transactionDate >= :fromDate " +
+            "AND (t.transactionDate < :beforeDate OR (t.transactionDate = :beforeDate AND t.transactionId < :beforeId)) " +
+            "ORDER BY t.transactionDate DESC, t.transactionId DESC")
+    List<Transaction> findPage(@Param("portfolioId") Long portfolioId,
+                               @Param("fromDate") LocalDateTime fromDate,
+                               @Param("beforeDate") LocalDateTime beforeDate,
+                               @Param("beforeId") Long beforeId,
+                               Pageable pageable);
 
-    // Get recent transactions for a portfolio
+    // Same, for one transaction type
     @Query("SELECT t FROM Transaction t JOIN FETCH t.stock WHERE t.portfolio.portfolioID = :portfolioId " +
-            "ORDER BY t.transactionDate DESC")
-    List<Transaction> findRecentTransactions(@Param("portfolioId") Long portfolioId);
-
-    // Count transactions by type for a portfolio
-    @Query("SELECT COUNT(t) FROM Transaction t WHERE t.portfolio.portfolioID = :portfolioId " +
-            "AND t.transactionType = :type")
-    Long countByPortfolioAndType(@Param("portfolioId") Long portfolioId, @Param("type") TransactionType type);
-}
\ No newline at end of file
+            "AND t.transactionType = :type AND t.transactionDate >= :fromDate " +
+            "AND (t.transactionDate < :beforeDate OR (t.transactionDate = :beforeDate AND t.transactionId < :beforeId)) " +
+            "ORDER BY t.transactionDate DESC, t.transactionId DESC")
+    List<Transaction> findPageByType(@Param("portfolioId") Long portfolioId,
+                                     @Param("type") TransactionType type,
+                                     @Param("fromDate") LocalDateTime fromDate,
+                                     @Param("beforeDate") LocalDateTime beforeDate,
+                                     @Param("beforeId") Long beforeId,
+                                     Pageable pageable);
+
+    // Count, amount, fees and realized gain per type for one portfolio;
+    // each row is [type, count, totalAmount, fees, realizedGain]
+    @Query("SELECT t.transactionType, COUNT(t), COALESCE(SUM(t.totalAmount), 0), " +
+            "COALESCE(SUM(t.fees), 0), COALESCE(SUM(t.realizedGain), 0) FROM Transaction t " +
+            "WHERE t.portfolio.portfolioID = :portfolioId GROUP BY t.transactionType")
+    List<Object[]> sumTotalsByType(@Param("portfolioId") Long portfolioId);
+
+    // Portfolios that have at least one transaction
+    @Query("SELECT DISTINCT t.portfolio.portfolioID FROM Transaction t")
+    List<Long> findPortfolioIds();
+
+    // Load a transaction with its portfolio and stock and lock its row until the database transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.portfolio JOIN FETCH t.stock WHERE t.transactionId = :id")
+    Optional<Transaction> findByIdForUpdate(@Param("id") Long id);
+
+    // Whether a portfolio/stock pair has a transaction dated after the given time
+    boolean existsByPortfolioPortfolioIDAndStockStockIDAndTransactionDateAfter(Long portfolioId, Long stockId,
+                                                                              LocalDateTime transactionDate);
+
+    // Transactions of a portfolio/stock pair in replay order
+    @Query("SELECT t FROM Transaction t WHERE t.portfolio.portfolioID = :portfolioId AND t.stock.stockID = :stockId " +
+            "ORDER BY t.transactionDate, t.transactionId")
+    List<Transaction> findForReplay(@Param("portfolioId") Long portfolioId, @Param("stockId") Long stockId);
+
+    // Transactions of a portfolio/stock pair after a given (date, id) key, in replay order
+    @Query("SELECT t FROM Transaction t WHERE t.portfolio.portfolioID = :portfolioId AND t.stock.stockID = :stockId " +
+            "AND (t.transactionDate > :afterDate OR (t.transactionDate = :afterDate AND t.transactionId > :afterId)) " +
+            "ORDER BY t.transactionDate, t.transactionId")
+    List<Transaction> findForReplayAfter(@Param("portfolioId") Long portfolioId,
+                                         @Param("stockId") Long stockId,
+                                         @Param("afterDate") LocalDateTime afterDate,
+                                         @Param("afterId") Long afterId);
+
+    // Whether a portfolio/stock pair has a transaction after a given (date, id) key
+    @Query("SELECT CASE WHEN COUNT(t) > 0 THEN true ELSE false END FROM Transaction t " +
+            "WHERE t.portfolio.portfolioID = :portfolioId AND t.stock.stockID = :stockId " +
+            "AND (t.transactionDate > :afterDate OR (t.transactionDate = :afterDate AND t.transactionId > :afterId))")
+    boolean existsAfter(@Param("portfolioId") Long portfolioId,
+                        @Param("stockId") Long stockId,
+                        @Param("afterDate") LocalDateTime afterDate,
+                        @Param("afterId") Long afterId);
+
+    // Forward-only stream of every transaction for exports; the caller must hold a transaction and close the stream
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.portfolio JOIN FETCH t.stock ORDER BY t.transactionId")
+    Stream<Transaction> streamAllForExport();
+
+    // Same, for one portfolio
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.portfolio JOIN FETCH t.stock " +
+            "WHERE t.portfolio.portfolioID = :portfolioId ORDER BY t.transactionId")
+    Stream<Transaction> streamByPortfolioForExport(@Param("portfolioId") Long portfolioId);
+
+    // Portfolio that owns a transaction, without loading the transaction
+    @Query("SELECT t.portfolio.portfolioID FROM Transaction t WHERE t.transactionId = :transactionId")
+    Optional<Long> findPortfolioIdByTransactionId(@Param("transactionId") Long transactionId);
+}
@@ -0,0 +1,26 @@
+package com.InvestaTrack.services;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Defers a change to shared in-memory state until the surrounding transaction commits, so
+// a rollback never leaves the caches ahead of the database. Outside a transaction the change
+// is applied straight away. Deferred changes run in the order they were registered.
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    static void run(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+}
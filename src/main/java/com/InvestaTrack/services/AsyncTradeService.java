@@ -0,0 +1,261 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.dto.TradeRequestDTO;
+import com.InvestaTrack.dto.TradeResultDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Asynchronous trade intake.
+// A submitted trade is validated and put on a bounded queue; the caller gets a ticket, which
+// records the acceptance time, straight away and polls it for the outcome. The trade keeps only
+// the client's own transactionDate, so undated trades are not treated as back-dated. Each
+// portfolio always maps to the same worker queue, so its trades apply in submission order. A
+// worker takes whatever has queued up (up to batch-size trades) and applies it as one
+// BatchTradeService batch on the portfolios' sequencer lanes. When the queue is full the trade
+// is refused.
+@Service
+public class AsyncTradeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncTradeService.class);
+
+    private final BatchTradeService batchTradeService;
+    private final TradeSequencer tradeSequencer;
+    private final int batchSize;
+    private final int maxRetainedTickets;
+    private final List<BlockingQueue<Ticket>> queues = new ArrayList<>();
+    private final ExecutorService workers;
+
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final Queue<Ticket> ticketOrder = new ConcurrentLinkedQueue<>();
+
+    private final Counter rejectedCounter;
+    private final Counter appliedCounter;
+    private final Counter failedCounter;
+    private final Timer applyLatency;
+
+    public AsyncTradeService(BatchTradeService batchTradeService,
+                             TradeSequencer tradeSequencer,
+                             MeterRegistry meterRegistry,
+                             @Value("${investatrack.trades.async.queue-capacity:10000}") int queueCapacity,
+                             @Value("${investatrack.trades.async.workers:4}") int workerCount,
+                             @Value("${investatrack.trades.async.batch-size:200}") int batchSize,
+                             @Value("${investatrack.trades.async.max-retained-tickets:100000}") int maxRetainedTickets) {
+        if (workerCount < 1 || queueCapacity < workerCount) {
+            throw new IllegalArgumentException("investatrack.trades.async needs at least 1 worker and 1 queue slot per worker");
+        }
+        this.batchTradeService = batchTradeService;
+        this.tradeSequencer = tradeSequencer;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxRetainedTickets = maxRetainedTickets;
+        for (int i = 0; i < workerCount; i++) {
+            queues.add(new ArrayBlockingQueue<>(queueCapacity / workerCount));
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread thread = new Thread(r, "async-trade-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (BlockingQueue<Ticket> queue : queues) {
+            workers.execute(() -> drain(queue));
+        }
+
+        Gauge.builder("investatrack.trades.async.queue.depth", this, AsyncTradeService::getQueueDepth)
+                .description("Trades accepted but not yet applied")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("investatrack.trades.async.rejected")
+                .description("Trades refused because the queue was full")
+                .register(meterRegistry);
+        this.appliedCounter = Counter.builder("investatrack.trades.async.completed")
+                .tag("outcome", "applied")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("investatrack.trades.async.completed")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        this.applyLatency = Timer.builder("investatrack.trades.async.latency")
+                .description("Time from acceptance to the trade being applied or rejected")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    // Validate and enqueue a trade; returns its ticket status
+    public Map<String, Object> submit(TradeRequestDTO trade) {
+        String error = batchTradeService.validate(trade);
+        if (error != null) {
+            throw new RuntimeException(error);
+        }
+
+        Ticket ticket = new Ticket(UUID.randomUUID().toString(), trade);
+        tickets.put(ticket.id, ticket);
+        if (!queues.get(Math.floorMod(trade.getPortfolioId().hashCode(), queues.size())).offer(ticket)) {
+            tickets.remove(ticket.id);
+            rejectedCounter.increment();
+            throw new QueueFullException("Trade queue is full, retry later");
+        }
+        ticketOrder.add(ticket);
+        evictOldTickets();
+        return ticket.status();
+    }
+
+    public Map<String, Object> getStatus(String ticketId) {
+        Ticket ticket = tickets.get(ticketId);
+        if (ticket == null) {
+            throw new RuntimeException("Trade ticket not found with id: " + ticketId);
+        }
+        return ticket.status();
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        for (BlockingQueue<Ticket> queue : queues) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    // Worker loop: block for one trade, then take whatever else is already waiting
+    private void drain(BlockingQueue<Ticket> queue) {
+        List<Ticket> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            apply(batch);
+            batch.clear();
+        }
+    }
+
+    private void apply(List<Ticket> batch) {
+        List<TradeRequestDTO> trades = new ArrayList<>(batch.size());
+        Set<Long> portfolioIds = new HashSet<>();
+        for (Ticket ticket : batch) {
+            ticket.status = "APPLYING";
+            trades.add(ticket.trade);
+            portfolioIds.add(ticket.trade.getPortfolioId());
+        }
+        try {
+            List<TradeResultDTO> results = tradeSequencer.executeAll(portfolioIds, () -> batchTradeService.applyTrades(trades));
+            for (TradeResultDTO result : results) {
+                Ticket ticket = batch.get(result.getIndex());
+                if (result.isApplied()) {
+                    complete(ticket, "APPLIED", result.getTransactionId(), null);
+                } else {
+                    complete(ticket, "REJECTED", null, result.getError());
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Async trade batch of {} failed: {}", batch.size(), e.getMessage());
+            for (Ticket ticket : batch) {
+                complete(ticket, "FAILED", null, e.getMessage());
+            }
+        }
+    }
+
+    private void complete(Ticket ticket, String status, Long transactionId, String error) {
+        ticket.transactionId = transactionId;
+        ticket.error = error;
+        ticket.completedAt = LocalDateTime.now();
+        ticket.latencyNanos = System.nanoTime() - ticket.acceptedAtNanos;
+        ticket.status = status;
+        applyLatency.record(ticket.latencyNanos, TimeUnit.NANOSECONDS);
+        if (transactionId != null) {
+            appliedCounter.increment();
+        } else {
+            failedCounter.increment();
+        }
+    }
+
+    // Forget the oldest tickets once more than max-retained-tickets are held
+    private void evictOldTickets() {
+        while (tickets.size() > maxRetainedTickets) {
+            Ticket oldest = ticketOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            tickets.remove(oldest.id);
+        }
+    }
+
+    // Thrown when the trade queue has no room; callers should back off and resubmit
+    public static class QueueFullException extends RuntimeException {
+        public QueueFullException(String message) {
+            super(message);
+        }
+    }
+
+    // One accepted trade and its outcome, updated by the worker and read by the status endpoint
+    private static final class Ticket {
+        private final String id;
+        private final TradeRequestDTO trade;
+        private final LocalDateTime acceptedAt = LocalDateTime.now();
+        private final long acceptedAtNanos = System.nanoTime();
+
+        private volatile String status = "QUEUED";
+        private volatile Long transactionId;
+        private volatile String error;
+        private volatile LocalDateTime completedAt;
+        private volatile long latencyNanos;
+
+        private Ticket(String id, TradeRequestDTO trade) {
+            this.id = id;
+            this.trade = trade;
+        }
+
+        Map<String, Object> status() {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("ticketId", id);
+            status.put("status", this.status);
+            status.put("portfolioId", trade.getPortfolioId());
+            status.put("stockId", trade.getStockId());
+            status.put("symbol", trade.getSymbol());
+            status.put("transactionType", trade.getTransactionType().toUpperCase());
+            status.put("quantity", trade.getQuantity());
+            status.put("pricePerShare", trade.getPricePerShare());
+            status.put("acceptedAt", acceptedAt);
+            status.put("completedAt", completedAt);
+            status.put("transactionId", transactionId);
+            if (completedAt != null) {
+                status.put("latencyMs", Math.round(latencyNanos / 1e5) / 10.0);
+            }
+            if (error != null) {
+                status.put("error", error);
+            }
+            return status;
+        }
+    }
+}
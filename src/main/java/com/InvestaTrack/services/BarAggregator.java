@@ -0,0 +1,269 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.events.StockPriceChangedEvent;
+import com.InvestaTrack.models.PriceBar;
+import com.InvestaTrack.models.PriceBar.Interval;
+import com.InvestaTrack.repos.PriceBarRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Streams raw price updates into 1-minute, 1-hour and 1-day OHLC bars per symbol.
+// Open bars live in memory; once a bar's bucket is over it is queued and flushed
+// to the price_bars table in batches, so history queries read bars instead of ticks.
+// Ticks for a bucket that is already closed are collected apart and merged into the
+// stored bar on the next flush, so a bucket never gets a second row.
+@Component
+public class BarAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BarAggregator.class);
+    private static final Interval[] INTERVALS = Interval.values();
+
+    private final PriceBarRepository priceBarRepository;
+    private final int flushBatchSize;
+
+    // symbol -> open bar per interval (indexed by ordinal)
+    private final Map<String, PriceBar[]> openBars = new ConcurrentHashMap<>();
+    // closed bars waiting to be persisted, keyed by symbol/interval/bucket
+    private final Map<String, PriceBar> pendingBars = new ConcurrentHashMap<>();
+    // ticks for already closed buckets, keyed like pendingBars and drained on flush
+    private final Map<String, PriceBar> lateBars = new ConcurrentHashMap<>();
+
+    public BarAggregator(PriceBarRepository priceBarRepository,
+                         @Value("${investatrack.bars.flush-batch-size:500}") int flushBatchSize) {
+        this.priceBarRepository = priceBarRepository;
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    // Only committed prices are recorded
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockPriceChanged(StockPriceChangedEvent event) {
+        addTick(event.getSymbol(), event.getTimestamp(), event.getPrice());
+    }
+
+    // Fold a tick into the open bars for its symbol
+    public void addTick(String symbol, LocalDateTime timestamp, BigDecimal price) {
+        if (symbol == null || timestamp == null || price == null) {
+            return;
+        }
+        String upperSymbol = symbol.toUpperCase();
+        PriceBar[] bars = openBars.computeIfAbsent(upperSymbol, s -> new PriceBar[INTERVALS.length]);
+        LocalDateTime now = null;
+        synchronized (bars) {
+            for (Interval interval : INTERVALS) {
+                int slot = interval.ordinal();
+                LocalDateTime bucketStart = interval.bucketStart(timestamp);
+                PriceBar open = bars[slot];
+                if (open == null) {
+                    if (now == null) {
+                        now = LocalDateTime.now();
+                    }
+                    if (interval.nextBucket(bucketStart).isAfter(now)) {
+                        bars[slot] = new PriceBar(upperSymbol, interval, bucketStart, price);
+                    } else {
+                        addLateTick(upperSymbol, interval, bucketStart, price);
+                    }
+                } else if (bucketStart.isAfter(open.getBucketStart())) {
+                    closeBar(open);
+                    bars[slot] = new PriceBar(upperSymbol, interval, bucketStart, price);
+                } else if (bucketStart.isBefore(open.getBucketStart())) {
+                    addLateTick(upperSymbol, interval, bucketStart, price);
+                } else {
+                    open.addTick(price);
+                }
+            }
+        }
+    }
+
+    // Close bars whose bucket has ended and persist everything that is pending
+    @Scheduled(fixedDelayString = "${investatrack.bars.flush-interval-ms:5000}")
+    public void flush() {
+        closeExpiredBars(LocalDateTime.now());
+        flushPending();
+    }
+
+    @PreDestroy
+    public void flushPending() {
+        List<PriceBar> batch = new ArrayList<>(flushBatchSize);
+        for (PriceBar bar : pendingBars.values()) {
+            batch.add(bar);
+            if (batch.size() == flushBatchSize) {
+                persist(batch);
+            }
+        }
+        if (!batch.isEmpty()) {
+            persist(batch);
+        }
+        flushLate();
+    }
+
+    // Bars for a symbol in [from, to], combining stored, pending and open bars
+    public List<PriceBar> getBars(String symbol, Interval interval, LocalDateTime from, LocalDateTime to) {
+        String upperSymbol = symbol.toUpperCase();
+        TreeMap<LocalDateTime, PriceBar> bars = new TreeMap<>();
+
+        for (PriceBar bar : priceBarRepository.findBars(upperSymbol, interval, from, to)) {
+            bars.put(bar.getBucketStart(), bar);
+        }
+        for (PriceBar bar : pendingBars.values()) {
+            if (bar.getSymbol().equals(upperSymbol) && bar.getInterval() == interval && inRange(bar, from, to)) {
+                bars.put(bar.getBucketStart(), bar);
+            }
+        }
+        PriceBar[] open = openBars.get(upperSymbol);
+        if (open != null) {
+            synchronized (open) {
+                PriceBar bar = open[interval.ordinal()];
+                if (bar != null && inRange(bar, from, to)) {
+                    bars.put(bar.getBucketStart(), bar.copy());
+                }
+            }
+        }
+        return new ArrayList<>(bars.values());
+    }
+
+    // Delete every stored bar and forget the open, pending and late ones once the caller commits
+    public void clear() {
+        priceBarRepository.deleteAllInBatch();
+        AfterCommit.run(() -> {
+            openBars.clear();
+            pendingBars.clear();
+            lateBars.clear();
+        });
+    }
+
+    public int getPendingCount() {
+        return pendingBars.size() + lateBars.size();
+    }
+
+    private void closeExpiredBars(LocalDateTime now) {
+        for (PriceBar[] bars : openBars.values()) {
+            synchronized (bars) {
+                for (int slot = 0; slot < bars.length; slot++) {
+                    PriceBar bar = bars[slot];
+                    if (bar != null && !bar.getInterval().nextBucket(bar.getBucketStart()).isAfter(now)) {
+                        closeBar(bar);
+                        bars[slot] = null;
+                    }
+                }
+            }
+        }
+    }
+
+    private void closeBar(PriceBar bar) {
+        pendingBars.put(key(bar), bar);
+    }
+
+    private void addLateTick(String symbol, Interval interval, LocalDateTime bucketStart, BigDecimal price) {
+        lateBars.compute(symbol + '|' + interval + '|' + bucketStart, (key, late) -> {
+            if (late == null) {
+                return new PriceBar(symbol, interval, bucketStart, price);
+            }
+            late.addTick(price);
+            return late;
+        });
+    }
+
+    private void persist(List<PriceBar> batch) {
+        try {
+            priceBarRepository.saveAll(mergeWithStored(batch, false));
+            for (PriceBar bar : batch) {
+                pendingBars.remove(key(bar), bar);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not flush {} price bars, will retry: {}", batch.size(), e.getMessage());
+        }
+        batch.clear();
+    }
+
+    // Late bars are taken out of the map before saving, so ticks arriving meanwhile start a new entry
+    private void flushLate() {
+        List<PriceBar> batch = new ArrayList<>(flushBatchSize);
+        for (String key : lateBars.keySet()) {
+            PriceBar late = lateBars.remove(key);
+            if (late != null) {
+                batch.add(late);
+            }
+            if (batch.size() == flushBatchSize) {
+                persistLate(batch);
+            }
+        }
+        if (!batch.isEmpty()) {
+            persistLate(batch);
+        }
+    }
+
+    private void persistLate(List<PriceBar> batch) {
+        try {
+            priceBarRepository.saveAll(mergeWithStored(batch, true));
+        } catch (RuntimeException e) {
+            logger.warn("Could not flush {} late price bars, will retry: {}", batch.size(), e.getMessage());
+            for (PriceBar late : batch) {
+                lateBars.merge(key(late), late, (newer, returned) -> {
+                    returned.mergeLate(newer);
+                    return returned;
+                });
+            }
+        }
+        batch.clear();
+    }
+
+    // Replace bars whose bucket already has a stored row by that row with the bar folded in.
+    // One range query per symbol and interval in the batch.
+    private List<PriceBar> mergeWithStored(List<PriceBar> batch, boolean late) {
+        Map<String, List<PriceBar>> bySeries = new HashMap<>();
+        for (PriceBar bar : batch) {
+            bySeries.computeIfAbsent(bar.getSymbol() + '|' + bar.getInterval(), k -> new ArrayList<>()).add(bar);
+        }
+        List<PriceBar> toSave = new ArrayList<>(batch.size());
+        for (List<PriceBar> series : bySeries.values()) {
+            LocalDateTime from = series.get(0).getBucketStart();
+            LocalDateTime to = from;
+            for (PriceBar bar : series) {
+                from = bar.getBucketStart().isBefore(from) ? bar.getBucketStart() : from;
+                to = bar.getBucketStart().isAfter(to) ? bar.getBucketStart() : to;
+            }
+            PriceBar first = series.get(0);
+            Map<LocalDateTime, PriceBar> stored = new HashMap<>();
+            for (PriceBar bar : priceBarRepository.findBars(first.getSymbol(), first.getInterval(), from, to)) {
+                stored.put(bar.getBucketStart(), bar);
+            }
+            for (PriceBar bar : series) {
+                PriceBar existing = stored.get(bar.getBucketStart());
+                if (existing == null) {
+                    toSave.add(bar);
+                } else {
+                    if (late) {
+                        existing.mergeLate(bar);
+                    } else {
+                        existing.append(bar);
+                    }
+                    toSave.add(existing);
+                }
+            }
+        }
+        return toSave;
+    }
+
+    private static boolean inRange(PriceBar bar, LocalDateTime from, LocalDateTime to) {
+        return !bar.getBucketStart().isBefore(from) && !bar.getBucketStart().isAfter(to);
+    }
+
+    private static String key(PriceBar bar) {
+        return bar.getSymbol() + '|' + bar.getInterval() + '|' + bar.getBucketStart();
+    }
+}
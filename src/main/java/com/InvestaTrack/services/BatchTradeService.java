@@ -0,0 +1,382 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.dto.TradeRequestDTO;
+import com.InvestaTrack.dto.TradeResultDTO;
+import com.InvestaTrack.models.Portfolio;
+import com.InvestaTrack.models.Position;
+import com.InvestaTrack.models.Stock;
+import com.InvestaTrack.models.Transaction;
+import com.InvestaTrack.models.Transaction.TransactionType;
+import com.InvestaTrack.repos.PositionRepository;
+import com.InvestaTrack.repos.TransactionRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Applies many trades in one transaction.
+// Portfolios, stocks and affected positions are loaded once, trades are replayed in
+// chronological order against in-memory positions, and the new transactions, final
+// positions and portfolio total deltas are written with saveAll at the end. Positions whose
+// history the batch back-fills are replayed from the earliest new trade instead. A trade that
+// fails validation is reported and skipped; the rest of the batch still applies.
+@Service
+@Transactional
+public class BatchTradeService {
+
+    private final TransactionRepository transactionRepository;
+    private final PositionRepository positionRepository;
+    private final PortfolioService portfolioService;
+    private final StockService stockService;
+    private final PositionService positionService;
+    private final PriceBook priceBook;
+    private final HoldingsIndex holdingsIndex;
+    private final OptimisticRetry optimisticRetry;
+    private final TransactionSummaryService transactionSummaryService;
+    private final TaxLotService taxLotService;
+
+    // Constructor injection
+    public BatchTradeService(TransactionRepository transactionRepository,
+                             PositionRepository positionRepository,
+                             PortfolioService portfolioService,
+                             StockService stockService,
+                             PositionService positionService,
+                             PriceBook priceBook,
+                             HoldingsIndex holdingsIndex,
+                             OptimisticRetry optimisticRetry,
+                             TransactionSummaryService transactionSummaryService,
+                             TaxLotService taxLotService) {
+        this.transactionRepository = transactionRepository;
+        this.positionRepository = positionRepository;
+        this.portfolioService = portfolioService;
+        this.stockService = stockService;
+        this.positionService = positionService;
+        this.priceBook = priceBook;
+        this.holdingsIndex = holdingsIndex;
+        this.optimisticRetry = optimisticRetry;
+        this.transactionSummaryService = transactionSummaryService;
+        this.taxLotService = taxLotService;
+    }
+
+    // Apply a batch of trades; returns one result per trade, in request order.
+    // The whole batch is re-run if a position or portfolio it touches changed concurrently.
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<TradeResultDTO> applyTrades(List<TradeRequestDTO> trades) {
+        return optimisticRetry.execute(() -> applyTradesOnce(trades));
+    }
+
+    private List<TradeResultDTO> applyTradesOnce(List<TradeRequestDTO> trades) {
+        TradeResultDTO[] results = new TradeResultDTO[trades.size()];
+        LocalDateTime now = LocalDateTime.now();
+
+        // Validate fields and resolve stocks without touching the database where possible
+        List<PendingTrade> pendingTrades = new ArrayList<>();
+        Set<Long> portfolioIds = new HashSet<>();
+        Set<Long> stockIds = new HashSet<>();
+        for (int i = 0; i < trades.size(); i++) {
+            TradeRequestDTO trade = trades.get(i);
+            String error = validate(trade);
+            Long stockId = trade.getStockId() != null ? trade.getStockId() : priceBook.resolveSymbol(trade.getSymbol());
+            if (error == null && stockId == null) {
+                error = "Stock not found with symbol: " + trade.getSymbol();
+            }
+            if (error != null) {
+                results[i] = TradeResultDTO.failed(i, error);
+                continue;
+            }
+            PendingTrade pending = new PendingTrade(i, trade, stockId,
+                    trade.getTransactionDate() != null ? trade.getTransactionDate() : now);
+            pendingTrades.add(pending);
+            portfolioIds.add(trade.getPortfolioId());
+            stockIds.add(stockId);
+        }
+
+        if (!pendingTrades.isEmpty()) {
+            applyPendingTrades(pendingTrades, portfolioIds, stockIds, results);
+        }
+        return Arrays.asList(results);
+    }
+
+    private void applyPendingTrades(List<PendingTrade> pendingTrades, Set<Long> portfolioIds,
+                                    Set<Long> stockIds, TradeResultDTO[] results) {
+        Map<Long, Portfolio> portfolios = new HashMap<>();
+        for (Portfolio portfolio : portfolioService.getPortfoliosByIds(portfolioIds)) {
+            portfolios.put(portfolio.getPortfolioID(), portfolio);
+        }
+        Map<Long, Stock> stocks = new HashMap<>();
+        for (Stock stock : stockService.getStocksByIds(stockIds)) {
+            stocks.put(stock.getStockID(), stock);
+        }
+
+        // Existing positions, with their value and cost before the batch
+        Map<String, PositionState> positions = new LinkedHashMap<>();
+        for (Position position : positionRepository.findByPortfolioIdsAndStockIds(portfolioIds, stockIds)) {
+            positions.put(key(position.getPortfolio().getPortfolioID(), position.getStock().getStockID()),
+                    new PositionState(position));
+        }
+
+        // Replay in trade-time order; ties keep request order
+        pendingTrades.sort(Comparator.comparing((PendingTrade p) -> p.transactionDate).thenComparingInt(p -> p.index));
+
+        // Positions the batch back-fills, i.e. a dated trade lands before the position's latest trade.
+        // They are replayed from that trade once saved, and their sells are checked against history.
+        Map<String, PendingTrade> earliestDatedByPosition = new HashMap<>();
+        Map<String, List<PendingTrade>> tradesByPosition = new HashMap<>();
+        for (PendingTrade pending : pendingTrades) {
+            String positionKey = key(pending.trade.getPortfolioId(), pending.stockId);
+            tradesByPosition.computeIfAbsent(positionKey, k -> new ArrayList<>()).add(pending);
+            if (pending.trade.getTransactionDate() != null) {
+                earliestDatedByPosition.putIfAbsent(positionKey, pending);
+            }
+        }
+        Set<String> backDated = new HashSet<>();
+        Map<PendingTrade, Integer> uncoveredSells = new HashMap<>();
+        earliestDatedByPosition.forEach((positionKey, pending) -> {
+            Long portfolioId = pending.trade.getPortfolioId();
+            if (!portfolios.containsKey(portfolioId) || !stocks.containsKey(pending.stockId)
+                    || !taxLotService.isBackDated(portfolioId, pending.stockId, pending.transactionDate)) {
+                return;
+            }
+            backDated.add(positionKey);
+            PositionState state = positions.get(positionKey);
+            uncoveredSells.putAll(findUncoveredSells(portfolioId, pending.stockId,
+                    state != null ? state.position.getQuantity() : 0, pending.transactionDate,
+                    tradesByPosition.get(positionKey)));
+        });
+
+        List<Transaction> transactions = new ArrayList<>();
+        List<PendingTrade> appliedTrades = new ArrayList<>();
+        for (PendingTrade pending : pendingTrades) {
+            TradeRequestDTO trade = pending.trade;
+            Portfolio portfolio = portfolios.get(trade.getPortfolioId());
+            if (portfolio == null) {
+                results[pending.index] = TradeResultDTO.failed(pending.index,
+                        "Portfolio not found with id: " + trade.getPortfolioId());
+                continue;
+            }
+            Stock stock = stocks.get(pending.stockId);
+            if (stock == null) {
+                results[pending.index] = TradeResultDTO.failed(pending.index,
+                        "Stock not found with id: " + pending.stockId);
+                continue;
+            }
+
+            String positionKey = key(portfolio.getPortfolioID(), stock.getStockID());
+            TransactionType type = TransactionType.valueOf(trade.getTransactionType().toUpperCase());
+            PositionState state = null;
+            Integer available = null;
+            if (backDated.contains(positionKey)) {
+                available = uncoveredSells.get(pending);
+            } else {
+                state = positions.computeIfAbsent(positionKey, k -> new PositionState(new Position(portfolio, stock)));
+                if (type == TransactionType.SELL && state.position.getQuantity() < trade.getQuantity()) {
+                    available = state.position.getQuantity();
+                }
+            }
+            if (available != null) {
+                results[pending.index] = TradeResultDTO.failed(pending.index,
+                        "Insufficient shares to sell. Available: " + available);
+                continue;
+            }
+
+            Transaction transaction = new Transaction(portfolio, stock, type, trade.getQuantity(), trade.getPricePerShare());
+            if (trade.getFees() != null) {
+                transaction.setFees(trade.getFees());
+            }
+            transaction.setTransactionDate(pending.transactionDate);
+            if (state != null) {
+                positionService.applyTransaction(state.position, transaction);
+                state.touched = true;
+            }
+
+            transactions.add(transaction);
+            appliedTrades.add(pending);
+        }
+
+        // One batched write for transactions and positions
+        List<Transaction> savedTransactions = transactionRepository.saveAll(transactions);
+        // Lots in trade order; back-filled positions are replayed once the summary has the new trades
+        List<Transaction> inOrder = new ArrayList<>();
+        Map<String, Transaction> earliestBackDated = new LinkedHashMap<>();
+        for (Transaction saved : savedTransactions) {
+            String positionKey = key(saved.getPortfolio().getPortfolioID(), saved.getStock().getStockID());
+            if (backDated.contains(positionKey)) {
+                earliestBackDated.putIfAbsent(positionKey, saved);
+            } else {
+                inOrder.add(saved);
+            }
+        }
+        taxLotService.applyTransactions(inOrder);
+        transactionSummaryService.recordCreated(savedTransactions);
+        for (int i = 0; i < savedTransactions.size(); i++) {
+            PendingTrade pending = appliedTrades.get(i);
+            results[pending.index] = TradeResultDTO.applied(pending.index, savedTransactions.get(i).getTransactionId());
+        }
+
+        // Back-filled positions: replay position and lots from the earliest new trade's (date, id) key on
+        for (Transaction earliest : earliestBackDated.values()) {
+            Long portfolioId = earliest.getPortfolio().getPortfolioID();
+            Long stockId = earliest.getStock().getStockID();
+            positionService.recalculatePosition(portfolioId, stockId, earliest);
+            taxLotService.rebuildLots(portfolioId, stockId);
+        }
+
+        List<Position> touchedPositions = new ArrayList<>();
+        Map<Long, BigDecimal> valueDeltas = new HashMap<>();
+        Map<Long, BigDecimal> costDeltas = new HashMap<>();
+        for (PositionState state : positions.values()) {
+            if (!state.touched) {
+                continue;
+            }
+            Position position = state.position;
+            BigDecimal price = priceBook.getPrice(position.getStock().getStockID());
+            if (price != null) {
+                position.updateCurrentValue(price);
+            } else {
+                position.updateCurrentValue();
+            }
+            touchedPositions.add(position);
+
+            Long portfolioId = position.getPortfolio().getPortfolioID();
+            valueDeltas.merge(portfolioId, position.getCurrentValue().subtract(state.originalValue), BigDecimal::add);
+            costDeltas.merge(portfolioId, position.getTotalCost().subtract(state.originalCost), BigDecimal::add);
+        }
+        for (Position saved : positionRepository.saveAll(touchedPositions)) {
+            holdingsIndex.update(saved);
+        }
+
+        portfolioService.applyDeltas(valueDeltas, costDeltas);
+    }
+
+    // Field-level checks that need no database access; null when the trade is well formed
+    public String validate(TradeRequestDTO trade) {
+        if (trade == null) {
+            return "Trade is required";
+        }
+        if (trade.getPortfolioId() == null) {
+            return "Portfolio ID is required";
+        }
+        if (trade.getStockId() == null && (trade.getSymbol() == null || trade.getSymbol().isBlank())) {
+            return "Stock ID or symbol is required";
+        }
+        if (trade.getTransactionType() == null) {
+            return "Transaction type is required";
+        }
+        try {
+            TransactionType.valueOf(trade.getTransactionType().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return "Invalid transaction type: " + trade.getTransactionType();
+        }
+        if (trade.getQuantity() == null || trade.getQuantity() < 1) {
+            return "Quantity must be at least 1";
+        }
+        if (trade.getPricePerShare() == null || trade.getPricePerShare().compareTo(new BigDecimal("0.01")) < 0) {
+            return "Price per share must be greater than 0";
+        }
+        if (trade.getFees() != null && trade.getFees().signum() < 0) {
+            return "Fees must be non-negative";
+        }
+        return null;
+    }
+
+    // Check a back-filled position's pending sells against its history from the given date on. A sell is
+    // refused when, at its place in the timeline, it would take more shares than are held there or leave a
+    // later trade uncovered. Pending buys always apply. Returns the refused sells with the shares they had.
+    private Map<PendingTrade, Integer> findUncoveredSells(Long portfolioId, Long stockId, int currentQuantity,
+                                                        LocalDateTime from, List<PendingTrade> trades) {
+        // Stored trades after every new one dated 'from' (new trades get the highest IDs)
+        List<Transaction> later = transactionRepository.findForReplayAfter(portfolioId, stockId, from, Long.MAX_VALUE);
+        int quantity = currentQuantity;
+        for (Transaction stored : later) {
+            quantity -= signedQuantity(stored.getTransactionType(), stored.getQuantity());
+        }
+
+        // Merge stored and pending trades; a stored trade goes first on equal dates
+        int size = later.size() + trades.size();
+        int[] deltas = new int[size];
+        PendingTrade[] pendingAt = new PendingTrade[size];
+        boolean[] sells = new boolean[size];
+        for (int i = 0, s = 0, p = 0; i < size; i++) {
+            if (p == trades.size() || (s < later.size()
+                    && !later.get(s).getTransactionDate().isAfter(trades.get(p).transactionDate))) {
+                Transaction stored = later.get(s++);
+                deltas[i] = signedQuantity(stored.getTransactionType(), stored.getQuantity());
+            } else {
+                PendingTrade pending = trades.get(p++);
+                TransactionType type = TransactionType.valueOf(pending.trade.getTransactionType().toUpperCase());
+                pendingAt[i] = pending;
+                sells[i] = type == TransactionType.SELL;
+                // Pending sells count once accepted
+                deltas[i] = sells[i] ? 0 : pending.trade.getQuantity();
+            }
+        }
+        // minAhead[i]: lowest change in holdings at any point after i, relative to i (at most 0)
+        int[] minAhead = new int[size];
+        for (int i = size - 2; i >= 0; i--) {
+            minAhead[i] = Math.min(0, deltas[i + 1] + minAhead[i + 1]);
+        }
+
+        Map<PendingTrade, Integer> uncovered = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            if (!sells[i]) {
+                quantity += deltas[i];
+                continue;
+            }
+            PendingTrade pending = pendingAt[i];
+            int available = Math.max(0, quantity + minAhead[i]);
+            if (available < pending.trade.getQuantity()) {
+                uncovered.put(pending, available);
+            } else {
+                quantity -= pending.trade.getQuantity();
+            }
+        }
+        return uncovered;
+    }
+
+    private static int signedQuantity(TransactionType type, int quantity) {
+        return type == TransactionType.BUY ? quantity : -quantity;
+    }
+
+    private static String key(Long portfolioId, Long stockId) {
+        return portfolioId + ":" + stockId;
+    }
+
+    private static final class PendingTrade {
+        private final int index;
+        private final TradeRequestDTO trade;
+        private final Long stockId;
+        private final LocalDateTime transactionDate;
+
+        private PendingTrade(int index, TradeRequestDTO trade, Long stockId, LocalDateTime transactionDate) {
+            this.index = index;
+            this.trade = trade;
+            this.stockId = stockId;
+            this.transactionDate = transactionDate;
+        }
+    }
+
+    // A position being replayed, with the value and cost it had before the batch
+    private static final class PositionState {
+        private final Position position;
+        private final BigDecimal originalValue;
+        private final BigDecimal originalCost;
+        private boolean touched;
+
+        private PositionState(Position position) {
+            this.position = position;
+            this.originalValue = position.getCurrentValue();
+            this.originalCost = position.getTotalCost();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.models.Position;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Reverse index from stock ID to the active positions holding it, so a price change
+// only has to touch the holders of that stock instead of every position in the book.
+// Changes made inside a transaction are applied when it commits.
+@Component
+public class HoldingsIndex {
+
+    private final Map<Long, Set<Holding>> holdingsByStock = new ConcurrentHashMap<>();
+
+    // Add or remove a position depending on whether it still holds shares
+    public void update(Position position) {
+        update(position.getStock().getStockID(), position.getPortfolio().getPortfolioID(),
+                position.getPositionId(), position.getQuantity() != null ? position.getQuantity() : 0);
+    }
+
+    public void update(Long stockId, Long portfolioId, Long positionId, int quantity) {
+        if (stockId == null || positionId == null) {
+            return;
+        }
+        AfterCommit.run(() -> apply(stockId, portfolioId, positionId, quantity));
+    }
+
+    private void apply(Long stockId, Long portfolioId, Long positionId, int quantity) {
+        Holding holding = new Holding(portfolioId, positionId);
+        if (quantity > 0) {
+            holdingsByStock.computeIfAbsent(stockId, id -> ConcurrentHashMap.newKeySet()).add(holding);
+        } else {
+            holdingsByStock.computeIfPresent(stockId, (id, holders) -> {
+                holders.remove(holding);
+                return holders.isEmpty() ? null : holders;
+            });
+        }
+    }
+
+    // Get the active holders of a stock
+    public Set<Holding> getHolders(Long stockId) {
+        Set<Holding> holders = holdingsByStock.get(stockId);
+        return holders != null ? Collections.unmodifiableSet(holders) : Collections.emptySet();
+    }
+
+    public void clear() {
+        AfterCommit.run(holdingsByStock::clear);
+    }
+
+    // A single (portfolio, position) pair holding a stock
+    public static final class Holding {
+        private final Long portfolioId;
+        private final Long positionId;
+
+        public Holding(Long portfolioId, Long positionId) {
+            this.portfolioId = portfolioId;
+            this.positionId = positionId;
+        }
+
+        public Long getPortfolioId() { return portfolioId; }
+        public Long getPositionId() { return positionId; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Holding)) return false;
+            Holding other = (Holding) o;
+            return Objects.equals(positionId, other.positionId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(positionId);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.InvestaTrack.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+// Remembers the result of requests sent with an Idempotency-Key.
+// The first request with a key runs; a retry with the same key gets the stored result without
+// touching the database, and a duplicate that arrives while the first is still running waits
+// for it. Failures are not remembered, so a client can retry a request that was rejected.
+// Entries expire after ttl-ms and the cache never holds more than max-entries keys.
+@Service
+public class IdempotencyCache {
+
+    private final long ttlMs;
+    private final int maxEntries;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Entries in creation order; with a single TTL this is also expiry order
+    private final Queue<Entry> creationOrder = new ConcurrentLinkedQueue<>();
+
+    public IdempotencyCache(@Value("${investatrack.idempotency.ttl-ms:86400000}") long ttlMs,
+                            @Value("${investatrack.idempotency.max-entries:10000}") int maxEntries) {
+        this.ttlMs = ttlMs;
+        this.maxEntries = maxEntries;
+    }
+
+    // Run work once per key; fingerprint identifies the request so a reused key with another body is rejected
+    @SuppressWarnings("unchecked")
+    public <T> Result<T> execute(String key, String fingerprint, Supplier<T> work) {
+        Entry fresh = new Entry(key, fingerprint, System.currentTimeMillis() + ttlMs);
+        while (true) {
+            Entry existing = entries.putIfAbsent(key, fresh);
+            if (existing == null) {
+                break;
+            }
+            if (existing.isExpired(System.currentTimeMillis())) {
+                entries.remove(key, existing);
+                continue;
+            }
+            if (!existing.fingerprint.equals(fingerprint)) {
+                throw new KeyReuseException("Idempotency-Key was already used for a different request");
+            }
+            return new Result<>((T) await(existing.result), true);
+        }
+
+        creationOrder.add(fresh);
+        evictOverflow();
+        try {
+            T value = work.get();
+            fresh.result.complete(value);
+            return new Result<>(value, false);
+        } catch (Throwable e) {
+            // Release waiters first, then let the key be used again
+            fresh.result.completeExceptionally(e);
+            entries.remove(key, fresh);
+            creationOrder.remove(fresh);
+            throw e;
+        }
+    }
+
+    // Drop expired keys from the front of the creation queue
+    @Scheduled(fixedDelayString = "${investatrack.idempotency.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        Entry head;
+        while ((head = creationOrder.peek()) != null && head.isExpired(now)) {
+            if (creationOrder.remove(head)) {
+                entries.remove(head.key, head);
+            }
+        }
+    }
+
+    // Forget every key, e.g. after the data the stored results refer to was deleted
+    public void clear() {
+        AfterCommit.run(() -> {
+            entries.clear();
+            creationOrder.clear();
+        });
+    }
+
+    // Entries still queued for expiry or eviction
+    int queuedEntries() {
+        return creationOrder.size();
+    }
+
+    // Keep the cache bounded by forgetting the oldest keys first
+    private void evictOverflow() {
+        while (entries.size() > maxEntries) {
+            Entry oldest = creationOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            entries.remove(oldest.key, oldest);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    // Result of execute: the value and whether it was replayed from an earlier request
+    public static final class Result<T> {
+        private final T value;
+        private final boolean replayed;
+
+        private Result(T value, boolean replayed) {
+            this.value = value;
+            this.replayed = replayed;
+        }
+
+        public T getValue() { return value; }
+        public boolean isReplayed() { return replayed; }
+    }
+
+    // Thrown when a key comes back with a different request body
+    public static class KeyReuseException extends RuntimeException {
+        public KeyReuseException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final String fingerprint;
+        private final long expiresAt;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Entry(String key, String fingerprint, long expiresAt) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.models.Portfolio;
+import com.InvestaTrack.models.Stock;
+import com.InvestaTrack.models.Transaction;
+import com.InvestaTrack.models.Transaction.TransactionType;
+import com.InvestaTrack.models.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Measures bulk transaction inserts with and without JDBC batching.
+// Rows go into a throwaway user/portfolio/stock that is removed afterwards. The "unbatched"
+// run forces a JDBC batch size of 1 (one round trip per row, as with IDENTITY keys); the
+// "batched" run uses the configured hibernate.jdbc.batch_size with pooled sequence IDs.
+@Service
+public class InsertBenchmarkService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InsertBenchmarkService.class);
+
+    private static final int ROWS_PER_TRANSACTION = 10_000;
+    private static final int MAX_ROWS = 5_000_000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final int jdbcBatchSize;
+
+    public InsertBenchmarkService(TransactionTemplate transactionTemplate,
+                                  @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int jdbcBatchSize) {
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcBatchSize = jdbcBatchSize;
+    }
+
+    // Run one or both modes ("batched", "unbatched" or "both") for the given number of rows
+    public Map<String, Object> run(int rows, String mode) {
+        if (rows < 1 || rows > MAX_ROWS) {
+            throw new RuntimeException("Rows must be between 1 and " + MAX_ROWS);
+        }
+        String normalizedMode = mode == null ? "both" : mode.toLowerCase();
+        if (!normalizedMode.equals("both") && !normalizedMode.equals("batched") && !normalizedMode.equals("unbatched")) {
+            throw new RuntimeException("Mode must be batched, unbatched or both");
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("rows", rows);
+        report.put("jdbcBatchSize", jdbcBatchSize);
+        Map<String, Object> unbatched = null;
+        Map<String, Object> batched = null;
+        if (!normalizedMode.equals("batched")) {
+            unbatched = runOnce(rows, 1);
+            report.put("unbatched", unbatched);
+        }
+        if (!normalizedMode.equals("unbatched")) {
+            batched = runOnce(rows, jdbcBatchSize);
+            report.put("batched", batched);
+        }
+        if (unbatched != null && batched != null) {
+            double speedup = (double) batched.get("insertsPerSecond") / (double) unbatched.get("insertsPerSecond");
+            report.put("speedup", Math.round(speedup * 100) / 100.0);
+        }
+        return report;
+    }
+
+    private Map<String, Object> runOnce(int rows, int batchSize) {
+        long tag = System.nanoTime();
+        Long[] fixture = transactionTemplate.execute(status -> createFixture(tag));
+        Long portfolioId = fixture[0];
+        Long stockId = fixture[1];
+        LocalDateTime baseDate = LocalDateTime.now().minusYears(10);
+
+        long start = System.nanoTime();
+        long elapsedNanos;
+        try {
+            int inserted = 0;
+            while (inserted < rows) {
+                int chunkStart = inserted;
+                int chunkSize = Math.min(ROWS_PER_TRANSACTION, rows - inserted);
+                transactionTemplate.executeWithoutResult(status ->
+                        insertChunk(portfolioId, stockId, baseDate, chunkStart, chunkSize, batchSize));
+                inserted += chunkSize;
+            }
+            elapsedNanos = System.nanoTime() - start;
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> deleteFixture(portfolioId, stockId, fixture[2]));
+        }
+
+        double seconds = elapsedNanos / 1e9;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("jdbcBatchSize", batchSize);
+        result.put("elapsedMs", Math.round(seconds * 1000));
+        result.put("insertsPerSecond", Math.round(rows / seconds * 10) / 10.0);
+        logger.info("Insert benchmark: {} rows at batch size {} in {} ms", rows, batchSize, result.get("elapsedMs"));
+        return result;
+    }
+
+    private void insertChunk(Long portfolioId, Long stockId, LocalDateTime baseDate,
+                             int offset, int count, int batchSize) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+        Portfolio portfolio = entityManager.getReference(Portfolio.class, portfolioId);
+        Stock stock = entityManager.getReference(Stock.class, stockId);
+        BigDecimal price = new BigDecimal("100.00");
+
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction(portfolio, stock, TransactionType.BUY, 1, price);
+            transaction.setTransactionDate(baseDate.plusSeconds(offset + i));
+            entityManager.persist(transaction);
+
+            // Flush on batch boundaries (same cadence in both modes) and keep the persistence context small
+            if ((i + 1) % jdbcBatchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+                portfolio = entityManager.getReference(Portfolio.class, portfolioId);
+                stock = entityManager.getReference(Stock.class, stockId);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Long[] createFixture(long tag) {
+        User user = new User("bench" + tag, "bench" + tag + "@bench.local", "benchmark", "Insert", "Benchmark");
+        entityManager.persist(user);
+        Portfolio portfolio = new Portfolio(user, "Insert Benchmark", "Temporary portfolio for the insert benchmark");
+        entityManager.persist(portfolio);
+        Stock stock = new Stock();
+        stock.setSymbol("B" + Long.toString(tag % 1_000_000_000L, 36).toUpperCase());
+        stock.setCompanyName("Insert Benchmark");
+        entityManager.persist(stock);
+        return new Long[] {portfolio.getPortfolioID(), stock.getStockID(), user.getId()};
+    }
+
+    private void deleteFixture(Long portfolioId, Long stockId, Long userId) {
+        entityManager.createQuery("DELETE FROM Transaction t WHERE t.portfolio.portfolioID = :portfolioId")
+                .setParameter("portfolioId", portfolioId)
+                .executeUpdate();
+        entityManager.createQuery("DELETE FROM Portfolio p WHERE p.portfolioID = :portfolioId")
+                .setParameter("portfolioId", portfolioId)
+                .executeUpdate();
+        entityManager.createQuery("DELETE FROM Stock s WHERE s.stockID = :stockId")
+                .setParameter("stockId", stockId)
+                .executeUpdate();
+        entityManager.createQuery("DELETE FROM User u WHERE u.id = :userId")
+                .setParameter("userId", userId)
+                .executeUpdate();
+    }
+}
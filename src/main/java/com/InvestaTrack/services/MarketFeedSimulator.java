@@ -0,0 +1,284 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.dto.PriceUpdateDTO;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Synthetic market-data feed for load testing price churn without a live feed.
+// Each simulated symbol follows geometric Brownian motion; a background thread emits
+// ticks at the configured rate through StockService, either as bulk price batches or as
+// one update per tick, and records throughput and call latency.
+@Service
+public class MarketFeedSimulator {
+
+    private static final Logger logger = LoggerFactory.getLogger(MarketFeedSimulator.class);
+
+    // 252 trading days of 6.5 hours, used to turn simulated seconds into GBM time steps
+    private static final double TRADING_SECONDS_PER_YEAR = 252 * 6.5 * 3600;
+    private static final int LATENCY_SAMPLES = 4096;
+
+    public enum Mode { BATCH, SINGLE }
+
+    private final StockService stockService;
+    private final PriceBook priceBook;
+
+    private final int defaultTicksPerSecond;
+    private final int defaultSymbolCount;
+    private final String defaultMode;
+    private final long batchIntervalMs;
+    private final double drift;
+    private final double volatility;
+    private final double timeScale;
+
+    private ScheduledExecutorService executor;
+    private volatile FeedRun currentRun;
+
+    public MarketFeedSimulator(StockService stockService,
+                               PriceBook priceBook,
+                               @Value("${investatrack.feed.ticks-per-second:500}") int defaultTicksPerSecond,
+                               @Value("${investatrack.feed.symbol-count:0}") int defaultSymbolCount,
+                               @Value("${investatrack.feed.mode:batch}") String defaultMode,
+                               @Value("${investatrack.feed.batch-interval-ms:100}") long batchIntervalMs,
+                               @Value("${investatrack.feed.drift:0.05}") double drift,
+                               @Value("${investatrack.feed.volatility:0.30}") double volatility,
+                               @Value("${investatrack.feed.time-scale:3600}") double timeScale) {
+        this.stockService = stockService;
+        this.priceBook = priceBook;
+        this.defaultTicksPerSecond = defaultTicksPerSecond;
+        this.defaultSymbolCount = defaultSymbolCount;
+        this.defaultMode = defaultMode;
+        this.batchIntervalMs = batchIntervalMs;
+        this.drift = drift;
+        this.volatility = volatility;
+        this.timeScale = timeScale;
+    }
+
+    // Start the feed; null arguments fall back to the configured defaults
+    public synchronized Map<String, Object> start(Integer ticksPerSecond, Integer symbolCount, String mode) {
+        if (currentRun != null && currentRun.running) {
+            throw new RuntimeException("Market feed is already running");
+        }
+
+        int rate = ticksPerSecond != null ? ticksPerSecond : defaultTicksPerSecond;
+        if (rate <= 0) {
+            throw new RuntimeException("Ticks per second must be greater than 0");
+        }
+        Mode feedMode = parseMode(mode != null ? mode : defaultMode);
+
+        List<PriceBook.Quote> quotes = new ArrayList<>();
+        for (PriceBook.Quote quote : priceBook.getAllQuotes()) {
+            if (quote.getPrice() != null && quote.getPrice().signum() > 0) {
+                quotes.add(quote);
+            }
+        }
+        if (quotes.isEmpty()) {
+            throw new RuntimeException("No stocks with a positive price to simulate");
+        }
+        int count = symbolCount != null ? symbolCount : defaultSymbolCount;
+        if (count > 0 && count < quotes.size()) {
+            quotes = quotes.subList(0, count);
+        }
+
+        FeedRun run = new FeedRun(quotes, rate, feedMode);
+        long ticksPerBatch = Math.max(1, Math.round(rate * batchIntervalMs / 1000.0));
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "market-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> emit(run, ticksPerBatch), 0, batchIntervalMs, TimeUnit.MILLISECONDS);
+        currentRun = run;
+
+        logger.info("Market feed started: {} ticks/s over {} symbols ({} mode)", rate, quotes.size(), feedMode);
+        return run.status();
+    }
+
+    @PreDestroy
+    public synchronized Map<String, Object> stop() {
+        FeedRun run = currentRun;
+        if (run == null || !run.running) {
+            return status();
+        }
+        run.running = false;
+        run.stoppedAtNanos = System.nanoTime();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Market feed stopped after {} ticks", run.ticksSent.get());
+        return run.status();
+    }
+
+    public Map<String, Object> status() {
+        FeedRun run = currentRun;
+        if (run == null) {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("running", false);
+            return status;
+        }
+        return run.status();
+    }
+
+    // One scheduler firing: advance and publish ticksPerBatch prices
+    private void emit(FeedRun run, long ticksPerBatch) {
+        if (!run.running) {
+            return;
+        }
+        try {
+            long remaining = ticksPerBatch;
+            while (remaining > 0 && run.running) {
+                // A bulk call only carries one price per symbol, so large batches are split
+                int chunk = (int) Math.min(remaining, run.symbols.length);
+                List<PriceUpdateDTO> updates = run.nextTicks(chunk);
+                if (run.mode == Mode.BATCH) {
+                    long started = System.nanoTime();
+                    stockService.updateStockPrices(updates);
+                    run.recordCall(System.nanoTime() - started, chunk);
+                } else {
+                    for (PriceUpdateDTO update : updates) {
+                        long started = System.nanoTime();
+                        stockService.updateStockPriceBySymbol(update.getSymbol(), update.getPrice());
+                        run.recordCall(System.nanoTime() - started, 1);
+                    }
+                }
+                remaining -= chunk;
+            }
+        } catch (RuntimeException e) {
+            run.errors.incrementAndGet();
+            logger.warn("Market feed tick failed: {}", e.getMessage());
+        }
+    }
+
+    private static Mode parseMode(String mode) {
+        try {
+            return Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid feed mode: " + mode + " (expected batch or single)");
+        }
+    }
+
+    // State and statistics for one start/stop cycle
+    private final class FeedRun {
+        private final String[] symbols;
+        private final double[] prices;
+        private final int targetTicksPerSecond;
+        private final Mode mode;
+        private final double stepDrift;
+        private final double stepVolatility;
+        private final Random random = new Random();
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final long startedAtNanos = System.nanoTime();
+
+        private final AtomicLong ticksSent = new AtomicLong();
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong totalLatencyNanos = new AtomicLong();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+        private final long[] latencySamples = new long[LATENCY_SAMPLES];
+
+        private volatile boolean running = true;
+        private volatile long stoppedAtNanos;
+        private int cursor;
+
+        private FeedRun(List<PriceBook.Quote> quotes, int targetTicksPerSecond, Mode mode) {
+            this.symbols = new String[quotes.size()];
+            this.prices = new double[quotes.size()];
+            for (int i = 0; i < quotes.size(); i++) {
+                symbols[i] = quotes.get(i).getSymbol();
+                prices[i] = quotes.get(i).getPrice().doubleValue();
+            }
+            this.targetTicksPerSecond = targetTicksPerSecond;
+            this.mode = mode;
+
+            // Each symbol ticks about targetTicksPerSecond / symbols times per wall-clock second
+            double wallSecondsPerTick = (double) symbols.length / targetTicksPerSecond;
+            double dt = wallSecondsPerTick * timeScale / TRADING_SECONDS_PER_YEAR;
+            this.stepDrift = (drift - volatility * volatility / 2) * dt;
+            this.stepVolatility = volatility * Math.sqrt(dt);
+        }
+
+        // Advance the next symbols round-robin: S *= exp((mu - sigma^2/2) dt + sigma sqrt(dt) Z)
+        List<PriceUpdateDTO> nextTicks(int count) {
+            List<PriceUpdateDTO> updates = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int index = cursor;
+                cursor = (cursor + 1) % symbols.length;
+                prices[index] *= Math.exp(stepDrift + stepVolatility * random.nextGaussian());
+                BigDecimal price = BigDecimal.valueOf(prices[index]).setScale(2, RoundingMode.HALF_UP);
+                if (price.signum() <= 0) {
+                    price = new BigDecimal("0.01");
+                    prices[index] = 0.01;
+                }
+                updates.add(new PriceUpdateDTO(symbols[index], price));
+            }
+            return updates;
+        }
+
+        void recordCall(long latencyNanos, int ticks) {
+            long call = calls.getAndIncrement();
+            latencySamples[(int) (call % LATENCY_SAMPLES)] = latencyNanos;
+            ticksSent.addAndGet(ticks);
+            totalLatencyNanos.addAndGet(latencyNanos);
+            maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+        }
+
+        Map<String, Object> status() {
+            long endNanos = running ? System.nanoTime() : stoppedAtNanos;
+            double elapsedSeconds = Math.max(1e-9, (endNanos - startedAtNanos) / 1e9);
+            long callCount = calls.get();
+
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("running", running);
+            status.put("mode", mode.name().toLowerCase(Locale.ROOT));
+            status.put("symbols", symbols.length);
+            status.put("startedAt", startedAt);
+            status.put("elapsedSeconds", round(elapsedSeconds));
+            status.put("targetTicksPerSecond", targetTicksPerSecond);
+            status.put("ticksSent", ticksSent.get());
+            status.put("achievedTicksPerSecond", round(ticksSent.get() / elapsedSeconds));
+            status.put("calls", callCount);
+            status.put("errors", errors.get());
+            status.put("avgLatencyMs", callCount > 0 ? round(totalLatencyNanos.get() / 1e6 / callCount) : 0.0);
+            status.put("p50LatencyMs", percentileMs(callCount, 0.50));
+            status.put("p99LatencyMs", percentileMs(callCount, 0.99));
+            status.put("maxLatencyMs", round(maxLatencyNanos.get() / 1e6));
+            return status;
+        }
+
+        // Percentile over the most recent latency samples
+        private double percentileMs(long callCount, double percentile) {
+            int sampleCount = (int) Math.min(callCount, LATENCY_SAMPLES);
+            if (sampleCount == 0) {
+                return 0.0;
+            }
+            long[] samples = Arrays.copyOf(latencySamples, sampleCount);
+            Arrays.sort(samples);
+            int index = (int) Math.min(sampleCount - 1, Math.ceil(percentile * sampleCount) - 1);
+            return round(samples[Math.max(0, index)] / 1e6);
+        }
+
+        private double round(double value) {
+            return Math.round(value * 1000) / 1000.0;
+        }
+    }
+}
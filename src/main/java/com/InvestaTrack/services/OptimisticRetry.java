@@ -0,0 +1,113 @@
+package com.InvestaTrack.services;
+
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.StaleStateException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Runs a unit of work in its own transaction and re-runs it when a version check fails.
+// A conflict leaves the transaction rollback-only, so the retry boundary has to be the
+// transaction itself: when the caller already has a transaction open the work simply joins
+// it and the conflict propagates to whoever owns that boundary. Backoff is exponential with
+// full jitter and bounded by max-attempts.
+@Component
+public class OptimisticRetry {
+
+    private static final Logger logger = LoggerFactory.getLogger(OptimisticRetry.class);
+
+    private final TransactionTemplate requiredTemplate;
+    private final TransactionTemplate requiresNewTemplate;
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    public OptimisticRetry(PlatformTransactionManager transactionManager,
+                           @Value("${investatrack.retry.max-attempts:5}") int maxAttempts,
+                           @Value("${investatrack.retry.base-backoff-ms:5}") long baseBackoffMs,
+                           @Value("${investatrack.retry.max-backoff-ms:200}") long maxBackoffMs) {
+        this.requiredTemplate = new TransactionTemplate(transactionManager);
+        this.requiresNewTemplate = new TransactionTemplate(transactionManager);
+        this.requiresNewTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseBackoffMs = baseBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    // Join the caller's transaction if there is one, otherwise run (and retry) in a transaction of its own
+    public <T> T execute(Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+        return retry(requiredTemplate, work);
+    }
+
+    // Always run (and retry) in a fresh transaction, suspending the caller's if there is one
+    public <T> T executeInNewTransaction(Supplier<T> work) {
+        return retry(requiresNewTemplate, work);
+    }
+
+    public long getConflictCount() {
+        return conflicts.get();
+    }
+
+    public long getExhaustedCount() {
+        return exhausted.get();
+    }
+
+    private <T> T retry(TransactionTemplate template, Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return template.execute(status -> work.get());
+            } catch (RuntimeException e) {
+                if (!isConflict(e)) {
+                    throw e;
+                }
+                conflicts.incrementAndGet();
+                if (attempt >= maxAttempts) {
+                    exhausted.incrementAndGet();
+                    logger.warn("Giving up after {} conflicting attempts: {}", attempt, e.getMessage());
+                    throw e;
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt - 1, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while backing off after a write conflict");
+        }
+    }
+
+    private static boolean isConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockingFailureException
+                    || cause instanceof OptimisticLockException
+                    || cause instanceof StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,15 +1,25 @@
 package com.InvestaTrack.services;
 
+import com.InvestaTrack.events.PortfolioValuationChangedEvent;
 import com.InvestaTrack.models.Portfolio;
 import com.InvestaTrack.models.Position;
 import com.InvestaTrack.models.User;
 import com.InvestaTrack.repos.PortfolioRepository;
 import com.InvestaTrack.repos.PositionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -17,17 +27,31 @@ import java.util.HashMap;
 @Transactional
 public class PortfolioService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PortfolioService.class);
+
     private final PortfolioRepository portfolioRepository;
     private final PositionRepository positionRepository;
     private final UserService userService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OptimisticRetry optimisticRetry;
+    private final TransactionSummaryService transactionSummaryService;
+    private final TaxLotService taxLotService;
 
     // Constructor injection
     public PortfolioService(PortfolioRepository portfolioRepository,
                             PositionRepository positionRepository,
-                            UserService userService) {
+                            UserService userService,
+                            ApplicationEventPublisher eventPublisher,
+                            OptimisticRetry optimisticRetry,
+                            TransactionSummaryService transactionSummaryService,
+                            TaxLotService taxLotService) {
         this.portfolioRepository = portfolioRepository;
         this.positionRepository = positionRepository;
         this.userService = userService;
+        this.eventPublisher = eventPublisher;
+        this.optimisticRetry = optimisticRetry;
+        this.transactionSummaryService = transactionSummaryService;
+        this.taxLotService = taxLotService;
     }
 
     // Get all portfolios with user data
@@ -41,6 +65,11 @@ public class PortfolioService {
                 .orElseThrow(() -> new RuntimeException("Portfolio not found with id: " + id));
     }
 
+    // Get portfolios by IDs (missing IDs are skipped)
+    public List<Portfolio> getPortfoliosByIds(Collection<Long> ids) {
+        return portfolioRepository.findAllById(ids);
+    }
+
     // Get portfolios by user ID
     public List<Portfolio> getPortfoliosByUserId(Long userId) {
         return portfolioRepository.findByUserIdWithUser(userId);
@@ -74,6 +103,8 @@ public class PortfolioService {
         if (portfolioDetails.getDescription() != null) {
             portfolio.setDescription(portfolioDetails.getDescription());
         }
+        BigDecimal previousValue = portfolio.getTotalValue();
+        BigDecimal previousCost = portfolio.getTotalCost();
         if (portfolioDetails.getTotalValue() != null) {
             portfolio.setTotalValue(portfolioDetails.getTotalValue());
         }
@@ -82,6 +113,7 @@ public class PortfolioService {
         }
 
         Portfolio updatedPortfolio = portfolioRepository.save(portfolio);
+        publishValuationIfChanged(updatedPortfolio, previousValue, previousCost);
         return getPortfolioById(updatedPortfolio.getPortfolioID());
     }
 
@@ -91,6 +123,8 @@ public class PortfolioService {
             throw new RuntimeException("Portfolio not found with id: " + id);
         }
         portfolioRepository.deleteById(id);
+        transactionSummaryService.deleteSummary(id);
+        taxLotService.deleteLots(id);
     }
 
     // Get portfolio count for user
@@ -98,23 +132,115 @@ public class PortfolioService {
         return portfolioRepository.countByUserId(userId);
     }
 
-    // Update portfolio values based on positions
+    // Reconcile one portfolio's totals with its positions (trades maintain them by delta).
+    // Re-read and retried if a trade or revaluation updates the portfolio at the same time.
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Portfolio updatePortfolioValues(Long portfolioId) {
-        Portfolio portfolio = getPortfolioById(portfolioId);
-        List<Position> positions = positionRepository.findActivePositions(portfolioId);
+        return optimisticRetry.execute(() -> {
+            Portfolio portfolio = getPortfolioById(portfolioId);
+            Object[] totals = positionRepository.sumActiveTotals(portfolioId).get(0);
 
-        BigDecimal totalValue = BigDecimal.ZERO;
-        BigDecimal totalCost = BigDecimal.ZERO;
+            BigDecimal previousValue = portfolio.getTotalValue();
+            BigDecimal previousCost = portfolio.getTotalCost();
+            portfolio.setTotalValue((BigDecimal) totals[0]);
+            portfolio.setTotalCost((BigDecimal) totals[1]);
 
-        for (Position position : positions) {
-            totalValue = totalValue.add(position.getCurrentValue());
-            totalCost = totalCost.add(position.getTotalCost());
+            Portfolio savedPortfolio = portfolioRepository.save(portfolio);
+            publishValuationIfChanged(savedPortfolio, previousValue, previousCost);
+            return savedPortfolio;
+        });
+    }
+
+    // Reconcile every portfolio's totals with its positions, each portfolio in its own short transaction.
+    // Safety net for the delta-maintained totals; returns how many portfolios were corrected.
+    @Scheduled(cron = "${investatrack.portfolios.reconcile-cron:-}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int reconcileAllPortfolios() {
+        int corrected = 0;
+        for (Long portfolioId : portfolioRepository.findAllIds()) {
+            if (optimisticRetry.executeInNewTransaction(() -> reconcile(portfolioId))) {
+                corrected++;
+            }
         }
+        return corrected;
+    }
 
+    // Load the portfolio before summing its positions: a trade committing in between is then either in
+    // both reads or moves the version, so the write below conflicts and is retried instead of undoing it
+    private boolean reconcile(Long portfolioId) {
+        Portfolio portfolio = portfolioRepository.findById(portfolioId).orElse(null);
+        if (portfolio == null) {
+            return false;
+        }
+        Object[] totals = positionRepository.sumActiveTotals(portfolioId).get(0);
+        BigDecimal totalValue = (BigDecimal) totals[0];
+        BigDecimal totalCost = (BigDecimal) totals[1];
+
+        BigDecimal previousValue = portfolio.getTotalValue();
+        BigDecimal previousCost = portfolio.getTotalCost();
+        if (sameAmount(previousValue, totalValue) && sameAmount(previousCost, totalCost)) {
+            return false;
+        }
+        logger.warn("Portfolio {} totals drifted (value {} -> {}, cost {} -> {}); corrected",
+                portfolioId, previousValue, totalValue, previousCost, totalCost);
         portfolio.setTotalValue(totalValue);
         portfolio.setTotalCost(totalCost);
+        portfolioRepository.saveAndFlush(portfolio);
+        publishValuationIfChanged(portfolio, previousValue, previousCost);
+        return true;
+    }
+
+    // Apply value deltas to portfolio totals without rescanning positions
+    public void applyValueDeltas(Map<Long, BigDecimal> valueDeltas) {
+        applyDeltas(valueDeltas, Map.of());
+    }
+
+    // Apply value and cost deltas to portfolio totals without rescanning positions.
+    // Deltas are added in the database, so concurrent trades and revaluations never conflict on
+    // the portfolio row; the version still moves so entity writers such as reconcile notice it.
+    public void applyDeltas(Map<Long, BigDecimal> valueDeltas, Map<Long, BigDecimal> costDeltas) {
+        Set<Long> portfolioIds = new HashSet<>(valueDeltas.keySet());
+        portfolioIds.addAll(costDeltas.keySet());
+        LocalDateTime now = LocalDateTime.now();
+        for (Long portfolioId : portfolioIds) {
+            BigDecimal valueDelta = valueDeltas.getOrDefault(portfolioId, BigDecimal.ZERO);
+            BigDecimal costDelta = costDeltas.getOrDefault(portfolioId, BigDecimal.ZERO);
+            if (valueDelta.signum() == 0 && costDelta.signum() == 0) {
+                continue;
+            }
+            List<Object[]> totals = portfolioRepository.addToTotals(portfolioId, valueDelta, costDelta, now);
+            if (totals.isEmpty()) {
+                continue;
+            }
+            // New totals come back from the UPDATE itself, so no re-read of the row. A managed copy
+            // loaded earlier in this transaction keeps its old version and would conflict if written.
+            BigDecimal totalValue = (BigDecimal) totals.get(0)[0];
+            BigDecimal totalCost = (BigDecimal) totals.get(0)[1];
+            publishValuation(portfolioId, totalValue, totalCost, totalValue.subtract(valueDelta),
+                    totalCost.subtract(costDelta));
+        }
+    }
+
+    // Notify valuation listeners (e.g. live streams) when a portfolio's totals moved
+    private void publishValuationIfChanged(Portfolio portfolio, BigDecimal previousValue, BigDecimal previousCost) {
+        publishValuation(portfolio.getPortfolioID(), portfolio.getTotalValue(), portfolio.getTotalCost(),
+                previousValue, previousCost);
+    }
+
+    private void publishValuation(Long portfolioId, BigDecimal totalValue, BigDecimal totalCost,
+                                  BigDecimal previousValue, BigDecimal previousCost) {
+        if (sameAmount(previousValue, totalValue) && sameAmount(previousCost, totalCost)) {
+            return;
+        }
+        BigDecimal valueChange = totalValue != null && previousValue != null
+                ? totalValue.subtract(previousValue)
+                : BigDecimal.ZERO;
+        eventPublisher.publishEvent(new PortfolioValuationChangedEvent(portfolioId,
+                totalValue, totalCost, valueChange, LocalDateTime.now()));
+    }
 
-        return portfolioRepository.save(portfolio);
+    private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
     }
 
     // Get portfolio summary with statistics
@@ -0,0 +1,195 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.events.PortfolioValuationChangedEvent;
+import com.InvestaTrack.models.Portfolio;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Server-Sent Events fan-out of portfolio valuation changes.
+// Subscribers are async SseEmitters, so an idle connection holds no request thread.
+// One connection can follow several portfolios. Committed valuation changes are conflated per
+// portfolio and handed to that portfolio's single-thread fan-out lane, which serializes each
+// payload once and writes the same frame to every subscriber, so frames for a portfolio never
+// overtake each other.
+@Service
+public class PortfolioStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PortfolioStreamService.class);
+
+    private static final String EVENT_NAME = "valuation";
+
+    private final ObjectMapper objectMapper;
+    private final long emitterTimeoutMs;
+    private final List<ExecutorService> fanOutLanes = new ArrayList<>();
+
+    private final Map<Long, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    // emitter -> the portfolios it follows
+    private final Map<SseEmitter, List<Long>> connections = new ConcurrentHashMap<>();
+    private final Map<Long, PortfolioValuationChangedEvent> pending = new ConcurrentHashMap<>();
+
+    public PortfolioStreamService(ObjectMapper objectMapper,
+                                  @Value("${investatrack.stream.timeout-ms:1800000}") long emitterTimeoutMs,
+                                  @Value("${investatrack.stream.fan-out-threads:2}") int fanOutThreads) {
+        this.objectMapper = objectMapper;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        for (int i = 0; i < Math.max(1, fanOutThreads); i++) {
+            String name = "portfolio-stream-" + i;
+            fanOutLanes.add(Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            }));
+        }
+    }
+
+    public SseEmitter subscribe(Portfolio portfolio) {
+        return subscribe(List.of(portfolio));
+    }
+
+    // Register one subscriber for several portfolios. Each portfolio's current valuation is sent
+    // and the subscriber registered on that portfolio's lane, so no push can overtake the snapshot.
+    public SseEmitter subscribe(List<Portfolio> portfolios) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        List<Long> portfolioIds = portfolios.stream().map(Portfolio::getPortfolioID).distinct().toList();
+        connections.put(emitter, portfolioIds);
+        emitter.onCompletion(() -> unsubscribe(emitter));
+        emitter.onTimeout(() -> unsubscribe(emitter));
+        emitter.onError(e -> unsubscribe(emitter));
+
+        for (Portfolio portfolio : portfolios) {
+            Long portfolioId = portfolio.getPortfolioID();
+            PortfolioValuationChangedEvent snapshot = new PortfolioValuationChangedEvent(portfolioId,
+                    portfolio.getTotalValue(), portfolio.getTotalCost(), BigDecimal.ZERO, LocalDateTime.now());
+            laneFor(portfolioId).execute(() -> {
+                if (!connections.containsKey(emitter)) {
+                    return;
+                }
+                try {
+                    emitter.send(SseEmitter.event().name(EVENT_NAME).data(toJson(snapshot), MediaType.APPLICATION_JSON));
+                    subscribers.computeIfAbsent(portfolioId, id -> ConcurrentHashMap.newKeySet()).add(emitter);
+                    if (!connections.containsKey(emitter)) {
+                        // Closed while registering
+                        unsubscribe(emitter, List.of(portfolioId));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    unsubscribe(emitter);
+                    emitter.completeWithError(e);
+                }
+            });
+        }
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return connections.size();
+    }
+
+    // Runs once the revaluation or trade that changed the portfolio has committed
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onValuationChanged(PortfolioValuationChangedEvent event) {
+        Long portfolioId = event.getPortfolioId();
+        if (!subscribers.containsKey(portfolioId)) {
+            return;
+        }
+        // Only the first change of a burst schedules a push; later ones fold into it
+        boolean[] schedulePush = new boolean[1];
+        pending.compute(portfolioId, (id, queued) -> {
+            if (queued == null) {
+                schedulePush[0] = true;
+                return event;
+            }
+            return queued.mergeWith(event);
+        });
+        if (schedulePush[0]) {
+            laneFor(portfolioId).execute(() -> push(portfolioId));
+        }
+    }
+
+    // Keep idle connections alive through proxies and detect clients that went away
+    @Scheduled(fixedDelayString = "${investatrack.stream.heartbeat-interval-ms:15000}")
+    public void sendHeartbeats() {
+        for (SseEmitter emitter : connections.keySet()) {
+            try {
+                emitter.send(SseEmitter.event().comment("keepalive"));
+            } catch (IOException | IllegalStateException e) {
+                unsubscribe(emitter);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOutLanes.forEach(ExecutorService::shutdownNow);
+        connections.keySet().forEach(SseEmitter::complete);
+        connections.clear();
+        subscribers.clear();
+    }
+
+    private ExecutorService laneFor(Long portfolioId) {
+        return fanOutLanes.get(Math.floorMod(portfolioId.hashCode(), fanOutLanes.size()));
+    }
+
+    private void push(Long portfolioId) {
+        PortfolioValuationChangedEvent event = pending.remove(portfolioId);
+        Set<SseEmitter> emitters = subscribers.get(portfolioId);
+        if (event == null || emitters == null || emitters.isEmpty()) {
+            return;
+        }
+
+        String json;
+        try {
+            json = toJson(event);
+        } catch (JsonProcessingException e) {
+            logger.warn("Could not serialize valuation for portfolio {}: {}", portfolioId, e.getMessage());
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name(EVENT_NAME).data(json, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                unsubscribe(emitter);
+            }
+        }
+    }
+
+    private void unsubscribe(SseEmitter emitter) {
+        List<Long> portfolioIds = connections.remove(emitter);
+        if (portfolioIds != null) {
+            unsubscribe(emitter, portfolioIds);
+        }
+    }
+
+    private void unsubscribe(SseEmitter emitter, List<Long> portfolioIds) {
+        for (Long portfolioId : portfolioIds) {
+            subscribers.computeIfPresent(portfolioId, (id, emitters) -> {
+                emitters.remove(emitter);
+                return emitters.isEmpty() ? null : emitters;
+            });
+        }
+    }
+
+    private String toJson(PortfolioValuationChangedEvent event) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(event);
+    }
+}
@@ -1,19 +1,31 @@
 package com.InvestaTrack.services;
 
 import com.InvestaTrack.models.Position;
+import com.InvestaTrack.models.PositionSnapshot;
 import com.InvestaTrack.models.Transaction;
 import com.InvestaTrack.models.Transaction.TransactionType;
 import com.InvestaTrack.models.Portfolio;
 import com.InvestaTrack.models.Stock;
 import com.InvestaTrack.repos.PositionRepository;
+import com.InvestaTrack.repos.PositionSnapshotRepository;
 import com.InvestaTrack.repos.TransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -21,19 +33,44 @@ import java.util.Optional;
 public class PositionService {
 
     private final PositionRepository positionRepository;
+    private final PositionSnapshotRepository snapshotRepository;
     private final TransactionRepository transactionRepository;
     private final PortfolioService portfolioService;
     private final StockService stockService;
+    private final PriceBook priceBook;
+    private final HoldingsIndex holdingsIndex;
+    private final OptimisticRetry optimisticRetry;
+    private final int snapshotInterval;
 
     // Constructor injection with @Lazy to avoid circular dependency
     public PositionService(PositionRepository positionRepository,
+                           PositionSnapshotRepository snapshotRepository,
                            TransactionRepository transactionRepository,
                            @Lazy PortfolioService portfolioService,
-                           StockService stockService) {
+                           StockService stockService,
+                           PriceBook priceBook,
+                           HoldingsIndex holdingsIndex,
+                           OptimisticRetry optimisticRetry,
+                           @Value("${investatrack.positions.snapshot-interval:1000}") int snapshotInterval) {
         this.positionRepository = positionRepository;
+        this.snapshotRepository = snapshotRepository;
         this.transactionRepository = transactionRepository;
         this.portfolioService = portfolioService;
         this.stockService = stockService;
+        this.priceBook = priceBook;
+        this.holdingsIndex = holdingsIndex;
+        this.optimisticRetry = optimisticRetry;
+        this.snapshotInterval = Math.max(1, snapshotInterval);
+    }
+
+    // Rebuild the stock -> holders index from the positions table at startup
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmHoldingsIndex() {
+        holdingsIndex.clear();
+        for (Object[] row : positionRepository.findActiveHoldings()) {
+            holdingsIndex.update((Long) row[0], (Long) row[1], (Long) row[2], 1);
+        }
     }
 
     // Get all positions
@@ -63,13 +100,53 @@ public class PositionService {
         return position.orElse(null);
     }
 
-    // Update position from transaction
+    // Shares a new sell dated at the given time can take: what was held then, less whatever the
+    // later trades still need, so that no later sell is left selling shares that are gone
+    public int getSharesAvailableAt(Long portfolioId, Long stockId, LocalDateTime date) {
+        // A new trade sorts after every stored trade with the same date
+        return getSharesAvailableAfter(portfolioId, stockId, date, Long.MAX_VALUE);
+    }
+
+    // Same, just after the stored trade at the given (date, id) key
+    public int getSharesAvailableAfter(Long portfolioId, Long stockId, LocalDateTime date, Long transactionId) {
+        Position position = getPositionByPortfolioAndStock(portfolioId, stockId);
+        int quantity = position != null ? position.getQuantity() : 0;
+
+        int change = 0;
+        int lowest = 0;
+        for (Transaction later : transactionRepository.findForReplayAfter(portfolioId, stockId, date, transactionId)) {
+            change += later.getTransactionType() == TransactionType.BUY ? later.getQuantity() : -later.getQuantity();
+            lowest = Math.min(lowest, change);
+        }
+        return Math.max(0, quantity - change + lowest);
+    }
+
+    // Update position from transaction; the portfolio totals move by the position's change.
+    // Called on its own it retries version conflicts; inside a trade the trade's transaction retries.
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Position updatePositionFromTransaction(Transaction transaction) {
-        Position position = getOrCreatePosition(
-                transaction.getPortfolio().getPortfolioID(),
-                transaction.getStock().getStockID()
-        );
+        return optimisticRetry.execute(() -> {
+            Position position = getOrCreatePosition(
+                    transaction.getPortfolio().getPortfolioID(),
+                    transaction.getStock().getStockID()
+            );
+            BigDecimal previousValue = position.getCurrentValue();
+            BigDecimal previousCost = position.getTotalCost();
+
+            applyTransaction(position, transaction);
 
+            // Update current value
+            updateCurrentValue(position);
+
+            Position savedPosition = positionRepository.save(position);
+            holdingsIndex.update(savedPosition);
+            applyPortfolioDelta(savedPosition, previousValue, previousCost);
+            return savedPosition;
+        });
+    }
+
+    // Apply a trade to a position's quantity and cost basis (average cost method), without saving
+    public void applyTransaction(Position position, Transaction transaction) {
         if (transaction.getTransactionType() == TransactionType.BUY) {
             // Calculate new total cost
             BigDecimal newTotalCost = position.getTotalCost()
@@ -111,11 +188,6 @@ public class PositionService {
                 // Average cost remains the same for sells
             }
         }
-
-        // Update current value
-        position.updateCurrentValue();
-
-        return positionRepository.save(position);
     }
 
     // Get or create position
@@ -132,58 +204,82 @@ public class PositionService {
         Stock stock = stockService.getStockById(stockId);
 
         Position newPosition = new Position(portfolio, stock);
-        return positionRepository.save(newPosition);
+        try {
+            // Flushed now so a concurrent first trade on the pair fails here, as a retryable conflict
+            return positionRepository.saveAndFlush(newPosition);
+        } catch (DataIntegrityViolationException e) {
+            throw new OptimisticLockingFailureException("Position for portfolio " + portfolioId + " and stock "
+                    + stockId + " was created concurrently", e);
+        }
     }
 
-    // Recalculate position from all transactions
+    // Rebuild a position from all of its transactions, dropping its snapshots first
     public Position recalculatePosition(Long portfolioId, Long stockId) {
-        Position position = getOrCreatePosition(portfolioId, stockId);
-
-        // Get all transactions for this portfolio and stock
-        List<Transaction> transactions = transactionRepository
-                .findByPortfolioPortfolioIDAndStockStockID(portfolioId, stockId);
+        return recalculatePosition(portfolioId, stockId, null);
+    }
 
-        // Reset position
-        position.setQuantity(0);
-        position.setTotalCost(BigDecimal.ZERO);
-        position.setAverageCost(BigDecimal.ZERO);
+    // Recalculate a position after the given trade was added or removed; the portfolio totals move
+    // by the position's change. Snapshots from that trade's (date, id) key on are stale and dropped,
+    // and only the transactions after the newest remaining snapshot are replayed.
+    public Position recalculatePosition(Long portfolioId, Long stockId, Transaction changed) {
+        Position position = getOrCreatePosition(portfolioId, stockId);
+        BigDecimal previousValue = position.getCurrentValue();
+        BigDecimal previousCost = position.getTotalCost();
 
-        BigDecimal totalCost = BigDecimal.ZERO;
-        int totalQuantity = 0;
+        if (changed == null) {
+            snapshotRepository.deleteByPair(portfolioId, stockId);
+        } else {
+            snapshotRepository.deleteFrom(portfolioId, stockId, changed.getTransactionDate(), changed.getTransactionId());
+        }
+        PositionSnapshot snapshot = snapshotRepository.findLatest(portfolioId, stockId, PageRequest.of(0, 1))
+                .stream().findFirst().orElse(null);
+
+        List<Transaction> transactions;
+        long replayed;
+        if (snapshot == null) {
+            position.setQuantity(0);
+            position.setTotalCost(BigDecimal.ZERO);
+            position.setAverageCost(BigDecimal.ZERO);
+            transactions = transactionRepository.findForReplay(portfolioId, stockId);
+            replayed = 0;
+        } else {
+            position.setQuantity(snapshot.getQuantity());
+            position.setTotalCost(snapshot.getTotalCost());
+            position.setAverageCost(snapshot.getAverageCost());
+            transactions = transactionRepository.findForReplayAfter(portfolioId, stockId,
+                    snapshot.getLastTransactionDate(), snapshot.getLastTransactionId());
+            replayed = snapshot.getTransactionCount();
+        }
 
-        // Recalculate from all transactions
+        // Same average-cost math as live trades, so a partial sell removes its share of the running cost
+        List<PositionSnapshot> snapshots = new ArrayList<>();
         for (Transaction transaction : transactions) {
-            if (transaction.getTransactionType() == TransactionType.BUY) {
-                totalQuantity += transaction.getQuantity();
-                totalCost = totalCost.add(transaction.getTotalAmount()).add(transaction.getFees());
-            } else { // SELL
-                totalQuantity -= transaction.getQuantity();
-                if (totalQuantity > 0) {
-                    // Proportionally reduce cost
-                    BigDecimal costReduction = position.getAverageCost()
-                            .multiply(BigDecimal.valueOf(transaction.getQuantity()));
-                    totalCost = totalCost.subtract(costReduction);
-                } else if (totalQuantity == 0) {
-                    totalCost = BigDecimal.ZERO;
-                }
+            applyTransaction(position, transaction);
+            replayed++;
+            if (replayed % snapshotInterval == 0) {
+                snapshots.add(new PositionSnapshot(position, transaction, replayed));
             }
         }
-
-        position.setQuantity(totalQuantity);
-        position.setTotalCost(totalCost);
-
-        if (totalQuantity > 0) {
-            position.setAverageCost(totalCost.divide(
-                    BigDecimal.valueOf(totalQuantity), 2, RoundingMode.HALF_UP
-            ));
-        } else {
-            position.setAverageCost(BigDecimal.ZERO);
-        }
+        snapshotRepository.saveAll(snapshots);
 
         // Update current value
-        position.updateCurrentValue();
+        updateCurrentValue(position);
 
-        return positionRepository.save(position);
+        Position savedPosition = positionRepository.save(position);
+        holdingsIndex.update(savedPosition);
+        applyPortfolioDelta(savedPosition, previousValue, previousCost);
+        return savedPosition;
+    }
+
+    // Move the owning portfolio's totals by this position's before/after difference (O(1) per trade)
+    private void applyPortfolioDelta(Position position, BigDecimal previousValue, BigDecimal previousCost) {
+        Long portfolioId = position.getPortfolio().getPortfolioID();
+        BigDecimal valueDelta = position.getCurrentValue().subtract(previousValue);
+        BigDecimal costDelta = position.getTotalCost().subtract(previousCost);
+        if (valueDelta.signum() == 0 && costDelta.signum() == 0) {
+            return;
+        }
+        portfolioService.applyDeltas(Map.of(portfolioId, valueDelta), Map.of(portfolioId, costDelta));
     }
 
     // Update all position values for a portfolio
@@ -191,11 +287,21 @@ public class PositionService {
         List<Position> positions = positionRepository.findByPortfolioPortfolioID(portfolioId);
 
         for (Position position : positions) {
-            position.updateCurrentValue();
+            updateCurrentValue(position);
             positionRepository.save(position);
         }
     }
 
+    // Revalue a position from the price book, only loading the stock if the price is unknown
+    private void updateCurrentValue(Position position) {
+        BigDecimal price = priceBook.getPrice(position.getStock().getStockID());
+        if (price != null) {
+            position.updateCurrentValue(price);
+        } else {
+            position.updateCurrentValue();
+        }
+    }
+
     // Get portfolio positions summary
     public List<Position> getTopPositions(Long portfolioId, int limit) {
         List<Position> positions = positionRepository.findTopPositions(portfolioId);
@@ -208,7 +314,9 @@ public class PositionService {
     }
 
     public void deleteAllPositions() {
+        snapshotRepository.deleteAllInBatch();
         positionRepository.deleteAll();
+        holdingsIndex.clear();
     }
 
 }
\ No newline at end of file
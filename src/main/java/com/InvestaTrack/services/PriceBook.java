@@ -0,0 +1,108 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.models.Stock;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory latest price per stock. Kept in sync by StockService on every price write
+// so valuation code can read prices without going through Hibernate. Quotes are immutable
+// and swapped atomically, so readers never block writers.
+@Component
+public class PriceBook {
+
+    private final Map<Long, Quote> quotesById = new ConcurrentHashMap<>();
+    private final Map<String, Long> idsBySymbol = new ConcurrentHashMap<>();
+
+    // Record the latest price for a stock
+    public void put(Long stockId, String symbol, BigDecimal price, LocalDateTime updatedAt) {
+        if (stockId == null || symbol == null) {
+            return;
+        }
+        Quote previous = quotesById.put(stockId, new Quote(stockId, symbol, price, updatedAt));
+        if (previous != null && !previous.getSymbol().equals(symbol)) {
+            idsBySymbol.remove(previous.getSymbol(), stockId);
+        }
+        idsBySymbol.put(symbol, stockId);
+    }
+
+    // Record the current state of a stock entity
+    public void put(Stock stock) {
+        put(stock.getStockID(), stock.getSymbol(), stock.getCurrentPrice(), stock.getLastUpdated());
+    }
+
+    // Get the latest quote for a stock, or null if unknown
+    public Quote getQuote(Long stockId) {
+        return stockId != null ? quotesById.get(stockId) : null;
+    }
+
+    // Get the latest price for a stock, or null if unknown
+    public BigDecimal getPrice(Long stockId) {
+        Quote quote = getQuote(stockId);
+        return quote != null ? quote.getPrice() : null;
+    }
+
+    // Get the latest quote by symbol, or null if unknown
+    public Quote getQuoteBySymbol(String symbol) {
+        Long stockId = resolveSymbol(symbol);
+        return stockId != null ? quotesById.get(stockId) : null;
+    }
+
+    // Resolve a symbol to its stock ID without a database lookup
+    public Long resolveSymbol(String symbol) {
+        return symbol != null ? idsBySymbol.get(symbol.toUpperCase()) : null;
+    }
+
+    public Collection<Quote> getAllQuotes() {
+        return quotesById.values();
+    }
+
+    public int size() {
+        return quotesById.size();
+    }
+
+    public void remove(Long stockId) {
+        Quote removed = quotesById.remove(stockId);
+        if (removed != null) {
+            idsBySymbol.remove(removed.getSymbol(), stockId);
+        }
+    }
+
+    public void clear() {
+        quotesById.clear();
+        idsBySymbol.clear();
+    }
+
+    // Replace the whole book from the stocks table
+    public void rebuild(List<Stock> stocks) {
+        clear();
+        for (Stock stock : stocks) {
+            put(stock);
+        }
+    }
+
+    // Immutable price snapshot for a single stock
+    public static final class Quote {
+        private final Long stockId;
+        private final String symbol;
+        private final BigDecimal price;
+        private final LocalDateTime updatedAt;
+
+        public Quote(Long stockId, String symbol, BigDecimal price, LocalDateTime updatedAt) {
+            this.stockId = stockId;
+            this.symbol = symbol;
+            this.price = price;
+            this.updatedAt = updatedAt;
+        }
+
+        public Long getStockId() { return stockId; }
+        public String getSymbol() { return symbol; }
+        public BigDecimal getPrice() { return price; }
+        public LocalDateTime getUpdatedAt() { return updatedAt; }
+    }
+}
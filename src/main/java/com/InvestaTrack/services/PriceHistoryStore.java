@@ -0,0 +1,275 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.events.StockPriceChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Append-only, in-memory price history fed by every StockService price write.
+// Each symbol is stored as a series of blocks; inside a block timestamps and fixed-point
+// prices are delta-encoded as zigzag varints, so a tick typically costs 2-4 bytes.
+// Range reads binary-search the sealed blocks and only decode the blocks that overlap.
+// History is bounded: whole blocks older than retention-ms, or beyond max-points-per-symbol,
+// are dropped from the front of a series. Longer history lives in the persisted price bars.
+@Component
+public class PriceHistoryStore {
+
+    // Prices are stored as longs with 4 implied decimal places
+    public static final int PRICE_SCALE = 4;
+
+    private static final int POINTS_PER_BLOCK = 4096;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final Map<String, PriceSeries> seriesBySymbol = new ConcurrentHashMap<>();
+    private final long retentionMs;
+    private final long maxPointsPerSymbol;
+
+    public PriceHistoryStore(@Value("${investatrack.prices.history.retention-ms:604800000}") long retentionMs,
+                             @Value("${investatrack.prices.history.max-points-per-symbol:1000000}") long maxPointsPerSymbol) {
+        this.retentionMs = retentionMs;
+        this.maxPointsPerSymbol = Math.max(POINTS_PER_BLOCK, maxPointsPerSymbol);
+    }
+
+    // Only committed prices are recorded
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockPriceChanged(StockPriceChangedEvent event) {
+        append(event.getSymbol(), event.getTimestamp(), event.getPrice());
+    }
+
+    // Append a price point for a symbol
+    public void append(String symbol, LocalDateTime timestamp, BigDecimal price) {
+        if (symbol == null || timestamp == null || price == null) {
+            return;
+        }
+        long epochMillis = timestamp.atZone(ZONE).toInstant().toEpochMilli();
+        long fixedPrice = price.setScale(PRICE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        seriesBySymbol.computeIfAbsent(symbol.toUpperCase(), s -> new PriceSeries())
+                .append(epochMillis, fixedPrice, retentionMs, maxPointsPerSymbol);
+    }
+
+    // Drop expired blocks of symbols that stopped ticking, and series that are left empty
+    @Scheduled(fixedDelayString = "${investatrack.prices.history.purge-interval-ms:300000}")
+    public void purgeExpired() {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        seriesBySymbol.entrySet().removeIf(entry -> entry.getValue().dropBefore(cutoff));
+    }
+
+    public boolean hasHistory(String symbol) {
+        return symbol != null && seriesBySymbol.containsKey(symbol.toUpperCase());
+    }
+
+    // Number of points stored for a symbol
+    public long size(String symbol) {
+        PriceSeries series = symbol != null ? seriesBySymbol.get(symbol.toUpperCase()) : null;
+        return series != null ? series.size() : 0;
+    }
+
+    // Visit every point for a symbol in [from, to], oldest first. Null bounds are open.
+    public void forEachInRange(String symbol, LocalDateTime from, LocalDateTime to,
+                               PricePointVisitor visitor) throws IOException {
+        PriceSeries series = symbol != null ? seriesBySymbol.get(symbol.toUpperCase()) : null;
+        if (series == null) {
+            return;
+        }
+        long fromMillis = from != null ? from.atZone(ZONE).toInstant().toEpochMilli() : Long.MIN_VALUE;
+        long toMillis = to != null ? to.atZone(ZONE).toInstant().toEpochMilli() : Long.MAX_VALUE;
+        if (fromMillis > toMillis) {
+            return;
+        }
+        for (Block block : series.blocksOverlapping(fromMillis, toMillis)) {
+            if (!block.decode(fromMillis, toMillis, visitor)) {
+                return;
+            }
+        }
+    }
+
+    public void clear() {
+        seriesBySymbol.clear();
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZONE);
+    }
+
+    @FunctionalInterface
+    public interface PricePointVisitor {
+        void visit(long epochMillis, BigDecimal price) throws IOException;
+    }
+
+    // All blocks for one symbol; sealed blocks are immutable, the tail block is appended under lock
+    private static final class PriceSeries {
+        private final List<Block> sealed = new ArrayList<>();
+        private Block tail = new Block();
+        private long size;
+
+        synchronized void append(long epochMillis, long fixedPrice, long retentionMs, long maxPoints) {
+            // Keep timestamps non-decreasing so block ranges stay searchable
+            if (tail.count > 0 && epochMillis < tail.lastMillis) {
+                epochMillis = tail.lastMillis;
+            } else if (tail.count == 0 && !sealed.isEmpty()) {
+                epochMillis = Math.max(epochMillis, sealed.get(sealed.size() - 1).lastMillis);
+            }
+            tail.append(epochMillis, fixedPrice);
+            size++;
+            if (tail.count == POINTS_PER_BLOCK) {
+                sealed.add(tail.seal());
+                tail = new Block();
+                // Enforce the bounds a block at a time, oldest first
+                dropBefore(epochMillis - retentionMs);
+                while (size > maxPoints && !sealed.isEmpty()) {
+                    size -= sealed.remove(0).count;
+                }
+            }
+        }
+
+        // Remove sealed blocks that end before the cutoff (and the tail too, if it does);
+        // returns true when nothing is left
+        synchronized boolean dropBefore(long cutoffMillis) {
+            int expired = 0;
+            while (expired < sealed.size() && sealed.get(expired).lastMillis < cutoffMillis) {
+                size -= sealed.get(expired).count;
+                expired++;
+            }
+            sealed.subList(0, expired).clear();
+            if (sealed.isEmpty() && tail.count > 0 && tail.lastMillis < cutoffMillis) {
+                size -= tail.count;
+                tail = new Block();
+            }
+            return size == 0;
+        }
+
+        synchronized long size() {
+            return size;
+        }
+
+        // Snapshot of the blocks that may contain points in [fromMillis, toMillis]
+        synchronized List<Block> blocksOverlapping(long fromMillis, long toMillis) {
+            List<Block> result = new ArrayList<>();
+
+            // First sealed block whose last timestamp is >= fromMillis
+            int low = 0;
+            int high = sealed.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sealed.get(mid).lastMillis < fromMillis) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (int i = low; i < sealed.size(); i++) {
+                Block block = sealed.get(i);
+                if (block.firstMillis > toMillis) {
+                    return result;
+                }
+                result.add(block);
+            }
+            if (tail.count > 0 && tail.lastMillis >= fromMillis && tail.firstMillis <= toMillis) {
+                result.add(tail.seal());
+            }
+            return result;
+        }
+    }
+
+    // Up to POINTS_PER_BLOCK points: absolute first point, then zigzag-varint deltas
+    private static final class Block {
+        private byte[] data = new byte[64];
+        private int length;
+        private int count;
+        private long firstMillis;
+        private long lastMillis;
+        private long firstPrice;
+        private long lastPrice;
+
+        void append(long epochMillis, long fixedPrice) {
+            if (count == 0) {
+                firstMillis = epochMillis;
+                firstPrice = fixedPrice;
+            } else {
+                writeVarLong(epochMillis - lastMillis);
+                writeVarLong(zigzag(fixedPrice - lastPrice));
+            }
+            lastMillis = epochMillis;
+            lastPrice = fixedPrice;
+            count++;
+        }
+
+        // Immutable copy trimmed to the bytes actually used
+        Block seal() {
+            Block copy = new Block();
+            copy.data = Arrays.copyOf(data, length);
+            copy.length = length;
+            copy.count = count;
+            copy.firstMillis = firstMillis;
+            copy.lastMillis = lastMillis;
+            copy.firstPrice = firstPrice;
+            copy.lastPrice = lastPrice;
+            return copy;
+        }
+
+        // Decode points in range; returns false once the range end has been passed
+        boolean decode(long fromMillis, long toMillis, PricePointVisitor visitor) throws IOException {
+            long millis = firstMillis;
+            long price = firstPrice;
+            int offset = 0;
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    long value = 0;
+                    int shift = 0;
+                    byte b;
+                    do {
+                        b = data[offset++];
+                        value |= (long) (b & 0x7F) << shift;
+                        shift += 7;
+                    } while ((b & 0x80) != 0);
+                    millis += value;
+
+                    value = 0;
+                    shift = 0;
+                    do {
+                        b = data[offset++];
+                        value |= (long) (b & 0x7F) << shift;
+                        shift += 7;
+                    } while ((b & 0x80) != 0);
+                    price += (value >>> 1) ^ -(value & 1);
+                }
+                if (millis > toMillis) {
+                    return false;
+                }
+                if (millis >= fromMillis) {
+                    visitor.visit(millis, BigDecimal.valueOf(price, PRICE_SCALE));
+                }
+            }
+            return true;
+        }
+
+        private void writeVarLong(long value) {
+            if (length + 10 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while ((value & ~0x7FL) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+}
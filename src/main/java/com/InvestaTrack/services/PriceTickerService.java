@@ -0,0 +1,285 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.events.StockPriceChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Live price ticker for WebSocket clients subscribed to arbitrary symbols.
+// The price update path only records the latest tick per symbol. A scheduled flush hands
+// those ticks to each subscribed client's pending map, where a newer price replaces an older
+// one, and a fan-out pool sends each client one batched frame at a time. A slow client just
+// accumulates conflated prices; it never blocks the update path or other clients.
+@Service
+public class PriceTickerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceTickerService.class);
+
+    private final PriceBook priceBook;
+    private final ObjectMapper objectMapper;
+    private final int maxSymbolsPerClient;
+    private final int sendTimeLimitMs;
+    private final int sendBufferLimitBytes;
+    private final ExecutorService sendExecutor;
+
+    private final Map<String, TickerClient> clientsBySessionId = new ConcurrentHashMap<>();
+    private final Map<String, Set<TickerClient>> clientsBySymbol = new ConcurrentHashMap<>();
+    private final Map<String, Tick> dirtyTicks = new ConcurrentHashMap<>();
+
+    public PriceTickerService(PriceBook priceBook,
+                              ObjectMapper objectMapper,
+                              @Value("${investatrack.ticker.max-symbols-per-client:500}") int maxSymbolsPerClient,
+                              @Value("${investatrack.ticker.send-time-limit-ms:10000}") int sendTimeLimitMs,
+                              @Value("${investatrack.ticker.send-buffer-limit-bytes:524288}") int sendBufferLimitBytes,
+                              @Value("${investatrack.ticker.send-threads:2}") int sendThreads) {
+        this.priceBook = priceBook;
+        this.objectMapper = objectMapper;
+        this.maxSymbolsPerClient = maxSymbolsPerClient;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.sendBufferLimitBytes = sendBufferLimitBytes;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sendExecutor = Executors.newFixedThreadPool(sendThreads, r -> {
+            Thread thread = new Thread(r, "price-ticker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void register(WebSocketSession session) {
+        WebSocketSession safeSession = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, sendBufferLimitBytes);
+        clientsBySessionId.put(session.getId(), new TickerClient(safeSession));
+    }
+
+    public void unregister(WebSocketSession session) {
+        TickerClient client = clientsBySessionId.remove(session.getId());
+        if (client != null) {
+            for (String symbol : client.symbols) {
+                removeFromSymbol(symbol, client);
+            }
+        }
+    }
+
+    // Subscribe to known symbols and queue their current prices; returns the reply frame.
+    // The queued snapshot goes out with sendPending once the reply has been sent.
+    public Map<String, Object> subscribe(WebSocketSession session, Collection<String> symbols) {
+        TickerClient client = clientsBySessionId.get(session.getId());
+        if (client == null) {
+            return errorFrame("Session is not registered");
+        }
+
+        List<String> subscribed = new ArrayList<>();
+        List<String> unknown = new ArrayList<>();
+        for (String raw : symbols) {
+            String symbol = raw == null ? "" : raw.trim().toUpperCase(Locale.ROOT);
+            PriceBook.Quote quote = priceBook.getQuoteBySymbol(symbol);
+            if (quote == null) {
+                unknown.add(symbol);
+                continue;
+            }
+            if (!client.symbols.contains(symbol) && client.symbols.size() >= maxSymbolsPerClient) {
+                return errorFrame("Subscription limit of " + maxSymbolsPerClient + " symbols reached");
+            }
+            if (client.symbols.add(symbol)) {
+                clientsBySymbol.computeIfAbsent(symbol, s -> ConcurrentHashMap.newKeySet()).add(client);
+            }
+            if (quote.getPrice() != null) {
+                client.pending.put(symbol, new Tick(symbol, quote.getPrice(), quote.getUpdatedAt()));
+            }
+            subscribed.add(symbol);
+        }
+
+        Map<String, Object> reply = new LinkedHashMap<>();
+        reply.put("type", "subscribed");
+        reply.put("symbols", subscribed);
+        if (!unknown.isEmpty()) {
+            reply.put("unknown", unknown);
+        }
+        return reply;
+    }
+
+    public Map<String, Object> unsubscribe(WebSocketSession session, Collection<String> symbols) {
+        TickerClient client = clientsBySessionId.get(session.getId());
+        if (client == null) {
+            return errorFrame("Session is not registered");
+        }
+        List<String> removed = new ArrayList<>();
+        for (String raw : symbols) {
+            String symbol = raw == null ? "" : raw.trim().toUpperCase(Locale.ROOT);
+            if (client.symbols.remove(symbol)) {
+                removeFromSymbol(symbol, client);
+                client.pending.remove(symbol);
+                removed.add(symbol);
+            }
+        }
+        Map<String, Object> reply = new LinkedHashMap<>();
+        reply.put("type", "unsubscribed");
+        reply.put("symbols", removed);
+        return reply;
+    }
+
+    public Map<String, Object> errorFrame(String message) {
+        Map<String, Object> frame = new LinkedHashMap<>();
+        frame.put("type", "error");
+        frame.put("message", message);
+        return frame;
+    }
+
+    // Send a control frame (reply or error) straight to a session
+    public void sendFrame(WebSocketSession session, Map<String, Object> frame) {
+        TickerClient client = clientsBySessionId.get(session.getId());
+        WebSocketSession target = client != null ? client.session : session;
+        try {
+            target.sendMessage(new TextMessage(objectMapper.writeValueAsString(frame)));
+        } catch (IOException e) {
+            logger.debug("Could not send ticker frame to {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    // Send whatever is queued for a session now instead of waiting for the next flush
+    public void sendPending(WebSocketSession session) {
+        TickerClient client = clientsBySessionId.get(session.getId());
+        if (client != null) {
+            trySend(client);
+        }
+    }
+
+    public int getClientCount() {
+        return clientsBySessionId.size();
+    }
+
+    // Called once the price write commits: O(1), latest tick per symbol wins
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockPriceChanged(StockPriceChangedEvent event) {
+        if (clientsBySymbol.containsKey(event.getSymbol())) {
+            dirtyTicks.put(event.getSymbol(), new Tick(event.getSymbol(), event.getPrice(), event.getTimestamp()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${investatrack.ticker.flush-interval-ms:250}")
+    public void flush() {
+        if (dirtyTicks.isEmpty()) {
+            return;
+        }
+        Set<TickerClient> touched = new HashSet<>();
+        for (String symbol : dirtyTicks.keySet()) {
+            Tick tick = dirtyTicks.remove(symbol);
+            Set<TickerClient> subscribers = tick != null ? clientsBySymbol.get(symbol) : null;
+            if (subscribers == null) {
+                continue;
+            }
+            for (TickerClient client : subscribers) {
+                client.pending.put(symbol, tick);
+                touched.add(client);
+            }
+        }
+        touched.forEach(this::trySend);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdownNow();
+    }
+
+    // Start a send for the client unless one is already in flight; the pending map keeps conflating meanwhile
+    private void trySend(TickerClient client) {
+        if (client.pending.isEmpty() || !client.sending.compareAndSet(false, true)) {
+            return;
+        }
+        sendExecutor.execute(() -> {
+            try {
+                List<Tick> ticks = new ArrayList<>(client.pending.size());
+                for (String symbol : client.pending.keySet()) {
+                    Tick tick = client.pending.remove(symbol);
+                    if (tick != null) {
+                        ticks.add(tick);
+                    }
+                }
+                if (!ticks.isEmpty() && client.session.isOpen()) {
+                    Map<String, Object> frame = new LinkedHashMap<>();
+                    frame.put("type", "prices");
+                    frame.put("ticks", ticks);
+                    client.session.sendMessage(new TextMessage(objectMapper.writeValueAsString(frame)));
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.debug("Closing slow or broken ticker session {}: {}", client.session.getId(), e.getMessage());
+                closeQuietly(client.session);
+            } finally {
+                client.sending.set(false);
+            }
+            // Ticks that arrived while this frame was being written go out in the next frame
+            if (!client.pending.isEmpty()) {
+                trySend(client);
+            }
+        });
+    }
+
+    private void removeFromSymbol(String symbol, TickerClient client) {
+        clientsBySymbol.computeIfPresent(symbol, (s, clients) -> {
+            clients.remove(client);
+            return clients.isEmpty() ? null : clients;
+        });
+    }
+
+    private static void closeQuietly(WebSocketSession session) {
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException ignored) {
+            // Already closed
+        }
+    }
+
+    // One price in a ticker frame
+    public static final class Tick {
+        private final String symbol;
+        private final BigDecimal price;
+        private final LocalDateTime timestamp;
+
+        public Tick(String symbol, BigDecimal price, LocalDateTime timestamp) {
+            this.symbol = symbol;
+            this.price = price;
+            this.timestamp = timestamp;
+        }
+
+        public String getSymbol() { return symbol; }
+        public BigDecimal getPrice() { return price; }
+        public LocalDateTime getTimestamp() { return timestamp; }
+    }
+
+    private static final class TickerClient {
+        private final WebSocketSession session;
+        private final Set<String> symbols = ConcurrentHashMap.newKeySet();
+        private final Map<String, Tick> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        private TickerClient(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+}
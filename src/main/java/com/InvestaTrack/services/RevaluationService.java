@@ -0,0 +1,128 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.events.StockPriceChangedEvent;
+import com.InvestaTrack.models.Position;
+import com.InvestaTrack.repos.PositionRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+// Pushes a price change to the positions holding that stock and applies the value
+// delta to each affected portfolio. Cost is proportional to the number of holders.
+// Only committed prices are applied, off the price-update thread: each stock maps to one
+// single-thread lane and a burst of prices for a stock is conflated to the latest, so holders
+// are never left at an older price. Revaluation commits in its own transaction and is retried
+// if a trade updates one of the positions or portfolios first.
+@Service
+@Transactional
+public class RevaluationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevaluationService.class);
+
+    private final PositionRepository positionRepository;
+    private final PortfolioService portfolioService;
+    private final HoldingsIndex holdingsIndex;
+    private final OptimisticRetry optimisticRetry;
+    private final List<ExecutorService> lanes = new ArrayList<>();
+
+    // Latest committed price per stock that is waiting for its lane
+    private final Map<Long, BigDecimal> pendingPrices = new ConcurrentHashMap<>();
+
+    // Constructor injection
+    public RevaluationService(PositionRepository positionRepository,
+                              PortfolioService portfolioService,
+                              HoldingsIndex holdingsIndex,
+                              OptimisticRetry optimisticRetry,
+                              @Value("${investatrack.revaluation.threads:2}") int threads) {
+        this.positionRepository = positionRepository;
+        this.portfolioService = portfolioService;
+        this.holdingsIndex = holdingsIndex;
+        this.optimisticRetry = optimisticRetry;
+        for (int i = 0; i < Math.max(1, threads); i++) {
+            String name = "revaluation-" + i;
+            lanes.add(Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            }));
+        }
+    }
+
+    // Runs once the price write has committed (or straight away when it was not transactional)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onStockPriceChanged(StockPriceChangedEvent event) {
+        if (!event.isPriceChanged() || event.getPrice() == null) {
+            return;
+        }
+        Long stockId = event.getStockId();
+        // Only the first price of a burst schedules work; later ones replace the pending price
+        if (pendingPrices.put(stockId, event.getPrice()) == null) {
+            lanes.get(Math.floorMod(stockId.hashCode(), lanes.size())).execute(() -> revaluePending(stockId));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.forEach(ExecutorService::shutdownNow);
+    }
+
+    private void revaluePending(Long stockId) {
+        BigDecimal price = pendingPrices.remove(stockId);
+        if (price == null) {
+            return;
+        }
+        try {
+            revalueHolders(stockId, price);
+        } catch (RuntimeException e) {
+            logger.warn("Could not revalue holders of stock {}: {}", stockId, e.getMessage());
+        }
+    }
+
+    // Revalue every active position in a stock and return the number of positions touched
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public int revalueHolders(Long stockId, BigDecimal price) {
+        Set<HoldingsIndex.Holding> holders = holdingsIndex.getHolders(stockId);
+        if (holders.isEmpty() || price == null) {
+            return 0;
+        }
+
+        List<Long> positionIds = holders.stream()
+                .map(HoldingsIndex.Holding::getPositionId)
+                .collect(Collectors.toList());
+        return optimisticRetry.executeInNewTransaction(() -> {
+            List<Position> positions = positionRepository.findAllById(positionIds);
+
+            Map<Long, BigDecimal> valueDeltas = new HashMap<>();
+            for (Position position : positions) {
+                BigDecimal oldValue = position.getCurrentValue();
+                position.updateCurrentValue(price);
+                BigDecimal delta = position.getCurrentValue().subtract(oldValue);
+                if (delta.signum() != 0) {
+                    valueDeltas.merge(position.getPortfolio().getPortfolioID(), delta, BigDecimal::add);
+                }
+            }
+
+            positionRepository.saveAll(positions);
+            portfolioService.applyValueDeltas(valueDeltas);
+            return positions.size();
+        });
+    }
+}
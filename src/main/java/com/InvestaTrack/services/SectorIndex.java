@@ -0,0 +1,114 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.models.Stock;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// In-memory sector catalog: sector -> stocks ordered by company name.
+// Holds detached copies of each stock's descriptive fields; prices are filled in from the
+// price book on read, so price ticks never touch this index. StockService moves a stock
+// between sectors when it is created, updated or deleted.
+@Component
+public class SectorIndex {
+
+    private static final Comparator<Stock> BY_COMPANY_NAME = Comparator
+            .comparing(Stock::getCompanyName, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Stock::getStockID);
+
+    private final PriceBook priceBook;
+
+    // Guarded by this for writes; the sector map and sets are safe for lock-free reads
+    private final Map<Long, Stock> stocksById = new HashMap<>();
+    private final ConcurrentSkipListMap<String, NavigableSet<Stock>> stocksBySector = new ConcurrentSkipListMap<>();
+
+    public SectorIndex(PriceBook priceBook) {
+        this.priceBook = priceBook;
+    }
+
+    // Add a stock or move it to its current sector
+    public synchronized void put(Stock stock) {
+        if (stock == null || stock.getStockID() == null) {
+            return;
+        }
+        Stock copy = copyOf(stock);
+        Stock previous = stocksById.put(copy.getStockID(), copy);
+        if (previous != null) {
+            removeFromSector(previous);
+        }
+        if (copy.getSector() != null) {
+            stocksBySector.computeIfAbsent(copy.getSector(), s -> new ConcurrentSkipListSet<>(BY_COMPANY_NAME))
+                    .add(copy);
+        }
+    }
+
+    public synchronized void remove(Long stockId) {
+        Stock previous = stocksById.remove(stockId);
+        if (previous != null) {
+            removeFromSector(previous);
+        }
+    }
+
+    public synchronized void rebuild(List<Stock> stocks) {
+        clear();
+        stocks.forEach(this::put);
+    }
+
+    public synchronized void clear() {
+        stocksById.clear();
+        stocksBySector.clear();
+    }
+
+    // Stocks in a sector ordered by company name, with current prices
+    public List<Stock> getStocks(String sector) {
+        NavigableSet<Stock> members = sector != null ? stocksBySector.get(sector) : null;
+        List<Stock> stocks = new ArrayList<>();
+        if (members == null) {
+            return stocks;
+        }
+        for (Stock member : members) {
+            Stock stock = copyOf(member);
+            PriceBook.Quote quote = priceBook.getQuote(stock.getStockID());
+            if (quote != null) {
+                stock.setCurrentPrice(quote.getPrice());
+                stock.setLastUpdated(quote.getUpdatedAt());
+            }
+            stocks.add(stock);
+        }
+        return stocks;
+    }
+
+    // All sectors with at least one stock, in alphabetical order
+    public List<String> getSectors() {
+        return new ArrayList<>(stocksBySector.keySet());
+    }
+
+    private void removeFromSector(Stock stock) {
+        if (stock.getSector() == null) {
+            return;
+        }
+        NavigableSet<Stock> members = stocksBySector.get(stock.getSector());
+        if (members != null) {
+            members.remove(stock);
+            if (members.isEmpty()) {
+                stocksBySector.remove(stock.getSector());
+            }
+        }
+    }
+
+    private static Stock copyOf(Stock source) {
+        Stock copy = new Stock(source.getSymbol(), source.getCompanyName(), source.getCurrentPrice());
+        copy.setStockID(source.getStockID());
+        copy.setLastUpdated(source.getLastUpdated());
+        copy.setSector(source.getSector());
+        copy.setMarketCap(source.getMarketCap());
+        return copy;
+    }
+}
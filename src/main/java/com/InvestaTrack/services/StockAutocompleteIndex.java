@@ -0,0 +1,334 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.models.Stock;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Typeahead index over stock symbols and company-name tokens.
+// Tokens live in one sorted array, so a prefix is a binary-searched range. Suggestions are
+// ranked exact symbol, then symbol prefix, then name prefix, and by market cap within a tier.
+// Writes only record which stocks changed; a background task picks them up after a short
+// debounce, merges them into a copy of the current snapshot and swaps it in, so lookups never
+// wait on a rebuild. Ranges too wide to scan per keystroke (one- or two-letter prefixes) have
+// their top results memoized per snapshot.
+@Component
+public class StockAutocompleteIndex {
+
+    public static final int MAX_LIMIT = 50;
+
+    // Prefix ranges wider than this are answered from the per-snapshot cache
+    private static final int CACHE_RANGE_THRESHOLD = 512;
+
+    private static final int EXACT_SYMBOL = 0;
+    private static final int SYMBOL_PREFIX = 1;
+    private static final int NAME_PREFIX = 2;
+
+    // Above this share of changed stocks a full rebuild is cheaper than a merge
+    private static final int MERGE_MAX_CHANGED_PERCENT = 10;
+
+    private final Map<Long, Suggestion> suggestionsById = new ConcurrentHashMap<>();
+    private final Set<Long> changedIds = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean fullRebuild = new AtomicBoolean();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService refresher;
+    private final long refreshDelayMs;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public StockAutocompleteIndex(@Value("${investatrack.autocomplete.refresh-delay-ms:50}") long refreshDelayMs) {
+        this.refreshDelayMs = Math.max(0, refreshDelayMs);
+        this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "autocomplete-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    public void put(Stock stock) {
+        if (stock == null || stock.getStockID() == null || stock.getSymbol() == null) {
+            return;
+        }
+        suggestionsById.put(stock.getStockID(), new Suggestion(stock));
+        changed(stock.getStockID());
+    }
+
+    public void remove(Long stockId) {
+        if (suggestionsById.remove(stockId) != null) {
+            changed(stockId);
+        }
+    }
+
+    public void rebuild(List<Stock> stocks) {
+        suggestionsById.clear();
+        stocks.forEach(stock -> {
+            if (stock.getStockID() != null && stock.getSymbol() != null) {
+                suggestionsById.put(stock.getStockID(), new Suggestion(stock));
+            }
+        });
+        fullRebuild.set(true);
+        scheduleRefresh();
+    }
+
+    public void clear() {
+        suggestionsById.clear();
+        fullRebuild.set(true);
+        scheduleRefresh();
+    }
+
+    // Wait for pending writes to reach the served snapshot
+    void awaitRefresh() {
+        try {
+            refresher.submit(this::refresh).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Autocomplete refresh failed", e.getCause());
+        }
+    }
+
+    // Top suggestions for a prefix, best first
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String query = normalize(prefix);
+        if (query.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        int k = Math.min(limit, MAX_LIMIT);
+        List<Suggestion> top = snapshot.suggest(query, k);
+        return top.size() > k ? top.subList(0, k) : top;
+    }
+
+    private void changed(Long stockId) {
+        changedIds.add(stockId);
+        scheduleRefresh();
+    }
+
+    // One pending refresh at a time; writes during the delay are picked up by it
+    private void scheduleRefresh() {
+        if (refreshScheduled.compareAndSet(false, true)) {
+            refresher.schedule(this::refresh, refreshDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Runs on the refresher thread only
+    private void refresh() {
+        // Reset first so a write racing with this refresh schedules another one
+        refreshScheduled.set(false);
+        boolean full = fullRebuild.getAndSet(false);
+        Set<Long> changed = new HashSet<>();
+        for (Iterator<Long> it = changedIds.iterator(); it.hasNext(); ) {
+            changed.add(it.next());
+            it.remove();
+        }
+        if (!full && changed.isEmpty()) {
+            return;
+        }
+
+        Snapshot current = snapshot;
+        if (full || changed.size() * 100L > (long) current.stockCount * MERGE_MAX_CHANGED_PERCENT) {
+            snapshot = Snapshot.build(suggestionsById.values());
+        } else {
+            snapshot = current.merge(changed, suggestionsById);
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Immutable view of one stock for ranking and display
+    public static final class Suggestion {
+        private final Long stockId;
+        private final String symbol;
+        private final String companyName;
+        private final BigDecimal marketCap;
+        private final String symbolKey;
+
+        private Suggestion(Stock stock) {
+            this.stockId = stock.getStockID();
+            this.symbol = stock.getSymbol();
+            this.companyName = stock.getCompanyName();
+            this.marketCap = stock.getMarketCap() != null ? stock.getMarketCap() : BigDecimal.ZERO;
+            this.symbolKey = normalize(stock.getSymbol());
+        }
+
+        public Long getStockId() { return stockId; }
+        public String getSymbol() { return symbol; }
+        public String getCompanyName() { return companyName; }
+        public BigDecimal getMarketCap() { return marketCap; }
+
+        // Symbol first, then each word of the company name and the full name
+        private Set<String> tokens() {
+            Set<String> tokens = new LinkedHashSet<>();
+            tokens.add(symbolKey);
+            String name = normalize(companyName);
+            if (!name.isEmpty()) {
+                tokens.add(name);
+                for (String word : name.split("[^\\p{Alnum}]+")) {
+                    if (!word.isEmpty()) {
+                        tokens.add(word);
+                    }
+                }
+            }
+            return tokens;
+        }
+    }
+
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(new String[0], new Suggestion[0], 0);
+
+        private final String[] tokens;
+        private final Suggestion[] owners;
+        private final int stockCount;
+        private final Map<String, List<Suggestion>> wideRangeCache = new ConcurrentHashMap<>();
+
+        private Snapshot(String[] tokens, Suggestion[] owners, int stockCount) {
+            this.tokens = tokens;
+            this.owners = owners;
+            this.stockCount = stockCount;
+        }
+
+        static Snapshot build(Iterable<Suggestion> suggestions) {
+            int stockCount = 0;
+            List<Object[]> pairs = new ArrayList<>();
+            for (Suggestion suggestion : suggestions) {
+                addTokens(pairs, suggestion);
+                stockCount++;
+            }
+            pairs.sort(Comparator.comparing(pair -> (String) pair[0]));
+
+            String[] tokens = new String[pairs.size()];
+            Suggestion[] owners = new Suggestion[pairs.size()];
+            for (int i = 0; i < pairs.size(); i++) {
+                tokens[i] = (String) pairs.get(i)[0];
+                owners[i] = (Suggestion) pairs.get(i)[1];
+            }
+            return new Snapshot(tokens, owners, stockCount);
+        }
+
+        // Copy of this snapshot with the changed stocks' old tokens dropped and their current
+        // tokens merged in; a linear pass instead of re-sorting every token
+        Snapshot merge(Set<Long> changed, Map<Long, Suggestion> current) {
+            int addedStocks = 0;
+            List<Object[]> added = new ArrayList<>();
+            for (Long stockId : changed) {
+                Suggestion suggestion = current.get(stockId);
+                if (suggestion != null) {
+                    addTokens(added, suggestion);
+                    addedStocks++;
+                }
+            }
+            added.sort(Comparator.comparing(pair -> (String) pair[0]));
+
+            String[] mergedTokens = new String[tokens.length + added.size()];
+            Suggestion[] mergedOwners = new Suggestion[mergedTokens.length];
+            Set<Long> dropped = new HashSet<>();
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (i < tokens.length || j < added.size()) {
+                if (i < tokens.length && changed.contains(owners[i].stockId)) {
+                    dropped.add(owners[i++].stockId);
+                    continue;
+                }
+                if (j >= added.size() || (i < tokens.length && tokens[i].compareTo((String) added.get(j)[0]) <= 0)) {
+                    mergedTokens[size] = tokens[i];
+                    mergedOwners[size++] = owners[i++];
+                } else {
+                    mergedTokens[size] = (String) added.get(j)[0];
+                    mergedOwners[size++] = (Suggestion) added.get(j++)[1];
+                }
+            }
+            return new Snapshot(Arrays.copyOf(mergedTokens, size), Arrays.copyOf(mergedOwners, size),
+                    stockCount - dropped.size() + addedStocks);
+        }
+
+        private static void addTokens(List<Object[]> pairs, Suggestion suggestion) {
+            for (String token : suggestion.tokens()) {
+                pairs.add(new Object[]{token, suggestion});
+            }
+        }
+
+        List<Suggestion> suggest(String query, int k) {
+            int from = lowerBound(query);
+            int to = lowerBound(query + Character.MAX_VALUE);
+            if (from >= to) {
+                return List.of();
+            }
+            if (to - from > CACHE_RANGE_THRESHOLD) {
+                return wideRangeCache.computeIfAbsent(query, q -> topK(q, from, to, MAX_LIMIT));
+            }
+            return topK(query, from, to, k);
+        }
+
+        private List<Suggestion> topK(String query, int from, int to, int k) {
+            Comparator<Suggestion> order = Comparator
+                    .comparingInt((Suggestion s) -> tier(s, query))
+                    .thenComparing(Suggestion::getMarketCap, Comparator.reverseOrder())
+                    .thenComparing(s -> s.symbolKey);
+
+            // Bounded heap with the worst kept suggestion on top
+            PriorityQueue<Suggestion> heap = new PriorityQueue<>(k + 1, order.reversed());
+            Set<Long> seen = new HashSet<>();
+            for (int i = from; i < to; i++) {
+                Suggestion candidate = owners[i];
+                if (!seen.add(candidate.stockId)) {
+                    continue;
+                }
+                heap.offer(candidate);
+                if (heap.size() > k) {
+                    heap.poll();
+                }
+            }
+
+            Suggestion[] result = heap.toArray(new Suggestion[0]);
+            Arrays.sort(result, order);
+            return List.of(result);
+        }
+
+        private static int tier(Suggestion suggestion, String query) {
+            if (suggestion.symbolKey.equals(query)) {
+                return EXACT_SYMBOL;
+            }
+            return suggestion.symbolKey.startsWith(query) ? SYMBOL_PREFIX : NAME_PREFIX;
+        }
+
+        // First index whose token is >= key
+        private int lowerBound(String key) {
+            int low = 0;
+            int high = tokens.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (tokens[mid].compareTo(key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.InvestaTrack.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Persists stock prices to the stocks table with JDBC batch updates.
+// In write-behind mode, price updates land in a per-stock latest-value slot and a
+// scheduled flusher writes only the newest price per stock, so a burst of ticks for
+// one symbol costs a single UPDATE per flush interval.
+@Component
+public class StockPriceWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockPriceWriter.class);
+
+    private static final String UPDATE_PRICE_SQL =
+            "UPDATE stocks SET current_price = ?, last_updated = ? WHERE stock_id = ?";
+    // Queued prices never overwrite a row that a synchronous write has updated since they were queued
+    private static final String FLUSH_PRICE_SQL =
+            "UPDATE stocks SET current_price = ?, last_updated = ? " +
+            "WHERE stock_id = ? AND (last_updated IS NULL OR last_updated < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean writeBehind;
+
+    private final Map<Long, PendingPrice> pendingPrices = new ConcurrentHashMap<>();
+    private final AtomicLong pricesReceived = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+
+    public StockPriceWriter(JdbcTemplate jdbcTemplate,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${investatrack.prices.write-behind.enabled:false}") boolean writeBehind) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.writeBehind = writeBehind;
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    // Write prices immediately in one JDBC batch (joins the caller's transaction)
+    public void writeNow(Map<Long, BigDecimal> prices, LocalDateTime updatedAt) {
+        if (prices.isEmpty()) {
+            return;
+        }
+        Timestamp timestamp = Timestamp.valueOf(updatedAt);
+        List<Object[]> batchArgs = new ArrayList<>(prices.size());
+        for (Map.Entry<Long, BigDecimal> entry : prices.entrySet()) {
+            batchArgs.add(new Object[]{entry.getValue(), timestamp, entry.getKey()});
+        }
+        jdbcTemplate.batchUpdate(UPDATE_PRICE_SQL, batchArgs);
+        pricesReceived.addAndGet(prices.size());
+        rowsWritten.addAndGet(prices.size());
+    }
+
+    // Queue a price for the next flush; a newer price for the same stock replaces it
+    public void enqueue(Long stockId, BigDecimal price, LocalDateTime updatedAt) {
+        pendingPrices.put(stockId, new PendingPrice(price, updatedAt));
+        pricesReceived.incrementAndGet();
+    }
+
+    // Drop a queued price after the row was written synchronously
+    public void discardPending(Long stockId) {
+        pendingPrices.remove(stockId);
+    }
+
+    @Scheduled(fixedDelayString = "${investatrack.prices.write-behind.flush-interval-ms:1000}")
+    public void flush() {
+        if (pendingPrices.isEmpty()) {
+            return;
+        }
+
+        // Take each slot atomically so a price that arrives mid-flush stays queued
+        List<Long> stockIds = new ArrayList<>();
+        List<PendingPrice> prices = new ArrayList<>();
+        for (Map.Entry<Long, PendingPrice> entry : pendingPrices.entrySet()) {
+            if (pendingPrices.remove(entry.getKey(), entry.getValue())) {
+                stockIds.add(entry.getKey());
+                prices.add(entry.getValue());
+            }
+        }
+        if (stockIds.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>(stockIds.size());
+        for (int i = 0; i < stockIds.size(); i++) {
+            PendingPrice pending = prices.get(i);
+            Timestamp timestamp = Timestamp.valueOf(pending.updatedAt);
+            batchArgs.add(new Object[]{pending.price, timestamp, stockIds.get(i), timestamp});
+        }
+
+        try {
+            int[] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(FLUSH_PRICE_SQL, batchArgs));
+            int written = 0;
+            for (int count : counts) {
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    written++;
+                }
+            }
+            rowsWritten.addAndGet(written);
+            logger.debug("Flushed {} coalesced stock prices ({} superseded)", written, batchArgs.size() - written);
+        } catch (RuntimeException e) {
+            // Put the prices back unless a newer one has arrived in the meantime
+            for (int i = 0; i < stockIds.size(); i++) {
+                pendingPrices.putIfAbsent(stockIds.get(i), prices.get(i));
+            }
+            logger.warn("Could not flush {} stock prices, will retry: {}", batchArgs.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    public int getPendingCount() {
+        return pendingPrices.size();
+    }
+
+    public long getPricesReceived() {
+        return pricesReceived.get();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    private static final class PendingPrice {
+        private final BigDecimal price;
+        private final LocalDateTime updatedAt;
+
+        private PendingPrice(BigDecimal price, LocalDateTime updatedAt) {
+            this.price = price;
+            this.updatedAt = updatedAt;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.models.Stock;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory n-gram index over stock symbols and company names.
+// Every 1-, 2- and 3-character gram of the lowercased symbol and name maps to the stocks
+// containing it. A query intersects the posting sets of its grams (smallest first), then
+// verifies the few candidates with a real substring check, so no full scan is needed.
+@Component
+public class StockSearchIndex {
+
+    private static final int MAX_GRAM = 3;
+
+    // Ranks, lowest first
+    private static final int EXACT_SYMBOL = 0;
+    private static final int PREFIX = 1;
+    private static final int SUBSTRING = 2;
+
+    private final Map<Long, Entry> entriesById = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+
+    // Add or re-index a stock
+    public synchronized void put(Stock stock) {
+        if (stock == null || stock.getStockID() == null) {
+            return;
+        }
+        Entry entry = new Entry(stock.getStockID(), normalize(stock.getSymbol()), normalize(stock.getCompanyName()));
+        Entry previous = entriesById.put(entry.stockId, entry);
+        if (previous != null) {
+            if (previous.symbol.equals(entry.symbol) && previous.companyName.equals(entry.companyName)) {
+                return;
+            }
+            removePostings(previous);
+        }
+        for (String gram : grams(entry)) {
+            postings.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(entry.stockId);
+        }
+    }
+
+    public synchronized void remove(Long stockId) {
+        Entry previous = entriesById.remove(stockId);
+        if (previous != null) {
+            removePostings(previous);
+        }
+    }
+
+    public synchronized void rebuild(List<Stock> stocks) {
+        entriesById.clear();
+        postings.clear();
+        stocks.forEach(this::put);
+    }
+
+    public synchronized void clear() {
+        entriesById.clear();
+        postings.clear();
+    }
+
+    public int size() {
+        return entriesById.size();
+    }
+
+    // Stock IDs matching the term: exact symbol first, then symbol/name prefix, then substring.
+    // Ties are ordered by symbol.
+    public List<Long> search(String term) {
+        String query = normalize(term);
+        if (query.isEmpty()) {
+            return List.of();
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (Long stockId : candidates(query)) {
+            Entry entry = entriesById.get(stockId);
+            if (entry == null) {
+                continue;
+            }
+            int rank = rank(entry, query);
+            if (rank >= 0) {
+                matches.add(new Match(entry, rank));
+            }
+        }
+
+        matches.sort(Comparator.comparingInt((Match m) -> m.rank).thenComparing(m -> m.entry.symbol));
+        List<Long> result = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            result.add(match.entry.stockId);
+        }
+        return result;
+    }
+
+    // Intersect the posting sets of the query's grams, smallest set first
+    private Set<Long> candidates(String query) {
+        int gramLength = Math.min(MAX_GRAM, query.length());
+        List<Set<Long>> sets = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i + gramLength <= query.length(); i++) {
+            String gram = query.substring(i, i + gramLength);
+            if (!seen.add(gram)) {
+                continue;
+            }
+            Set<Long> posting = postings.get(gram);
+            if (posting == null || posting.isEmpty()) {
+                return Set.of();
+            }
+            sets.add(posting);
+        }
+        sets.sort(Comparator.comparingInt(Set::size));
+
+        Set<Long> result = new HashSet<>(sets.get(0));
+        for (int i = 1; i < sets.size() && !result.isEmpty(); i++) {
+            result.retainAll(sets.get(i));
+        }
+        return result;
+    }
+
+    private static int rank(Entry entry, String query) {
+        if (entry.symbol.equals(query)) {
+            return EXACT_SYMBOL;
+        }
+        if (entry.symbol.startsWith(query) || entry.companyName.startsWith(query)) {
+            return PREFIX;
+        }
+        if (entry.symbol.contains(query) || entry.companyName.contains(query)) {
+            return SUBSTRING;
+        }
+        return -1;
+    }
+
+    private void removePostings(Entry entry) {
+        for (String gram : grams(entry)) {
+            Set<Long> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(entry.stockId);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> grams(Entry entry) {
+        Set<String> grams = new HashSet<>();
+        addGrams(entry.symbol, grams);
+        addGrams(entry.companyName, grams);
+        return grams;
+    }
+
+    private static void addGrams(String text, Set<String> grams) {
+        for (int length = 1; length <= MAX_GRAM; length++) {
+            for (int i = 0; i + length <= text.length(); i++) {
+                grams.add(text.substring(i, i + length));
+            }
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        private final Long stockId;
+        private final String symbol;
+        private final String companyName;
+
+        private Entry(Long stockId, String symbol, String companyName) {
+            this.stockId = stockId;
+            this.symbol = symbol;
+            this.companyName = companyName;
+        }
+    }
+
+    private static final class Match {
+        private final Entry entry;
+        private final int rank;
+
+        private Match(Entry entry, int rank) {
+            this.entry = entry;
+            this.rank = rank;
+        }
+    }
+}
@@ -1,13 +1,27 @@
 package com.InvestaTrack.services;
 
+import com.InvestaTrack.dto.PriceUpdateDTO;
+import com.InvestaTrack.dto.PriceUpdateResultDTO;
+import com.InvestaTrack.dto.StockSuggestionDTO;
+import com.InvestaTrack.events.StockPriceChangedEvent;
 import com.InvestaTrack.models.Stock;
 import com.InvestaTrack.repos.StockRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -15,10 +29,42 @@ import java.util.Optional;
 public class StockService {
 
     private final StockRepository stockRepository;
+    private final StockPriceWriter stockPriceWriter;
+    private final PriceBook priceBook;
+    private final StockSearchIndex searchIndex;
+    private final StockAutocompleteIndex autocompleteIndex;
+    private final SectorIndex sectorIndex;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     // Constructor injection
-    public StockService(StockRepository stockRepository) {
+    public StockService(StockRepository stockRepository,
+                        StockPriceWriter stockPriceWriter,
+                        PriceBook priceBook,
+                        StockSearchIndex searchIndex,
+                        StockAutocompleteIndex autocompleteIndex,
+                        SectorIndex sectorIndex,
+                        ApplicationEventPublisher eventPublisher) {
         this.stockRepository = stockRepository;
+        this.stockPriceWriter = stockPriceWriter;
+        this.priceBook = priceBook;
+        this.searchIndex = searchIndex;
+        this.autocompleteIndex = autocompleteIndex;
+        this.sectorIndex = sectorIndex;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // Rebuild in-memory price and catalog data from the stocks table at startup
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmCaches() {
+        List<Stock> stocks = stockRepository.findAll();
+        priceBook.rebuild(stocks);
+        searchIndex.rebuild(stocks);
+        autocompleteIndex.rebuild(stocks);
+        sectorIndex.rebuild(stocks);
     }
 
     // Get all stocks
@@ -32,6 +78,11 @@ public class StockService {
                 .orElseThrow(() -> new RuntimeException("Stock not found with id: " + id));
     }
 
+    // Get stocks by IDs (missing IDs are skipped)
+    public List<Stock> getStocksByIds(Collection<Long> ids) {
+        return stockRepository.findAllById(ids);
+    }
+
     // Get stock by symbol
     public Stock getStockBySymbol(String symbol) {
         return stockRepository.findBySymbol(symbol.toUpperCase())
@@ -48,7 +99,10 @@ public class StockService {
             throw new RuntimeException("Stock already exists with symbol: " + stock.getSymbol());
         }
 
-        return stockRepository.save(stock);
+        Stock savedStock = stockRepository.save(stock);
+        indexStock(savedStock);
+        recordPrice(savedStock);
+        return savedStock;
     }
 
     // Update existing stock
@@ -59,8 +113,11 @@ public class StockService {
         if (stockDetails.getCompanyName() != null) {
             stock.setCompanyName(stockDetails.getCompanyName());
         }
+        boolean priceChanged = false;
         if (stockDetails.getCurrentPrice() != null) {
             stock.setCurrentPrice(stockDetails.getCurrentPrice());
+            stock.setLastUpdated(LocalDateTime.now());
+            priceChanged = true;
         }
         if (stockDetails.getSector() != null) {
             stock.setSector(stockDetails.getSector());
@@ -69,7 +126,15 @@ public class StockService {
             stock.setMarketCap(stockDetails.getMarketCap());
         }
 
-        return stockRepository.save(stock);
+        Stock savedStock = stockRepository.save(stock);
+        indexStock(savedStock);
+        if (priceChanged) {
+            stockPriceWriter.discardPending(savedStock.getStockID());
+            recordPrice(savedStock);
+        } else {
+            AfterCommit.run(() -> priceBook.put(savedStock));
+        }
+        return savedStock;
     }
 
     // Delete stock
@@ -78,6 +143,12 @@ public class StockService {
             throw new RuntimeException("Stock not found with id: " + id);
         }
         stockRepository.deleteById(id);
+        AfterCommit.run(() -> {
+            priceBook.remove(id);
+            searchIndex.remove(id);
+            autocompleteIndex.remove(id);
+            sectorIndex.remove(id);
+        });
     }
 
     // Search stocks by symbol or company name
@@ -85,33 +156,140 @@ public class StockService {
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
             return getAllStocks();
         }
-        return stockRepository.searchStocks(searchTerm.trim());
+        List<Long> rankedIds = searchIndex.search(searchTerm);
+        if (rankedIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Load the matches and return them in index rank order
+        Map<Long, Stock> stocksById = new HashMap<>();
+        for (Stock stock : stockRepository.findAllById(rankedIds)) {
+            stocksById.put(stock.getStockID(), stock);
+        }
+        List<Stock> results = new ArrayList<>(rankedIds.size());
+        for (Long id : rankedIds) {
+            Stock stock = stocksById.get(id);
+            if (stock != null) {
+                results.add(stock);
+            }
+        }
+        return results;
     }
 
-    // Get stocks by sector
+    // Typeahead suggestions served from memory, with prices from the price book
+    public List<StockSuggestionDTO> autocomplete(String prefix, int limit) {
+        List<StockSuggestionDTO> suggestions = new ArrayList<>();
+        for (StockAutocompleteIndex.Suggestion suggestion : autocompleteIndex.suggest(prefix, limit)) {
+            suggestions.add(new StockSuggestionDTO(suggestion.getStockId(), suggestion.getSymbol(),
+                    suggestion.getCompanyName(), priceBook.getPrice(suggestion.getStockId()),
+                    suggestion.getMarketCap()));
+        }
+        return suggestions;
+    }
+
+    // Get stocks by sector, served from the in-memory sector index
     public List<Stock> getStocksBySector(String sector) {
-        return stockRepository.findBySectorOrderByCompanyName(sector);
+        return sectorIndex.getStocks(sector);
     }
 
-    // Get all sectors
+    // Get all sectors, served from the in-memory sector index
     public List<String> getAllSectors() {
-        return stockRepository.findAllSectors();
+        return sectorIndex.getSectors();
     }
 
     // Update stock price
     public Stock updateStockPrice(Long id, BigDecimal newPrice) {
-        Stock stock = getStockById(id);
-        stock.setCurrentPrice(newPrice);
-        stock.setLastUpdated(LocalDateTime.now());
-        return stockRepository.save(stock);
+        return applyPrice(getStockById(id), newPrice);
     }
 
     // Update stock price by symbol
     public Stock updateStockPriceBySymbol(String symbol, BigDecimal newPrice) {
-        Stock stock = getStockBySymbol(symbol);
+        return applyPrice(getStockBySymbol(symbol), newPrice);
+    }
+
+    // Apply a new price to a loaded stock, either saving it now or queueing it for write-behind
+    private Stock applyPrice(Stock stock, BigDecimal newPrice) {
+        LocalDateTime updatedAt = LocalDateTime.now();
+        if (stockPriceWriter.isWriteBehind()) {
+            // Detach so the entity is not flushed at commit; the writer persists the latest price later
+            entityManager.detach(stock);
+            stock.setCurrentPrice(newPrice);
+            stock.setLastUpdated(updatedAt);
+            Long stockId = stock.getStockID();
+            AfterCommit.run(() -> stockPriceWriter.enqueue(stockId, newPrice, updatedAt));
+            recordPrice(stock);
+            return stock;
+        }
+
         stock.setCurrentPrice(newPrice);
-        stock.setLastUpdated(LocalDateTime.now());
-        return stockRepository.save(stock);
+        stock.setLastUpdated(updatedAt);
+        Stock savedStock = stockRepository.save(stock);
+        recordPrice(savedStock);
+        return savedStock;
+    }
+
+    // Update many stock prices in one transaction using a single JDBC batch
+    public List<PriceUpdateResultDTO> updateStockPrices(List<PriceUpdateDTO> updates) {
+        List<PriceUpdateResultDTO> results = new ArrayList<>(updates.size());
+
+        // Validate and de-duplicate ticks; the last price for a symbol wins
+        Map<String, BigDecimal> latestPrices = new LinkedHashMap<>();
+        for (PriceUpdateDTO update : updates) {
+            String symbol = update.getSymbol() != null ? update.getSymbol().trim().toUpperCase() : null;
+            if (symbol == null || symbol.isEmpty()) {
+                results.add(PriceUpdateResultDTO.failed(update.getSymbol(), update.getPrice(), "Symbol is required"));
+            } else if (update.getPrice() == null || update.getPrice().compareTo(BigDecimal.ZERO) <= 0) {
+                results.add(PriceUpdateResultDTO.failed(symbol, update.getPrice(), "Price must be greater than 0"));
+            } else {
+                latestPrices.put(symbol, update.getPrice());
+            }
+        }
+
+        if (latestPrices.isEmpty()) {
+            return results;
+        }
+
+        // Resolve symbols from the price book, falling back to one query for any misses
+        Map<String, Long> stockIds = new HashMap<>();
+        List<String> unresolved = new ArrayList<>();
+        for (String symbol : latestPrices.keySet()) {
+            Long stockId = priceBook.resolveSymbol(symbol);
+            if (stockId != null) {
+                stockIds.put(symbol, stockId);
+            } else {
+                unresolved.add(symbol);
+            }
+        }
+        if (!unresolved.isEmpty()) {
+            for (Object[] row : stockRepository.findIdsBySymbolIn(unresolved)) {
+                stockIds.put((String) row[0], (Long) row[1]);
+            }
+        }
+
+        LocalDateTime updatedAt = LocalDateTime.now();
+        Map<Long, BigDecimal> pricesById = new LinkedHashMap<>();
+        Map<Long, String> symbolsById = new HashMap<>();
+
+        for (Map.Entry<String, BigDecimal> entry : latestPrices.entrySet()) {
+            Long stockId = stockIds.get(entry.getKey());
+            if (stockId == null) {
+                results.add(PriceUpdateResultDTO.failed(entry.getKey(), entry.getValue(),
+                        "Stock not found with symbol: " + entry.getKey()));
+                continue;
+            }
+            pricesById.put(stockId, entry.getValue());
+            symbolsById.put(stockId, entry.getKey());
+            results.add(PriceUpdateResultDTO.updated(entry.getKey(), entry.getValue()));
+        }
+
+        if (stockPriceWriter.isWriteBehind()) {
+            AfterCommit.run(() -> pricesById.forEach((stockId, price) -> stockPriceWriter.enqueue(stockId, price, updatedAt)));
+        } else {
+            stockPriceWriter.writeNow(pricesById, updatedAt);
+        }
+        pricesById.forEach((stockId, price) -> recordPrice(stockId, symbolsById.get(stockId), price, updatedAt));
+
+        return results;
     }
 
     // Get or create stock
@@ -122,15 +300,16 @@ public class StockService {
             // Update price if stock exists
             Stock stock = existingStock.get();
             if (price != null) {
-                stock.setCurrentPrice(price);
-                stock.setLastUpdated(LocalDateTime.now());
-                return stockRepository.save(stock);
+                return applyPrice(stock, price);
             }
             return stock;
         } else {
             // Create new stock
             Stock newStock = new Stock(symbol.toUpperCase(), companyName, price);
-            return stockRepository.save(newStock);
+            Stock savedStock = stockRepository.save(newStock);
+            indexStock(savedStock);
+            recordPrice(savedStock);
+            return savedStock;
         }
     }
 
@@ -142,8 +321,38 @@ public class StockService {
         return stockRepository.findBySymbolIn(upperSymbols);
     }
 
+    // Refresh the catalog indexes once the stock's descriptive fields are committed
+    private void indexStock(Stock stock) {
+        AfterCommit.run(() -> {
+            searchIndex.put(stock);
+            autocompleteIndex.put(stock);
+            sectorIndex.put(stock);
+        });
+    }
+
+    // Apply a price write to the price book on commit and notify price listeners
+    private void recordPrice(Stock stock) {
+        LocalDateTime updatedAt = stock.getLastUpdated() != null ? stock.getLastUpdated() : LocalDateTime.now();
+        recordPrice(stock.getStockID(), stock.getSymbol(), stock.getCurrentPrice(), updatedAt);
+    }
+
+    private void recordPrice(Long stockId, String symbol, BigDecimal price, LocalDateTime updatedAt) {
+        BigDecimal previousPrice = priceBook.getPrice(stockId);
+        AfterCommit.run(() -> priceBook.put(stockId, symbol, price, updatedAt));
+        // Price listeners are after-commit listeners themselves, so the event can be published now
+        if (price != null) {
+            eventPublisher.publishEvent(new StockPriceChangedEvent(stockId, symbol, previousPrice, price, updatedAt));
+        }
+    }
+
     public void deleteAllStocks() {
         stockRepository.deleteAll();
+        AfterCommit.run(() -> {
+            priceBook.clear();
+            searchIndex.clear();
+            autocompleteIndex.clear();
+            sectorIndex.clear();
+        });
     }
 
 }
\ No newline at end of file
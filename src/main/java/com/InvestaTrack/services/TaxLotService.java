@@ -0,0 +1,368 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.models.TaxLot;
+import com.InvestaTrack.models.TaxLot.MatchingMethod;
+import com.InvestaTrack.models.TaxLotMatch;
+import com.InvestaTrack.models.Transaction;
+import com.InvestaTrack.models.Transaction.TransactionType;
+import com.InvestaTrack.repos.TaxLotMatchRepository;
+import com.InvestaTrack.repos.TaxLotRepository;
+import com.InvestaTrack.repos.TransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Lot-level cost basis for positions.
+// Every BUY opens a lot; every SELL consumes open lots by its matching method (FIFO, LIFO or a
+// specific lot) and stores its realized gain, which is also added to the portfolio's running
+// total in the transaction summary. A sell pages through the open-lots index only as far as it
+// needs, so it costs O(lots consumed) whether it arrives alone or in a batch. Each lot a sell takes
+// from is recorded as a TaxLotMatch. Trades that land before existing history, and deletes of
+// anything but a position's latest trade, replay the position's lots from its transactions instead.
+@Service
+@Transactional
+public class TaxLotService {
+
+    // Upper bound on open lots fetched per query while matching a sell
+    private static final int LOT_PAGE_SIZE = 100;
+
+    // Open bounds for the first page of open lots in either direction
+    private static final LocalDateTime EARLIEST_DATE = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST_DATE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    // Consumption order of lots: acquisition time, then the buy's ID for ties
+    private static final Comparator<TaxLot> LOT_ORDER = Comparator.comparing(TaxLot::getAcquiredDate)
+            .thenComparing(TaxLot::getBuyTransactionId);
+
+    private final TaxLotRepository taxLotRepository;
+    private final TaxLotMatchRepository taxLotMatchRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionSummaryService transactionSummaryService;
+    private final MatchingMethod defaultMethod;
+
+    public TaxLotService(TaxLotRepository taxLotRepository,
+                         TaxLotMatchRepository taxLotMatchRepository,
+                         TransactionRepository transactionRepository,
+                         TransactionSummaryService transactionSummaryService,
+                         @Value("${investatrack.lots.default-method:FIFO}") MatchingMethod defaultMethod) {
+        this.taxLotRepository = taxLotRepository;
+        this.taxLotMatchRepository = taxLotMatchRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionSummaryService = transactionSummaryService;
+        this.defaultMethod = defaultMethod;
+    }
+
+    // Open lots of a portfolio, optionally for one stock, oldest first
+    @Transactional(readOnly = true)
+    public List<TaxLot> getOpenLots(Long portfolioId, Long stockId) {
+        if (stockId == null) {
+            return taxLotRepository.findOpenByPortfolio(portfolioId);
+        }
+        return taxLotRepository.findOpenOldestFirst(portfolioId, stockId, EARLIEST_DATE, Long.MIN_VALUE, Pageable.unpaged());
+    }
+
+    // Whether a trade at this time would land before a position's existing history
+    @Transactional(readOnly = true)
+    public boolean isBackDated(Long portfolioId, Long stockId, LocalDateTime transactionDate) {
+        return transactionRepository.existsByPortfolioPortfolioIDAndStockStockIDAndTransactionDateAfter(
+                portfolioId, stockId, transactionDate);
+    }
+
+    // Apply saved trades, in trade order, that are the newest of their positions: open a lot for
+    // each buy, or match a sell against the open lots and set its realized gain. Called before the
+    // trades are added to the summary, which picks the gains up from the transactions.
+    public void applyTransactions(List<Transaction> transactions) {
+        Map<String, LotBook> books = new HashMap<>();
+        List<TaxLotMatch> matches = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            Long portfolioId = transaction.getPortfolio().getPortfolioID();
+            Long stockId = transaction.getStock().getStockID();
+            LotBook book = books.computeIfAbsent(portfolioId + ":" + stockId, k -> new LotBook(portfolioId, stockId));
+            if (transaction.getTransactionType() == TransactionType.BUY) {
+                book.open(taxLotRepository.save(new TaxLot(transaction)));
+                continue;
+            }
+            resolveMethod(transaction);
+            BigDecimal cost = transaction.getLotMethod() == MatchingMethod.SPECIFIC_ID
+                    ? consumeSpecificLot(transaction, taxLotRepository.findById(transaction.getLotId()).orElse(null), matches)
+                    : book.consume(transaction, matches);
+            transaction.setRealizedGain(transaction.getNetAmount().subtract(cost));
+        }
+        taxLotMatchRepository.saveAll(matches);
+    }
+
+    // Replay a position's lots from all of its transactions, in (date, id) order. Lots keep their
+    // IDs, so SPECIFIC_ID sells match the same lots again. Sells whose gain changes are updated and
+    // the portfolio's running realized gain moves by the difference.
+    public void rebuildLots(Long portfolioId, Long stockId) {
+        Map<Long, TaxLot> lotsByBuy = new HashMap<>();
+        for (TaxLot lot : taxLotRepository.findByPortfolioIdAndStockId(portfolioId, stockId)) {
+            lotsByBuy.put(lot.getBuyTransactionId(), lot);
+        }
+
+        // Every sell of the position is matched again
+        taxLotMatchRepository.deleteByPair(portfolioId, stockId);
+        List<TaxLotMatch> matches = new ArrayList<>();
+
+        Map<Long, TaxLot> lotsById = new HashMap<>();
+        TreeSet<TaxLot> openLots = new TreeSet<>(LOT_ORDER);
+        BigDecimal gainDelta = BigDecimal.ZERO;
+        for (Transaction transaction : transactionRepository.findForReplay(portfolioId, stockId)) {
+            if (transaction.getTransactionType() == TransactionType.BUY) {
+                TaxLot lot = lotsByBuy.remove(transaction.getTransactionId());
+                if (lot == null) {
+                    lot = taxLotRepository.save(new TaxLot(transaction));
+                } else {
+                    lot.reset(transaction);
+                }
+                lotsById.put(lot.getLotId(), lot);
+                openLots.add(lot);
+                continue;
+            }
+
+            resolveMethod(transaction);
+            BigDecimal cost;
+            if (transaction.getLotMethod() == MatchingMethod.SPECIFIC_ID) {
+                TaxLot lot = lotsById.get(transaction.getLotId());
+                cost = consumeSpecificLot(transaction, lot, matches);
+                if (!lot.isOpen()) {
+                    openLots.remove(lot);
+                }
+            } else {
+                cost = consumeInOrder(transaction, openLots, matches);
+            }
+
+            BigDecimal previousGain = transaction.getRealizedGain();
+            BigDecimal gain = transaction.getNetAmount().subtract(cost);
+            if (previousGain == null || previousGain.compareTo(gain) != 0) {
+                transaction.setRealizedGain(gain);
+                gainDelta = gainDelta.add(gain).subtract(previousGain != null ? previousGain : BigDecimal.ZERO);
+            }
+        }
+
+        // Lots whose buy no longer exists
+        taxLotRepository.deleteAll(lotsByBuy.values());
+        taxLotMatchRepository.saveAll(matches);
+        if (gainDelta.signum() != 0) {
+            transactionSummaryService.addRealizedGain(portfolioId, gainDelta);
+        }
+    }
+
+    // Take a deleted trade out of its position's lots. When it was the position's latest trade nothing
+    // else used its lot or the lots it consumed, so a buy's lot is dropped and a sell's matches are
+    // given back to their lots; otherwise the position's lots are replayed.
+    public void removeTransaction(Transaction deleted) {
+        Long portfolioId = deleted.getPortfolio().getPortfolioID();
+        Long stockId = deleted.getStock().getStockID();
+        if (transactionRepository.existsAfter(portfolioId, stockId, deleted.getTransactionDate(),
+                deleted.getTransactionId())) {
+            rebuildLots(portfolioId, stockId);
+            return;
+        }
+
+        if (deleted.getTransactionType() == TransactionType.BUY) {
+            taxLotRepository.findByBuyTransactionId(deleted.getTransactionId()).ifPresent(taxLotRepository::delete);
+            return;
+        }
+        List<TaxLotMatch> matches = taxLotMatchRepository.findBySellTransactionId(deleted.getTransactionId());
+        if (matches.isEmpty()) {
+            // Sold before matches were recorded
+            rebuildLots(portfolioId, stockId);
+            return;
+        }
+        Map<Long, TaxLot> lots = new HashMap<>();
+        for (TaxLot lot : taxLotRepository.findAllById(matches.stream().map(TaxLotMatch::getLotId).toList())) {
+            lots.put(lot.getLotId(), lot);
+        }
+        for (TaxLotMatch match : matches) {
+            lots.get(match.getLotId()).restore(match.getQuantity(), match.getCost());
+        }
+        taxLotMatchRepository.deleteAll(matches);
+    }
+
+    public void deleteLots(Long portfolioId) {
+        taxLotMatchRepository.deleteByPortfolio(portfolioId);
+        taxLotRepository.deleteByPortfolio(portfolioId);
+    }
+
+    public void deleteAllLots() {
+        taxLotMatchRepository.deleteAllInBatch();
+        taxLotRepository.deleteAllInBatch();
+    }
+
+    // Fill in the default method for sells that did not name one
+    private void resolveMethod(Transaction sell) {
+        if (sell.getLotMethod() == null) {
+            sell.setLotMethod(sell.getLotId() != null ? MatchingMethod.SPECIFIC_ID : defaultMethod);
+        }
+        if (sell.getLotMethod() == MatchingMethod.SPECIFIC_ID && sell.getLotId() == null) {
+            throw new RuntimeException("Lot ID is required for SPECIFIC_ID sells");
+        }
+    }
+
+    // Take shares from a lot for a sell and record the match
+    private BigDecimal take(Transaction sell, TaxLot lot, int shares, List<TaxLotMatch> matches) {
+        BigDecimal cost = lot.consume(shares);
+        matches.add(new TaxLotMatch(sell, lot, shares, cost));
+        return cost;
+    }
+
+    // Take the whole sell from the named lot of the same position
+    private BigDecimal consumeSpecificLot(Transaction sell, TaxLot lot, List<TaxLotMatch> matches) {
+        if (lot == null || !lot.isOpen()
+                || !lot.getPortfolioId().equals(sell.getPortfolio().getPortfolioID())
+                || !lot.getStockId().equals(sell.getStock().getStockID())) {
+            throw new RuntimeException("Open lot not found with id: " + sell.getLotId());
+        }
+        return take(sell, lot, sell.getQuantity(), matches);
+    }
+
+    // FIFO/LIFO against the in-memory open lots of a replay; closed lots leave the set
+    private BigDecimal consumeInOrder(Transaction sell, TreeSet<TaxLot> openLots, List<TaxLotMatch> matches) {
+        Iterator<TaxLot> lots = sell.getLotMethod() == MatchingMethod.LIFO
+                ? openLots.descendingIterator()
+                : openLots.iterator();
+        int remaining = sell.getQuantity();
+        BigDecimal cost = BigDecimal.ZERO;
+        while (remaining > 0) {
+            if (!lots.hasNext()) {
+                throw new RuntimeException("Not enough open lots to sell " + sell.getQuantity() + " shares");
+            }
+            TaxLot lot = lots.next();
+            int shares = Math.min(remaining, lot.getRemainingQuantity());
+            cost = cost.add(take(sell, lot, shares, matches));
+            remaining -= shares;
+            if (!lot.isOpen()) {
+                lots.remove();
+            }
+        }
+        return cost;
+    }
+
+    // Open lots of one position while trades are applied. Lots opened by these trades are kept in
+    // memory (they are newer than any stored lot); stored lots are paged in on demand from the
+    // open-lots index, oldest or newest first, without flushing the lots already consumed.
+    private final class LotBook {
+        private final Long portfolioId;
+        private final Long stockId;
+        private final Deque<TaxLot> opened = new ArrayDeque<>();
+        private final Deque<TaxLot> storedOldest = new ArrayDeque<>();
+        private final Deque<TaxLot> storedNewest = new ArrayDeque<>();
+        private TaxLot oldestFetched;
+        private TaxLot newestFetched;
+        private boolean oldestExhausted;
+        private boolean newestExhausted;
+
+        private LotBook(Long portfolioId, Long stockId) {
+            this.portfolioId = portfolioId;
+            this.stockId = stockId;
+        }
+
+        private void open(TaxLot lot) {
+            opened.addLast(lot);
+        }
+
+        // FIFO takes stored lots before new ones, LIFO new lots before stored ones
+        private BigDecimal consume(Transaction sell, List<TaxLotMatch> matches) {
+            boolean lifo = sell.getLotMethod() == MatchingMethod.LIFO;
+            int remaining = sell.getQuantity();
+            BigDecimal cost = BigDecimal.ZERO;
+            while (remaining > 0) {
+                TaxLot lot = lifo ? nextNewest(remaining) : nextOldest(remaining);
+                if (lot == null) {
+                    throw new RuntimeException("Not enough open lots to sell " + sell.getQuantity() + " shares");
+                }
+                int shares = Math.min(remaining, lot.getRemainingQuantity());
+                cost = cost.add(take(sell, lot, shares, matches));
+                remaining -= shares;
+            }
+            return cost;
+        }
+
+        private TaxLot nextOldest(int wanted) {
+            while (true) {
+                TaxLot lot = storedOldest.peekFirst();
+                if (lot == null) {
+                    if (oldestExhausted) {
+                        return firstOpen(opened, true);
+                    }
+                    fetchOldest(wanted);
+                } else if (lot.isOpen()) {
+                    return lot;
+                } else {
+                    storedOldest.pollFirst();
+                }
+            }
+        }
+
+        private TaxLot nextNewest(int wanted) {
+            TaxLot lot = firstOpen(opened, false);
+            while (lot == null) {
+                lot = storedNewest.peekFirst();
+                if (lot == null) {
+                    if (newestExhausted) {
+                        return null;
+                    }
+                    fetchNewest(wanted);
+                } else if (!lot.isOpen()) {
+                    storedNewest.pollFirst();
+                    lot = null;
+                }
+            }
+            return lot;
+        }
+
+        private void fetchOldest(int wanted) {
+            int size = Math.min(wanted, LOT_PAGE_SIZE);
+            List<TaxLot> page = oldestFetched == null
+                    ? taxLotRepository.findOpenOldestFirst(portfolioId, stockId, EARLIEST_DATE, Long.MIN_VALUE, PageRequest.of(0, size))
+                    : taxLotRepository.findOpenOldestFirst(portfolioId, stockId, oldestFetched.getAcquiredDate(),
+                            oldestFetched.getBuyTransactionId(), PageRequest.of(0, size));
+            oldestExhausted = page.size() < size;
+            if (!page.isEmpty()) {
+                oldestFetched = page.get(page.size() - 1);
+                storedOldest.addAll(page);
+            }
+        }
+
+        private void fetchNewest(int wanted) {
+            int size = Math.min(wanted, LOT_PAGE_SIZE);
+            List<TaxLot> page = newestFetched == null
+                    ? taxLotRepository.findOpenNewestFirst(portfolioId, stockId, LATEST_DATE, Long.MAX_VALUE, PageRequest.of(0, size))
+                    : taxLotRepository.findOpenNewestFirst(portfolioId, stockId, newestFetched.getAcquiredDate(),
+                            newestFetched.getBuyTransactionId(), PageRequest.of(0, size));
+            newestExhausted = page.size() < size;
+            if (!page.isEmpty()) {
+                newestFetched = page.get(page.size() - 1);
+                storedNewest.addAll(page);
+            }
+        }
+
+        // Drop closed lots from one end of the deque and return the first open one there
+        private TaxLot firstOpen(Deque<TaxLot> lots, boolean fromFront) {
+            TaxLot lot;
+            while ((lot = fromFront ? lots.peekFirst() : lots.peekLast()) != null && !lot.isOpen()) {
+                if (fromFront) {
+                    lots.pollFirst();
+                } else {
+                    lots.pollLast();
+                }
+            }
+            return lot;
+        }
+    }
+}
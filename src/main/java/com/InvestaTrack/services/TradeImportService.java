@@ -0,0 +1,445 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.dto.TradeRequestDTO;
+import com.InvestaTrack.dto.TradeResultDTO;
+import com.InvestaTrack.models.Stock;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Streaming import of broker-statement CSV files.
+// The upload is spooled to a temp file and read line by line on a background worker, so
+// memory stays flat however large the file is. Rows are parsed into trades, symbols resolve
+// through the price book (creating unknown stocks once, get-or-create style), and every
+// batch-size rows are applied through BatchTradeService in their own transaction.
+// Rows should be oldest first; each chunk is also sorted by trade date before it is applied.
+@Service
+public class TradeImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TradeImportService.class);
+
+    private static final int MAX_RETAINED_JOBS = 50;
+
+    private static final List<DateTimeFormatter> DATE_TIME_FORMATS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME,
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm[:ss]"),
+            DateTimeFormatter.ofPattern("M/d/yyyy H:mm[:ss]")
+    );
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("M/d/yyyy")
+    );
+
+    // Accepted header names for each column (lowercase, spaces and underscores removed)
+    private static final Map<String, String> HEADER_ALIASES = Map.ofEntries(
+            Map.entry("date", "date"), Map.entry("tradedate", "date"), Map.entry("transactiondate", "date"),
+            Map.entry("portfolioid", "portfolioId"), Map.entry("portfolio", "portfolioId"),
+            Map.entry("symbol", "symbol"), Map.entry("ticker", "symbol"),
+            Map.entry("type", "type"), Map.entry("action", "type"), Map.entry("side", "type"),
+            Map.entry("transactiontype", "type"),
+            Map.entry("quantity", "quantity"), Map.entry("shares", "quantity"), Map.entry("qty", "quantity"),
+            Map.entry("price", "price"), Map.entry("pricepershare", "price"),
+            Map.entry("fees", "fees"), Map.entry("fee", "fees"), Map.entry("commission", "fees"),
+            Map.entry("description", "companyName"), Map.entry("companyname", "companyName"),
+            Map.entry("name", "companyName")
+    );
+
+    private final BatchTradeService batchTradeService;
+    private final StockService stockService;
+    private final PriceBook priceBook;
+    private final TradeSequencer tradeSequencer;
+    private final int batchSize;
+    private final int maxErrorSamples;
+    private final ExecutorService importExecutor;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public TradeImportService(BatchTradeService batchTradeService,
+                              StockService stockService,
+                              PriceBook priceBook,
+                              TradeSequencer tradeSequencer,
+                              @Value("${investatrack.import.batch-size:1000}") int batchSize,
+                              @Value("${investatrack.import.max-error-samples:100}") int maxErrorSamples) {
+        this.batchTradeService = batchTradeService;
+        this.stockService = stockService;
+        this.priceBook = priceBook;
+        this.tradeSequencer = tradeSequencer;
+        this.batchSize = batchSize;
+        this.maxErrorSamples = maxErrorSamples;
+        // Imports run one at a time; each chunk also holds its portfolios' trade lanes while it applies
+        this.importExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "trade-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Spool the upload to disk and queue it; returns the new job's status
+    public Map<String, Object> startImport(MultipartFile file, Long defaultPortfolioId) {
+        if (file == null || file.isEmpty()) {
+            throw new RuntimeException("CSV file is required");
+        }
+        Path spool;
+        try {
+            spool = Files.createTempFile("trade-import-", ".csv");
+            file.transferTo(spool);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not store uploaded file: " + e.getMessage());
+        }
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), file.getOriginalFilename(), defaultPortfolioId);
+        jobs.put(job.id, job);
+        evictOldJobs();
+        importExecutor.execute(() -> run(job, spool));
+        return job.status();
+    }
+
+    public Map<String, Object> getStatus(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new RuntimeException("Import job not found with id: " + jobId);
+        }
+        return job.status();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importExecutor.shutdownNow();
+    }
+
+    private void run(ImportJob job, Path spool) {
+        job.markRunning();
+        try (BufferedReader reader = Files.newBufferedReader(spool, StandardCharsets.UTF_8)) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                throw new RuntimeException("File is empty");
+            }
+            Map<String, Integer> columns = parseHeader(headerLine);
+            if (!columns.containsKey("portfolioId") && job.defaultPortfolioId == null) {
+                throw new RuntimeException("No portfolio column in the file and no portfolioId parameter given");
+            }
+
+            List<TradeRequestDTO> chunk = new ArrayList<>(batchSize);
+            List<Long> chunkLines = new ArrayList<>(batchSize);
+            Map<String, Long> resolvedSymbols = new HashMap<>();
+            String line;
+            long lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                job.rowsRead.incrementAndGet();
+                try {
+                    chunk.add(parseRow(splitCsv(line), columns, job.defaultPortfolioId, resolvedSymbols));
+                    chunkLines.add(lineNumber);
+                } catch (RuntimeException e) {
+                    job.recordError(lineNumber, e.getMessage(), maxErrorSamples);
+                }
+                if (chunk.size() >= batchSize) {
+                    applyChunk(job, chunk, chunkLines);
+                }
+            }
+            applyChunk(job, chunk, chunkLines);
+            job.markFinished("COMPLETED", null);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Trade import {} failed: {}", job.id, e.getMessage());
+            job.markFinished("FAILED", e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(spool);
+            } catch (IOException e) {
+                logger.debug("Could not delete import spool file {}", spool);
+            }
+        }
+    }
+
+    private void applyChunk(ImportJob job, List<TradeRequestDTO> chunk, List<Long> chunkLines) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Set<Long> portfolioIds = new HashSet<>();
+        for (TradeRequestDTO trade : chunk) {
+            portfolioIds.add(trade.getPortfolioId());
+        }
+        List<TradeResultDTO> results = tradeSequencer.executeAll(portfolioIds, () -> batchTradeService.applyTrades(chunk));
+        for (TradeResultDTO result : results) {
+            if (result.isApplied()) {
+                job.rowsApplied.incrementAndGet();
+            } else {
+                job.recordError(chunkLines.get(result.getIndex()), result.getError(), maxErrorSamples);
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    private TradeRequestDTO parseRow(List<String> fields, Map<String, Integer> columns,
+                                     Long defaultPortfolioId, Map<String, Long> resolvedSymbols) {
+        TradeRequestDTO trade = new TradeRequestDTO();
+
+        String portfolio = field(fields, columns, "portfolioId");
+        trade.setPortfolioId(portfolio != null ? Long.parseLong(portfolio) : defaultPortfolioId);
+        if (trade.getPortfolioId() == null) {
+            throw new RuntimeException("Portfolio ID is required");
+        }
+
+        String type = required(fields, columns, "type").toUpperCase(Locale.ROOT);
+        if (type.startsWith("BOUGHT") || type.equals("B")) {
+            type = "BUY";
+        } else if (type.startsWith("SOLD") || type.equals("S")) {
+            type = "SELL";
+        }
+        trade.setTransactionType(type);
+
+        BigDecimal quantity = parseAmount(required(fields, columns, "quantity")).abs();
+        try {
+            trade.setQuantity(quantity.intValueExact());
+        } catch (ArithmeticException e) {
+            throw new RuntimeException("Fractional quantities are not supported: " + quantity);
+        }
+        trade.setPricePerShare(parseAmount(required(fields, columns, "price")));
+
+        String fees = field(fields, columns, "fees");
+        if (fees != null) {
+            trade.setFees(parseAmount(fees).abs());
+        }
+        String date = field(fields, columns, "date");
+        if (date != null) {
+            trade.setTransactionDate(parseDate(date));
+        }
+
+        String symbol = required(fields, columns, "symbol").toUpperCase(Locale.ROOT);
+        trade.setSymbol(symbol);
+        trade.setStockId(resolveStock(symbol, field(fields, columns, "companyName"),
+                trade.getPricePerShare(), resolvedSymbols));
+        return trade;
+    }
+
+    // Price book first; unknown symbols are created once and remembered for the rest of the file
+    private Long resolveStock(String symbol, String companyName, BigDecimal price, Map<String, Long> resolvedSymbols) {
+        Long stockId = priceBook.resolveSymbol(symbol);
+        if (stockId != null) {
+            return stockId;
+        }
+        stockId = resolvedSymbols.get(symbol);
+        if (stockId != null) {
+            return stockId;
+        }
+        if (symbol.length() > 10) {
+            throw new RuntimeException("Invalid symbol: " + symbol);
+        }
+        String name = companyName != null ? companyName : symbol;
+        if (name.length() > 100) {
+            name = name.substring(0, 100);
+        }
+        Stock stock = stockService.getOrCreateStock(symbol, name, price);
+        resolvedSymbols.put(symbol, stock.getStockID());
+        return stock.getStockID();
+    }
+
+    private static Map<String, Integer> parseHeader(String headerLine) {
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsv(headerLine);
+        for (int i = 0; i < names.size(); i++) {
+            String key = names.get(i).trim().toLowerCase(Locale.ROOT).replace(" ", "").replace("_", "");
+            String column = HEADER_ALIASES.get(key.replace("\uFEFF", ""));
+            if (column != null) {
+                columns.putIfAbsent(column, i);
+            }
+        }
+        for (String column : List.of("symbol", "type", "quantity", "price")) {
+            if (!columns.containsKey(column)) {
+                throw new RuntimeException("Missing required column: " + column);
+            }
+        }
+        return columns;
+    }
+
+    // Split one CSV line, honouring double-quoted fields and "" escapes
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String required(List<String> fields, Map<String, Integer> columns, String column) {
+        String value = field(fields, columns, column);
+        if (value == null) {
+            throw new RuntimeException("Missing " + column);
+        }
+        return value;
+    }
+
+    private static BigDecimal parseAmount(String value) {
+        try {
+            return new BigDecimal(value.replace("$", "").replace(",", ""));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid number: " + value);
+        }
+    }
+
+    private static LocalDateTime parseDate(String value) {
+        for (DateTimeFormatter format : DATE_TIME_FORMATS) {
+            try {
+                return LocalDateTime.parse(value, format);
+            } catch (DateTimeParseException ignored) {
+                // Try the next format
+            }
+        }
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(value, format).atStartOfDay();
+            } catch (DateTimeParseException ignored) {
+                // Try the next format
+            }
+        }
+        throw new RuntimeException("Invalid date: " + value);
+    }
+
+    private void evictOldJobs() {
+        if (jobs.size() <= MAX_RETAINED_JOBS) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(job -> job.finishedAt != null)
+                .min((a, b) -> a.finishedAt.compareTo(b.finishedAt))
+                .ifPresent(oldest -> jobs.remove(oldest.id));
+    }
+
+    // Progress of one import, updated by the worker and read by the status endpoint
+    private static final class ImportJob {
+        private final String id;
+        private final String fileName;
+        private final Long defaultPortfolioId;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong rowsApplied = new AtomicLong();
+        private final AtomicLong rowsFailed = new AtomicLong();
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+
+        private volatile String status = "QUEUED";
+        private volatile String message;
+        private volatile long startedAtNanos;
+        private volatile long finishedAtNanos;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+
+        private ImportJob(String id, String fileName, Long defaultPortfolioId) {
+            this.id = id;
+            this.fileName = fileName;
+            this.defaultPortfolioId = defaultPortfolioId;
+        }
+
+        void markRunning() {
+            startedAt = LocalDateTime.now();
+            startedAtNanos = System.nanoTime();
+            status = "RUNNING";
+        }
+
+        void markFinished(String finalStatus, String finalMessage) {
+            finishedAtNanos = System.nanoTime();
+            finishedAt = LocalDateTime.now();
+            message = finalMessage;
+            status = finalStatus;
+        }
+
+        void recordError(long lineNumber, String error, int maxSamples) {
+            rowsFailed.incrementAndGet();
+            synchronized (errors) {
+                if (errors.size() < maxSamples) {
+                    Map<String, Object> sample = new LinkedHashMap<>();
+                    sample.put("line", lineNumber);
+                    sample.put("error", error);
+                    errors.add(sample);
+                }
+            }
+        }
+
+        Map<String, Object> status() {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("jobId", id);
+            status.put("fileName", fileName);
+            status.put("status", this.status);
+            status.put("submittedAt", submittedAt);
+            status.put("startedAt", startedAt);
+            status.put("finishedAt", finishedAt);
+            status.put("rowsRead", rowsRead.get());
+            status.put("rowsApplied", rowsApplied.get());
+            status.put("rowsFailed", rowsFailed.get());
+
+            double rowsPerSecond = 0.0;
+            if (startedAtNanos != 0) {
+                long end = finishedAtNanos != 0 ? finishedAtNanos : System.nanoTime();
+                double seconds = Math.max(1e-9, (end - startedAtNanos) / 1e9);
+                rowsPerSecond = Math.round(rowsRead.get() / seconds * 10) / 10.0;
+            }
+            status.put("rowsPerSecond", rowsPerSecond);
+            if (message != null) {
+                status.put("message", message);
+            }
+            synchronized (errors) {
+                status.put("errors", new ArrayList<>(errors));
+            }
+            return status;
+        }
+    }
+}
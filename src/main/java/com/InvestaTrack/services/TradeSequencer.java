@@ -0,0 +1,147 @@
+package com.InvestaTrack.services;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+// Single-writer lanes for trades.
+// Every portfolio maps to one of a fixed number of single-thread lanes, so trades for the same
+// portfolio run one after another (each in its own database transaction) while portfolios on
+// different lanes run in parallel. A read-validate-write trade therefore never interleaves with
+// another trade on the same positions. Work touching several portfolios (a batch or an import
+// chunk) pauses every lane it needs, in ascending lane order, and runs while holding them.
+@Service
+public class TradeSequencer {
+
+    // Lanes the current thread already owns; work for those lanes runs inline
+    private static final ThreadLocal<Set<Integer>> heldLanes = ThreadLocal.withInitial(HashSet::new);
+
+    private final List<ExecutorService> lanes = new ArrayList<>();
+
+    public TradeSequencer(@Value("${investatrack.trades.lanes:8}") int laneCount) {
+        if (laneCount < 1) {
+            throw new IllegalArgumentException("investatrack.trades.lanes must be at least 1");
+        }
+        for (int i = 0; i < laneCount; i++) {
+            int laneIndex = i;
+            lanes.add(Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(() -> {
+                    heldLanes.get().add(laneIndex);
+                    r.run();
+                }, "trade-lane-" + laneIndex);
+                thread.setDaemon(true);
+                return thread;
+            }));
+        }
+    }
+
+    // Run work on the portfolio's lane and wait for its result
+    public <T> T execute(Long portfolioId, Supplier<T> work) {
+        return executeAll(Collections.singletonList(portfolioId), work);
+    }
+
+    // Run work while owning the lanes of all given portfolios and wait for its result
+    public <T> T executeAll(Collection<Long> portfolioIds, Supplier<T> work) {
+        SortedSet<Integer> needed = new TreeSet<>();
+        for (Long portfolioId : portfolioIds) {
+            if (portfolioId != null) {
+                needed.add(laneOf(portfolioId));
+            }
+        }
+        needed.removeAll(heldLanes.get());
+        if (needed.isEmpty()) {
+            return work.get();
+        }
+        if (needed.size() == 1) {
+            return await(lanes.get(needed.first()).submit(work::get));
+        }
+        return runHoldingLanes(needed, work);
+    }
+
+    public int getLaneCount() {
+        return lanes.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.forEach(ExecutorService::shutdownNow);
+    }
+
+    private int laneOf(Long portfolioId) {
+        return Math.floorMod(portfolioId.hashCode(), lanes.size());
+    }
+
+    // Park each lane in ascending order (so two multi-lane callers cannot deadlock), run, release
+    private <T> T runHoldingLanes(SortedSet<Integer> needed, Supplier<T> work) {
+        CountDownLatch release = new CountDownLatch(1);
+        Set<Integer> held = heldLanes.get();
+        List<Integer> acquired = new ArrayList<>();
+        try {
+            for (Integer lane : needed) {
+                CountDownLatch parked = new CountDownLatch(1);
+                lanes.get(lane).execute(() -> {
+                    parked.countDown();
+                    awaitUninterruptibly(release);
+                });
+                parked.await();
+                acquired.add(lane);
+            }
+            held.addAll(acquired);
+            return work.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for trade lanes");
+        } finally {
+            held.removeAll(acquired);
+            release.countDown();
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for trade to apply");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
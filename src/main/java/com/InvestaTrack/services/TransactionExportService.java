@@ -0,0 +1,160 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.dto.TransactionDTO;
+import com.InvestaTrack.models.Transaction;
+import com.InvestaTrack.repos.TransactionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+// Full transaction dumps for audits.
+// Rows come from a forward-only, fetch-size-tuned query stream inside one read-only transaction
+// and are written to the output as they arrive, so memory stays flat whatever the row count.
+// The persistence context is cleared every CLEAR_INTERVAL rows so loaded entities do not pile up.
+@Service
+public class TransactionExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionExportService.class);
+
+    private static final int CLEAR_INTERVAL = 1000;
+    private static final String CSV_HEADER = "transactionId,transactionDate,portfolioId,portfolioName,stockId,symbol," +
+            "transactionType,quantity,pricePerShare,totalAmount,fees,realizedGain";
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format fromName(String name) {
+            try {
+                return Format.valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new RuntimeException("Unsupported export format (expected csv or ndjson)");
+            }
+        }
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate readOnlyTemplate;
+    private final ObjectMapper objectMapper;
+
+    public TransactionExportService(TransactionRepository transactionRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    ObjectMapper objectMapper) {
+        this.transactionRepository = transactionRepository;
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    // Write every transaction (or one portfolio's) in ID order; returns the number of rows written
+    public long export(Format format, Long portfolioId, OutputStream output) {
+        long start = System.nanoTime();
+        Long rows = readOnlyTemplate.execute(status -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+            try (Stream<Transaction> transactions = portfolioId == null
+                    ? transactionRepository.streamAllForExport()
+                    : transactionRepository.streamByPortfolioForExport(portfolioId)) {
+                if (format == Format.CSV) {
+                    writer.write(CSV_HEADER);
+                    writer.write('\n');
+                }
+                long count = 0;
+                Iterator<Transaction> iterator = transactions.iterator();
+                while (iterator.hasNext()) {
+                    Transaction transaction = iterator.next();
+                    if (format == Format.CSV) {
+                        writeCsvRow(writer, transaction);
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(new TransactionDTO(transaction)));
+                        writer.write('\n');
+                    }
+                    if (++count % CLEAR_INTERVAL == 0) {
+                        writer.flush();
+                        entityManager.clear();
+                    }
+                }
+                writer.flush();
+                return count;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Transaction export aborted: " + e.getMessage(), e);
+            }
+        });
+        logger.info("Exported {} transactions as {} in {} ms", rows, format, (System.nanoTime() - start) / 1_000_000);
+        return rows;
+    }
+
+    private static void writeCsvRow(Writer writer, Transaction transaction) throws IOException {
+        writer.write(String.valueOf(transaction.getTransactionId()));
+        writer.write(',');
+        writer.write(String.valueOf(transaction.getTransactionDate()));
+        writer.write(',');
+        writer.write(String.valueOf(transaction.getPortfolio().getPortfolioID()));
+        writer.write(',');
+        writer.write(csvField(transaction.getPortfolio().getName()));
+        writer.write(',');
+        writer.write(String.valueOf(transaction.getStock().getStockID()));
+        writer.write(',');
+        writer.write(csvField(transaction.getStock().getSymbol()));
+        writer.write(',');
+        writer.write(transaction.getTransactionType().name());
+        writer.write(',');
+        writer.write(String.valueOf(transaction.getQuantity()));
+        writer.write(',');
+        writer.write(transaction.getPricePerShare().toPlainString());
+        writer.write(',');
+        writer.write(transaction.getTotalAmount().toPlainString());
+        writer.write(',');
+        writer.write(transaction.getFees() != null ? transaction.getFees().toPlainString() : "0");
+        writer.write(',');
+        if (transaction.getRealizedGain() != null) {
+            writer.write(transaction.getRealizedGain().toPlainString());
+        }
+        writer.write('\n');
+    }
+
+    // Quote a field when it contains a delimiter, quote or line break
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
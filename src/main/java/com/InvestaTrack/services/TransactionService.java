@@ -1,12 +1,17 @@
 package com.InvestaTrack.services;
 
+import com.InvestaTrack.dto.TransactionCursor;
+import com.InvestaTrack.models.TaxLot;
 import com.InvestaTrack.models.Transaction;
 import com.InvestaTrack.models.Transaction.TransactionType;
 import com.InvestaTrack.models.Portfolio;
 import com.InvestaTrack.models.Stock;
 import com.InvestaTrack.models.Position;
 import com.InvestaTrack.repos.TransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
@@ -14,26 +19,44 @@ import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
 
 @Service
 @Transactional
 public class TransactionService {
 
+    // Open bounds for history pages without a date filter
+    private static final LocalDateTime EARLIEST_DATE = LocalDateTime.of(1900, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST_DATE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
     private final TransactionRepository transactionRepository;
     private final PortfolioService portfolioService;
     private final StockService stockService;
     private final PositionService positionService;
+    private final OptimisticRetry optimisticRetry;
+    private final TransactionSummaryService transactionSummaryService;
+    private final TaxLotService taxLotService;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
     // Constructor injection
     public TransactionService(TransactionRepository transactionRepository,
                               PortfolioService portfolioService,
                               StockService stockService,
-                              PositionService positionService) {
+                              PositionService positionService,
+                              OptimisticRetry optimisticRetry,
+                              TransactionSummaryService transactionSummaryService,
+                              TaxLotService taxLotService,
+                              @Value("${investatrack.transactions.page-size:100}") int defaultPageSize,
+                              @Value("${investatrack.transactions.max-page-size:1000}") int maxPageSize) {
         this.transactionRepository = transactionRepository;
         this.portfolioService = portfolioService;
         this.stockService = stockService;
         this.positionService = positionService;
+        this.optimisticRetry = optimisticRetry;
+        this.transactionSummaryService = transactionSummaryService;
+        this.taxLotService = taxLotService;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     // Get all transactions
@@ -47,13 +70,29 @@ public class TransactionService {
                 .orElseThrow(() -> new RuntimeException("Transaction not found with id: " + id));
     }
 
+    // Get the owning portfolio ID of a transaction
+    public Long getPortfolioIdForTransaction(Long id) {
+        return transactionRepository.findPortfolioIdByTransactionId(id)
+                .orElseThrow(() -> new RuntimeException("Transaction not found with id: " + id));
+    }
+
     // Get transactions by portfolio ID
     public List<Transaction> getTransactionsByPortfolioId(Long portfolioId) {
         return transactionRepository.findByPortfolioPortfolioIDOrderByTransactionDateDesc(portfolioId);
     }
 
-    // Create new transaction
+    // Create new transaction; re-run as a whole if its position or portfolio changed concurrently
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Transaction createTransaction(Transaction transaction) {
+        // Decided once: a retried attempt sees the date the failed attempt generated
+        boolean backDated = transaction.getTransactionDate() != null;
+        return optimisticRetry.execute(() -> applyNewTransaction(transaction, backDated));
+    }
+
+    private Transaction applyNewTransaction(Transaction transaction, boolean backDated) {
+        // IDs are always generated (this also drops an ID assigned by a failed attempt)
+        transaction.setTransactionId(null);
+
         // Validate portfolio exists
         Portfolio portfolio = portfolioService.getPortfolioById(transaction.getPortfolio().getPortfolioID());
         transaction.setPortfolio(portfolio);
@@ -69,120 +108,156 @@ public class TransactionService {
             transaction.setTotalAmount(totalAmount);
         }
 
-        // Validate transaction based on type
-        if (transaction.getTransactionType() == TransactionType.SELL) {
-            validateSellTransaction(transaction);
-        }
-
         // Ensure transactionDate is set
-        if (transaction.getTransactionDate() == null) {
+        if (!backDated) {
             transaction.setTransactionDate(LocalDateTime.now());
         }
+        // A trade before the position's latest one is replayed into the position and its lots
+        boolean replay = backDated && taxLotService.isBackDated(portfolio.getPortfolioID(),
+                stock.getStockID(), transaction.getTransactionDate());
+
+        // Validate transaction based on type
+        if (transaction.getTransactionType() == TransactionType.SELL) {
+            validateSellTransaction(transaction, replay);
+        }
 
         // Save transaction
         Transaction savedTransaction = transactionRepository.save(transaction);
-
-        // Update position
-        positionService.updatePositionFromTransaction(savedTransaction);
-
-        // Update portfolio values
-        portfolioService.updatePortfolioValues(portfolio.getPortfolioID());
+        if (replay) {
+            // Replays from the nearest snapshot before the trade; later snapshots are dropped
+            positionService.recalculatePosition(portfolio.getPortfolioID(), stock.getStockID(), savedTransaction);
+        } else {
+            // Open a lot, or match a sell against open lots and set its realized gain
+            taxLotService.applyTransactions(List.of(savedTransaction));
+            // Update position; portfolio totals are adjusted by the position's delta
+            positionService.updatePositionFromTransaction(savedTransaction);
+        }
+        transactionSummaryService.recordCreated(List.of(savedTransaction));
+        if (replay) {
+            taxLotService.rebuildLots(portfolio.getPortfolioID(), stock.getStockID());
+        }
 
         return savedTransaction;
     }
 
-    // Validate sell transaction
-    private void validateSellTransaction(Transaction transaction) {
-        Position position = positionService.getPositionByPortfolioAndStock(
-                transaction.getPortfolio().getPortfolioID(),
-                transaction.getStock().getStockID()
-        );
+    // Validate sell transaction; a back-dated sell is checked against the shares held at its date
+    private void validateSellTransaction(Transaction transaction, boolean backDated) {
+        Long portfolioId = transaction.getPortfolio().getPortfolioID();
+        Long stockId = transaction.getStock().getStockID();
+        int available;
+        if (backDated) {
+            available = positionService.getSharesAvailableAt(portfolioId, stockId, transaction.getTransactionDate());
+        } else {
+            Position position = positionService.getPositionByPortfolioAndStock(portfolioId, stockId);
+            available = position != null ? position.getQuantity() : 0;
+        }
 
-        if (position == null || position.getQuantity() < transaction.getQuantity()) {
-            throw new RuntimeException("Insufficient shares to sell. Available: " +
-                    (position != null ? position.getQuantity() : 0));
+        if (available < transaction.getQuantity()) {
+            throw new RuntimeException("Insufficient shares to sell. Available: " + available);
         }
     }
 
-    // Update transaction
+    // Update transaction: only the fees can change. The portfolio's fee total moves by the difference;
+    // a buy's fees are part of its cost, so the position and lots are replayed from it, and a sell's
+    // realized gain moves with its proceeds. Re-run on a concurrent position change.
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Transaction updateTransaction(Long id, Transaction transactionDetails) {
-        Transaction transaction = getTransactionById(id);
-
-        // Only allow updating fees and notes (not core transaction details)
-        if (transactionDetails.getFees() != null) {
-            transaction.setFees(transactionDetails.getFees());
-        }
+        return optimisticRetry.execute(() -> {
+            // Locked so concurrent edits of one trade each apply their own difference
+            Transaction transaction = transactionRepository.findByIdForUpdate(id)
+                    .orElseThrow(() -> new RuntimeException("Transaction not found with id: " + id));
+            BigDecimal fees = transactionDetails.getFees();
+            BigDecimal previousFees = transaction.getFees() != null ? transaction.getFees() : BigDecimal.ZERO;
+            if (fees == null || fees.compareTo(previousFees) == 0) {
+                return transaction;
+            }
+            if (fees.signum() < 0) {
+                throw new RuntimeException("Fees must be non-negative");
+            }
 
-        return transactionRepository.save(transaction);
+            BigDecimal feeChange = fees.subtract(previousFees);
+            Long portfolioId = transaction.getPortfolio().getPortfolioID();
+            Long stockId = transaction.getStock().getStockID();
+            transaction.setFees(fees);
+            Transaction savedTransaction = transactionRepository.save(transaction);
+            transactionSummaryService.recordFeesChanged(portfolioId, feeChange);
+
+            if (savedTransaction.getTransactionType() == TransactionType.BUY) {
+                positionService.recalculatePosition(portfolioId, stockId, savedTransaction);
+                taxLotService.rebuildLots(portfolioId, stockId);
+            } else if (savedTransaction.getRealizedGain() != null) {
+                savedTransaction.setRealizedGain(savedTransaction.getRealizedGain().subtract(feeChange));
+                transactionSummaryService.addRealizedGain(portfolioId, feeChange.negate());
+            }
+            return savedTransaction;
+        });
     }
 
-    // Delete transaction (with position recalculation)
+    // Delete transaction (with position recalculation); re-run on a concurrent position change
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void deleteTransaction(Long id) {
-        Transaction transaction = getTransactionById(id);
-        Long portfolioId = transaction.getPortfolio().getPortfolioID();
-        Long stockId = transaction.getStock().getStockID();
+        optimisticRetry.execute(() -> {
+            Transaction transaction = getTransactionById(id);
+            Long portfolioId = transaction.getPortfolio().getPortfolioID();
+            Long stockId = transaction.getStock().getStockID();
 
-        // Delete transaction
-        transactionRepository.deleteById(id);
-
-        // Recalculate position
-        positionService.recalculatePosition(portfolioId, stockId);
+            // Later sells may be using the shares a BUY brought in
+            if (transaction.getTransactionType() == TransactionType.BUY) {
+                int available = positionService.getSharesAvailableAfter(portfolioId, stockId,
+                        transaction.getTransactionDate(), transaction.getTransactionId());
+                if (available < transaction.getQuantity()) {
+                    throw new RuntimeException("Cannot delete transaction " + id + ": later sells depend on "
+                            + (transaction.getQuantity() - available) + " of its shares");
+                }
+            }
 
-        // Update portfolio values
-        portfolioService.updatePortfolioValues(portfolioId);
+            // Delete transaction
+            transactionRepository.deleteById(id);
+            transactionSummaryService.recordDeleted(transaction);
+
+            // Replay the position from the nearest snapshot before the deleted trade;
+            // portfolio totals are adjusted by the position's delta
+            positionService.recalculatePosition(portfolioId, stockId, transaction);
+            // Undo the trade's lot changes, re-matching later sells if it was not the latest
+            taxLotService.removeTransaction(transaction);
+            return null;
+        });
     }
 
-    // Get transactions by type
-    public List<Transaction> getTransactionsByType(Long portfolioId, TransactionType type) {
-        return transactionRepository.findByPortfolioPortfolioIDAndTransactionType(portfolioId, type);
-    }
+    // One page of a portfolio's history, newest first, continuing after the cursor (null for the first page).
+    // Type and date bounds are optional. Each page is an index range scan, so page N costs the same as page 1.
+    public List<Transaction> getTransactionPage(Long portfolioId, TransactionType type,
+                                                LocalDateTime startDate, LocalDateTime endDate,
+                                                TransactionCursor cursor, int limit) {
+        LocalDateTime fromDate = startDate != null ? startDate : EARLIEST_DATE;
+        LocalDateTime beforeDate = LATEST_DATE;
+        Long beforeId = Long.MAX_VALUE;
+        if (endDate != null) {
+            beforeDate = endDate;
+        }
+        if (cursor != null && cursor.getTransactionDate().compareTo(beforeDate) <= 0) {
+            beforeDate = cursor.getTransactionDate();
+            beforeId = cursor.getTransactionId();
+        }
 
-    // Get transactions within date range
-    public List<Transaction> getTransactionsByDateRange(Long portfolioId,
-                                                        LocalDateTime startDate,
-                                                        LocalDateTime endDate) {
-        return transactionRepository.findByPortfolioAndDateRange(portfolioId, startDate, endDate);
+        PageRequest page = PageRequest.of(0, limit);
+        return type == null
+                ? transactionRepository.findPage(portfolioId, fromDate, beforeDate, beforeId, page)
+                : transactionRepository.findPageByType(portfolioId, type, fromDate, beforeDate, beforeId, page);
     }
 
-    // Get recent transactions
-    public List<Transaction> getRecentTransactions(Long portfolioId, int limit) {
-        List<Transaction> allTransactions = transactionRepository.findRecentTransactions(portfolioId);
-        return allTransactions.stream().limit(limit).toList();
+    // Page size to use for a request: the default when none is given, never more than the maximum
+    public int resolvePageSize(Integer requested) {
+        return requested == null ? defaultPageSize : Math.min(requested, maxPageSize);
     }
 
-    // Get transaction summary for portfolio
+    // Get transaction summary for portfolio (one maintained row, no history scan)
     public Map<String, Object> getTransactionSummary(Long portfolioId) {
-        List<Transaction> transactions = getTransactionsByPortfolioId(portfolioId);
-
-        Long buyCount = transactionRepository.countByPortfolioAndType(portfolioId, TransactionType.BUY);
-        Long sellCount = transactionRepository.countByPortfolioAndType(portfolioId, TransactionType.SELL);
-
-        BigDecimal totalBuyAmount = BigDecimal.ZERO;
-        BigDecimal totalSellAmount = BigDecimal.ZERO;
-        BigDecimal totalFees = BigDecimal.ZERO;
-
-        for (Transaction transaction : transactions) {
-            if (transaction.getTransactionType() == TransactionType.BUY) {
-                totalBuyAmount = totalBuyAmount.add(transaction.getTotalAmount());
-            } else {
-                totalSellAmount = totalSellAmount.add(transaction.getTotalAmount());
-            }
-            totalFees = totalFees.add(transaction.getFees());
-        }
-
-        Map<String, Object> summary = new HashMap<>();
-        summary.put("totalTransactions", transactions.size());
-        summary.put("buyTransactions", buyCount);
-        summary.put("sellTransactions", sellCount);
-        summary.put("totalBuyAmount", totalBuyAmount);
-        summary.put("totalSellAmount", totalSellAmount);
-        summary.put("totalFees", totalFees);
-        summary.put("netInvested", totalBuyAmount.subtract(totalSellAmount));
-
-        return summary;
+        return transactionSummaryService.getSummary(portfolioId);
     }
 
     // Create buy transaction helper
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Transaction createBuyTransaction(Long portfolioId, Long stockId,
                                             Integer quantity, BigDecimal pricePerShare,
                                             BigDecimal fees) {
@@ -198,10 +273,21 @@ public class TransactionService {
         return createTransaction(transaction);
     }
 
-    // Create sell transaction helper
+    // Create sell transaction helper; lots are matched by the default method
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Transaction createSellTransaction(Long portfolioId, Long stockId,
                                              Integer quantity, BigDecimal pricePerShare,
                                              BigDecimal fees) {
+        return createSellTransaction(portfolioId, stockId, quantity, pricePerShare, fees, null, null);
+    }
+
+    // Create sell transaction helper with a lot matching method (null for the default) and, for
+    // SPECIFIC_ID, the lot to sell from
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Transaction createSellTransaction(Long portfolioId, Long stockId,
+                                             Integer quantity, BigDecimal pricePerShare,
+                                             BigDecimal fees, TaxLot.MatchingMethod lotMethod,
+                                             Long lotId) {
         Portfolio portfolio = portfolioService.getPortfolioById(portfolioId);
         Stock stock = stockService.getStockById(stockId);
 
@@ -210,12 +296,16 @@ public class TransactionService {
         if (fees != null) {
             transaction.setFees(fees);
         }
+        transaction.setLotMethod(lotMethod);
+        transaction.setLotId(lotId);
 
         return createTransaction(transaction);
     }
 
     public void deleteAllTransactions() {
+        taxLotService.deleteAllLots();
         transactionRepository.deleteAll();
+        transactionSummaryService.deleteAllSummaries();
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,239 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.models.PortfolioTransactionSummary;
+import com.InvestaTrack.models.Transaction;
+import com.InvestaTrack.models.Transaction.TransactionType;
+import com.InvestaTrack.repos.PortfolioTransactionSummaryRepository;
+import com.InvestaTrack.repos.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Maintains one PortfolioTransactionSummary row per portfolio.
+// Creating or deleting transactions adds the change to the row with an atomic UPDATE in the
+// same database transaction as the trade, so the summary endpoint reads one row instead of
+// scanning the portfolio's history. rebuildAll recomputes every row from the transactions table,
+// one portfolio at a time under a lock on its row.
+@Service
+@Transactional
+public class TransactionSummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionSummaryService.class);
+
+    private final PortfolioTransactionSummaryRepository summaryRepository;
+    private final TransactionRepository transactionRepository;
+    private final OptimisticRetry optimisticRetry;
+
+    public TransactionSummaryService(PortfolioTransactionSummaryRepository summaryRepository,
+                                     TransactionRepository transactionRepository,
+                                     OptimisticRetry optimisticRetry) {
+        this.summaryRepository = summaryRepository;
+        this.transactionRepository = transactionRepository;
+        this.optimisticRetry = optimisticRetry;
+    }
+
+    // Add newly saved transactions to their portfolios' summaries (one UPDATE per portfolio)
+    public void recordCreated(List<Transaction> transactions) {
+        Map<Long, SummaryDelta> deltas = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            deltas.computeIfAbsent(transaction.getPortfolio().getPortfolioID(), id -> new SummaryDelta())
+                    .add(transaction, 1);
+        }
+        deltas.forEach(this::apply);
+    }
+
+    // Take a deleted transaction out of its portfolio's summary
+    public void recordDeleted(Transaction transaction) {
+        SummaryDelta delta = new SummaryDelta();
+        delta.add(transaction, -1);
+        apply(transaction.getPortfolio().getPortfolioID(), delta);
+    }
+
+    // Move a portfolio's fee total after one of its transactions had its fees edited
+    public void recordFeesChanged(Long portfolioId, BigDecimal feeChange) {
+        SummaryDelta delta = new SummaryDelta();
+        delta.fees = feeChange;
+        apply(portfolioId, delta);
+    }
+
+    // Move a portfolio's realized gain total after its sells were re-matched against their lots
+    public void addRealizedGain(Long portfolioId, BigDecimal realizedGain) {
+        SummaryDelta delta = new SummaryDelta();
+        delta.realizedGain = realizedGain;
+        apply(portfolioId, delta);
+    }
+
+    // Summary figures for a portfolio, all zero when it has no transactions
+    @Transactional(readOnly = true)
+    public Map<String, Object> getSummary(Long portfolioId) {
+        PortfolioTransactionSummary summary = summaryRepository.findById(portfolioId)
+                .orElseGet(() -> new PortfolioTransactionSummary(portfolioId));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("totalTransactions", summary.getBuyCount() + summary.getSellCount());
+        result.put("buyTransactions", summary.getBuyCount());
+        result.put("sellTransactions", summary.getSellCount());
+        result.put("totalBuyAmount", summary.getTotalBuyAmount());
+        result.put("totalSellAmount", summary.getTotalSellAmount());
+        result.put("totalFees", summary.getTotalFees());
+        result.put("netInvested", summary.getTotalBuyAmount().subtract(summary.getTotalSellAmount()));
+        result.put("realizedGain", summary.getTotalRealizedGain());
+        return result;
+    }
+
+    // Recompute every summary from the transactions table, each portfolio in its own short transaction.
+    // Safety net for the maintained rows; returns how many portfolios had drifted.
+    @Scheduled(cron = "${investatrack.transactions.summary-rebuild-cron:-}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int rebuildAll() {
+        Set<Long> portfolioIds = new TreeSet<>(transactionRepository.findPortfolioIds());
+        portfolioIds.addAll(summaryRepository.findPortfolioIds());
+
+        int drifted = 0;
+        for (Long portfolioId : portfolioIds) {
+            if (optimisticRetry.executeInNewTransaction(() -> rebuild(portfolioId))) {
+                drifted++;
+            }
+        }
+        return drifted;
+    }
+
+    // Recompute one portfolio's row while holding its lock. A trade that added to the row first has
+    // committed before the lock is granted, so the aggregate sees it; one that comes later waits for
+    // the lock and adds to the rebuilt totals. Returns whether the row had drifted.
+    private boolean rebuild(Long portfolioId) {
+        Optional<PortfolioTransactionSummary> locked = summaryRepository.findByIdForUpdate(portfolioId);
+
+        PortfolioTransactionSummary expected = new PortfolioTransactionSummary(portfolioId);
+        for (Object[] row : transactionRepository.sumTotalsByType(portfolioId)) {
+            if (row[0] == TransactionType.BUY) {
+                expected.setBuyCount((Long) row[1]);
+                expected.setTotalBuyAmount((BigDecimal) row[2]);
+            } else {
+                expected.setSellCount((Long) row[1]);
+                expected.setTotalSellAmount((BigDecimal) row[2]);
+            }
+            expected.setTotalFees(expected.getTotalFees().add((BigDecimal) row[3]));
+            expected.setTotalRealizedGain(expected.getTotalRealizedGain().add((BigDecimal) row[4]));
+        }
+
+        if (locked.isEmpty()) {
+            // Transactions but no summary row yet; a trade creating it concurrently makes this a retried conflict
+            if (isEmpty(expected)) {
+                return false;
+            }
+            insert(portfolioId, expected.getBuyCount(), expected.getSellCount(), expected.getTotalBuyAmount(),
+                    expected.getTotalSellAmount(), expected.getTotalFees(), expected.getTotalRealizedGain());
+            return true;
+        }
+
+        PortfolioTransactionSummary existing = locked.get();
+        boolean drifted = isEmpty(expected) ? !isEmpty(existing) : !sameTotals(existing, expected);
+        if (drifted) {
+            logger.warn("Transaction summary for portfolio {} drifted ({}); rebuilt", portfolioId, existing);
+        }
+        if (isEmpty(expected)) {
+            // No transactions left
+            summaryRepository.delete(existing);
+        } else if (drifted) {
+            copyTotals(expected, existing);
+        }
+        return drifted;
+    }
+
+    public void deleteSummary(Long portfolioId) {
+        summaryRepository.findById(portfolioId).ifPresent(summaryRepository::delete);
+    }
+
+    public void deleteAllSummaries() {
+        summaryRepository.deleteAllInBatch();
+    }
+
+    private void apply(Long portfolioId, SummaryDelta delta) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = summaryRepository.addToTotals(portfolioId, delta.buyCount, delta.sellCount,
+                delta.buyAmount, delta.sellAmount, delta.fees, delta.realizedGain, now);
+        if (updated == 0) {
+            // First transaction of the portfolio: start its row from this delta
+            insert(portfolioId, delta.buyCount, delta.sellCount, delta.buyAmount, delta.sellAmount,
+                    delta.fees, delta.realizedGain);
+        }
+    }
+
+    // Insert a new summary row. When another writer created it first the unit of work is reported as an
+    // optimistic conflict, so OptimisticRetry runs it again against that row
+    private void insert(Long portfolioId, long buyCount, long sellCount, BigDecimal buyAmount,
+                        BigDecimal sellAmount, BigDecimal fees, BigDecimal realizedGain) {
+        try {
+            summaryRepository.insertTotals(portfolioId, buyCount, sellCount, buyAmount, sellAmount, fees,
+                    realizedGain, LocalDateTime.now());
+        } catch (DataIntegrityViolationException e) {
+            throw new OptimisticLockingFailureException(
+                    "Transaction summary for portfolio " + portfolioId + " was created concurrently", e);
+        }
+    }
+
+    private static void copyTotals(PortfolioTransactionSummary from, PortfolioTransactionSummary to) {
+        to.setBuyCount(from.getBuyCount());
+        to.setSellCount(from.getSellCount());
+        to.setTotalBuyAmount(from.getTotalBuyAmount());
+        to.setTotalSellAmount(from.getTotalSellAmount());
+        to.setTotalFees(from.getTotalFees());
+        to.setTotalRealizedGain(from.getTotalRealizedGain());
+        to.setUpdatedAt(LocalDateTime.now());
+    }
+
+    private static boolean isEmpty(PortfolioTransactionSummary summary) {
+        return summary.getBuyCount() == 0 && summary.getSellCount() == 0;
+    }
+
+    private static boolean sameTotals(PortfolioTransactionSummary a, PortfolioTransactionSummary b) {
+        return a.getBuyCount().equals(b.getBuyCount())
+                && a.getSellCount().equals(b.getSellCount())
+                && a.getTotalBuyAmount().compareTo(b.getTotalBuyAmount()) == 0
+                && a.getTotalSellAmount().compareTo(b.getTotalSellAmount()) == 0
+                && a.getTotalFees().compareTo(b.getTotalFees()) == 0
+                && a.getTotalRealizedGain().compareTo(b.getTotalRealizedGain()) == 0;
+    }
+
+    // Change to one portfolio's summary; sign is 1 for a created and -1 for a deleted transaction
+    private static final class SummaryDelta {
+        private long buyCount;
+        private long sellCount;
+        private BigDecimal buyAmount = BigDecimal.ZERO;
+        private BigDecimal sellAmount = BigDecimal.ZERO;
+        private BigDecimal fees = BigDecimal.ZERO;
+        private BigDecimal realizedGain = BigDecimal.ZERO;
+
+        private void add(Transaction transaction, int sign) {
+            BigDecimal amount = transaction.getTotalAmount().multiply(BigDecimal.valueOf(sign));
+            if (transaction.getTransactionType() == TransactionType.BUY) {
+                buyCount += sign;
+                buyAmount = buyAmount.add(amount);
+            } else {
+                sellCount += sign;
+                sellAmount = sellAmount.add(amount);
+            }
+            if (transaction.getFees() != null) {
+                fees = fees.add(transaction.getFees().multiply(BigDecimal.valueOf(sign)));
+            }
+            if (transaction.getRealizedGain() != null) {
+                realizedGain = realizedGain.add(transaction.getRealizedGain().multiply(BigDecimal.valueOf(sign)));
+            }
+        }
+    }
+}
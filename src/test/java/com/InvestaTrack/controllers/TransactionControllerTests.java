@@ -0,0 +1,245 @@
+package com.InvestaTrack.controllers;
+
+import com.InvestaTrack.dto.TransactionDTO;
+import com.InvestaTrack.models.Portfolio;
+import com.InvestaTrack.models.Stock;
+import com.InvestaTrack.models.Transaction;
+import com.InvestaTrack.services.ServiceTestSupport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.InvestaTrack.models.Transaction.TransactionType.BUY;
+import static com.InvestaTrack.models.Transaction.TransactionType.SELL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+class TransactionControllerTests extends ServiceTestSupport {
+
+    @Autowired
+    private TransactionController transactionController;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void idempotentRetryMatchesOnParsedFields() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+
+        ResponseEntity<?> first = transactionController.createBuyTransaction(
+                buyBody(portfolio, stock, "10.5", "1", null), "retry-1");
+        // Same trade, different JSON: number formatting, string vs number and an unknown field
+        Map<String, Object> retryBody = buyBody(portfolio, stock, "10.500", "1.00", "ignored");
+        ResponseEntity<?> retry = transactionController.createBuyTransaction(retryBody, "retry-1");
+
+        assertEquals(HttpStatus.CREATED, first.getStatusCode());
+        assertEquals("false", first.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals("true", retry.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(((TransactionDTO) first.getBody()).getTransactionId(),
+                ((TransactionDTO) retry.getBody()).getTransactionId());
+        assertEquals(5, position(portfolio, stock).getQuantity());
+    }
+
+    @Test
+    void reusedKeyWithAnotherTradeIsRejected() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+
+        transactionController.createBuyTransaction(buyBody(portfolio, stock, "10.5", "1", null), "retry-2");
+        ResponseEntity<?> other = transactionController.createBuyTransaction(
+                buyBody(portfolio, stock, "10.6", "1", null), "retry-2");
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, other.getStatusCode());
+        assertEquals(5, position(portfolio, stock).getQuantity());
+    }
+
+    @Test
+    void historyPagesFollowTheCursorWithoutGapsOrRepeats() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        // Several trades share a date, so the page boundaries fall inside runs of equal dates
+        List<Transaction> trades = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            trades.add(buy(portfolio, stock, 1, "10.00", day(1 + i / 4)));
+        }
+
+        List<Long> ids = readAllPages(portfolio, null, null, null, 3);
+
+        List<Long> expected = trades.stream()
+                .sorted(Comparator.comparing(Transaction::getTransactionDate)
+                        .thenComparing(Transaction::getTransactionId).reversed())
+                .map(Transaction::getTransactionId)
+                .collect(Collectors.toList());
+        assertEquals(expected, ids);
+    }
+
+    @Test
+    void newerTradesDoNotShiftLaterPages() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        for (int i = 1; i <= 6; i++) {
+            buy(portfolio, stock, 1, "10.00", day(i));
+        }
+
+        ResponseEntity<?> first = transactionController.getTransactionsByPortfolioId(portfolio.getPortfolioID(), null, 3);
+        String cursor = first.getHeaders().getFirst("X-Next-Cursor");
+        buy(portfolio, stock, 1, "10.00", day(20));
+        ResponseEntity<?> second = transactionController.getTransactionsByPortfolioId(portfolio.getPortfolioID(), cursor, 3);
+
+        // The second page continues from day 3 down, and is the last one
+        List<TransactionDTO> page = body(second);
+        assertEquals(List.of(day(3), day(2), day(1)),
+                page.stream().map(TransactionDTO::getTransactionDate).collect(Collectors.toList()));
+        assertNull(second.getHeaders().getFirst("X-Next-Cursor"));
+    }
+
+    @Test
+    void typeAndDateRangePagesKeepTheirFilters() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        for (int i = 1; i <= 8; i++) {
+            buy(portfolio, stock, 2, "10.00", day(i));
+            sell(portfolio, stock, 1, "11.00", day(i).plusHours(1));
+        }
+
+        ResponseEntity<?> sells = transactionController.getTransactionsByType(portfolio.getPortfolioID(), SELL, null, 3);
+        List<Long> sellIds = readAllPages(portfolio, SELL, null, null, 3);
+        assertEquals(8, sellIds.size());
+        assertEquals("SELL", body(sells).get(0).getTransactionType());
+
+        // Both bounds are inclusive: days 3 to 5 at 10:00 is the day-3 and day-4 pairs and the day-5 buy
+        List<Long> rangeIds = readAllPages(portfolio, null, day(3), day(5), 2);
+        assertEquals(5, rangeIds.size());
+        assertEquals(8, readAllPages(portfolio, BUY, null, null, 5).size());
+    }
+
+    @Test
+    void badPagingArgumentsAreRejected() {
+        Portfolio portfolio = newPortfolio();
+
+        assertEquals(HttpStatus.BAD_REQUEST,
+                transactionController.getTransactionsByPortfolioId(portfolio.getPortfolioID(), null, 0).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST,
+                transactionController.getTransactionsByPortfolioId(portfolio.getPortfolioID(), "not-a-cursor", 10)
+                        .getStatusCode());
+    }
+
+    @Test
+    void transactionBodyCannotSetLotFields() throws Exception {
+        Transaction bound = objectMapper.readValue("{\"transactionType\":\"SELL\",\"quantity\":5," +
+                "\"fees\":1.5,\"lotMethod\":\"LIFO\",\"lotId\":42,\"realizedGain\":1000}", Transaction.class);
+
+        assertNotNull(bound.getFees());
+        assertNull(bound.getLotMethod());
+        assertNull(bound.getLotId());
+        assertNull(bound.getRealizedGain());
+    }
+
+    @Test
+    void buyFeeEditThroughPatchReplaysThePosition() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        Transaction buy = buy(portfolio, stock, 10, "10.00", day(1));
+        Transaction edit = new Transaction();
+        edit.setFees(money("5.00"));
+
+        ResponseEntity<?> response = transactionController.updateTransaction(buy.getTransactionId(), edit);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(0, money("105.00").compareTo(position(portfolio, stock).getTotalCost()));
+        assertEquals(0, money("105.00").compareTo(reload(portfolio).getTotalCost()));
+    }
+
+    @Test
+    void patchOfAnUnknownTransactionIsRejected() {
+        Transaction edit = new Transaction();
+        edit.setFees(money("5.00"));
+
+        ResponseEntity<?> response = transactionController.updateTransaction(-1L, edit);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("Transaction not found with id: -1", ((Map<?, ?>) response.getBody()).get("error"));
+    }
+
+    @Test
+    void deletingABuyThatLaterSellsNeedIsAConflict() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        Transaction first = buy(portfolio, stock, 10, "10.00", day(1));
+        buy(portfolio, stock, 4, "10.00", day(2));
+        sell(portfolio, stock, 8, "12.00", day(3));
+
+        ResponseEntity<?> response = transactionController.deleteTransaction(first.getTransactionId());
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals("Cannot delete transaction " + first.getTransactionId() + ": later sells depend on 4 of its shares",
+                ((Map<?, ?>) response.getBody()).get("error"));
+        assertEquals(6, position(portfolio, stock).getQuantity());
+        assertEquals(HttpStatus.NOT_FOUND, transactionController.deleteTransaction(-1L).getStatusCode());
+    }
+
+    @Test
+    void deletingABuyWithSharesToSpareReplaysTheLaterTrades() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        buy(portfolio, stock, 10, "10.00", day(1));
+        Transaction second = buy(portfolio, stock, 4, "10.00", day(2));
+        sell(portfolio, stock, 8, "12.00", day(3));
+
+        assertEquals(HttpStatus.OK, transactionController.deleteTransaction(second.getTransactionId()).getStatusCode());
+        assertEquals(2, position(portfolio, stock).getQuantity());
+    }
+
+    // Walk one portfolio's history page by page, following X-Next-Cursor until the last page
+    private List<Long> readAllPages(Portfolio portfolio, Transaction.TransactionType type,
+                                    LocalDateTime startDate, LocalDateTime endDate, int limit) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            Long portfolioId = portfolio.getPortfolioID();
+            ResponseEntity<?> response = startDate != null
+                    ? transactionController.getTransactionsByDateRange(portfolioId, startDate, endDate, cursor, limit)
+                    : type != null
+                    ? transactionController.getTransactionsByType(portfolioId, type, cursor, limit)
+                    : transactionController.getTransactionsByPortfolioId(portfolioId, cursor, limit);
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            List<TransactionDTO> page = body(response);
+            page.forEach(transaction -> ids.add(transaction.getTransactionId()));
+            cursor = response.getHeaders().getFirst("X-Next-Cursor");
+        } while (cursor != null);
+        return ids;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<TransactionDTO> body(ResponseEntity<?> response) {
+        return (List<TransactionDTO>) response.getBody();
+    }
+
+    private static Map<String, Object> buyBody(Portfolio portfolio, Stock stock, String price, String fees,
+                                               String note) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("portfolioId", portfolio.getPortfolioID());
+        body.put("stockId", stock.getStockID().toString());
+        body.put("quantity", 5);
+        body.put("pricePerShare", price);
+        body.put("fees", fees);
+        if (note != null) {
+            body.put("note", note);
+        }
+        return body;
+    }
+}
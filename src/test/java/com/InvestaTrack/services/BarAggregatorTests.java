@@ -0,0 +1,43 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.models.PriceBar.Interval;
+import com.InvestaTrack.repos.PriceBarRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class BarAggregatorTests {
+
+    @Autowired
+    private BarAggregator barAggregator;
+
+    @Autowired
+    private PriceBarRepository priceBarRepository;
+
+    @Test
+    void clearDropsStoredOpenAndPendingBars() {
+        LocalDateTime now = LocalDateTime.now();
+        // Stored, then late for an already stored bucket, then open
+        barAggregator.addTick("BARS", now.minusHours(3), new BigDecimal("10.00"));
+        barAggregator.flush();
+        barAggregator.addTick("BARS", now.minusHours(3), new BigDecimal("11.00"));
+        barAggregator.addTick("BARS", now, new BigDecimal("12.00"));
+        assertTrue(priceBarRepository.count() > 0);
+        assertTrue(barAggregator.getPendingCount() > 0);
+
+        barAggregator.clear();
+
+        assertEquals(0, priceBarRepository.count());
+        assertEquals(0, barAggregator.getPendingCount());
+        for (Interval interval : Interval.values()) {
+            assertTrue(barAggregator.getBars("BARS", interval, now.minusDays(2), now.plusDays(1)).isEmpty());
+        }
+    }
+}
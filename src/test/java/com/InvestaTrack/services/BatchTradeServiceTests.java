@@ -0,0 +1,96 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.dto.TradeResultDTO;
+import com.InvestaTrack.models.Portfolio;
+import com.InvestaTrack.models.Position;
+import com.InvestaTrack.models.Stock;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static com.InvestaTrack.models.Transaction.TransactionType.BUY;
+import static com.InvestaTrack.models.Transaction.TransactionType.SELL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class BatchTradeServiceTests extends ServiceTestSupport {
+
+    @Autowired
+    private BatchTradeService batchTradeService;
+
+    @Test
+    void backDatedBuyIsReplayedIntoTheCostBasis() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        buy(portfolio, stock, 10, "10.00", day(10));
+        sell(portfolio, stock, 5, "20.00", day(20));
+
+        List<TradeResultDTO> results = batchTradeService.applyTrades(List.of(
+                tradeRequest(portfolio, stock, BUY, 10, "20.00", day(1))));
+
+        assertTrue(results.get(0).isApplied());
+        // Replayed: 10 @ 20 + 10 @ 10 = 300 for 20 shares, then the sell takes 5 at the 15.00 average
+        Position position = position(portfolio, stock);
+        assertEquals(15, position.getQuantity());
+        assertEquals(0, money("225.00").compareTo(position.getTotalCost()));
+        assertEquals(0, money("225.00").compareTo(reload(portfolio).getTotalCost()));
+    }
+
+    @Test
+    void backDatedSellIsCheckedAgainstTheSharesHeldAtItsDate() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        buy(portfolio, stock, 10, "10.00", day(10));
+
+        List<TradeResultDTO> results = batchTradeService.applyTrades(List.of(
+                tradeRequest(portfolio, stock, SELL, 5, "12.00", day(5))));
+
+        assertFalse(results.get(0).isApplied());
+        assertEquals("Insufficient shares to sell. Available: 0", results.get(0).getError());
+        assertEquals(10, position(portfolio, stock).getQuantity());
+    }
+
+    @Test
+    void backDatedSellMayNotUncoverALaterSell() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        buy(portfolio, stock, 10, "10.00", day(1));
+        sell(portfolio, stock, 10, "15.00", day(20));
+
+        List<TradeResultDTO> refused = batchTradeService.applyTrades(List.of(
+                tradeRequest(portfolio, stock, SELL, 5, "12.00", day(10))));
+        assertFalse(refused.get(0).isApplied());
+
+        // Covered by a back-dated buy in the same batch
+        List<TradeResultDTO> applied = batchTradeService.applyTrades(List.of(
+                tradeRequest(portfolio, stock, SELL, 5, "12.00", day(10)),
+                tradeRequest(portfolio, stock, BUY, 5, "11.00", day(5))));
+        assertTrue(applied.get(0).isApplied());
+        assertTrue(applied.get(1).isApplied());
+
+        Position position = position(portfolio, stock);
+        assertEquals(0, position.getQuantity());
+        assertEquals(0, position.getTotalCost().signum());
+        assertEquals(0, reload(portfolio).getTotalCost().signum());
+    }
+
+    @Test
+    void tradesAfterTheLatestOneApplyForward() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        buy(portfolio, stock, 10, "10.00", day(1));
+
+        List<TradeResultDTO> results = batchTradeService.applyTrades(List.of(
+                tradeRequest(portfolio, stock, SELL, 4, "12.00", day(2)),
+                tradeRequest(portfolio, stock, SELL, 7, "12.00", day(3))));
+
+        assertTrue(results.get(0).isApplied());
+        assertEquals("Insufficient shares to sell. Available: 6", results.get(1).getError());
+        assertEquals(6, position(portfolio, stock).getQuantity());
+        assertEquals(0, money("60.00").compareTo(reload(portfolio).getTotalCost()));
+    }
+}
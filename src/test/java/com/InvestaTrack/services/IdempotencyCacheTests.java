@@ -0,0 +1,111 @@
+package com.InvestaTrack.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyCacheTests {
+
+    private final IdempotencyCache cache = new IdempotencyCache(60_000, 100);
+
+    @Test
+    void retryWithTheSameKeyReplaysTheFirstResult() {
+        AtomicInteger runs = new AtomicInteger();
+
+        IdempotencyCache.Result<Integer> first = cache.execute("k1", "body", runs::incrementAndGet);
+        IdempotencyCache.Result<Integer> retry = cache.execute("k1", "body", runs::incrementAndGet);
+
+        assertFalse(first.isReplayed());
+        assertTrue(retry.isReplayed());
+        assertEquals(1, retry.getValue());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void keyReusedForAnotherRequestIsRejected() {
+        cache.execute("k2", "body", () -> 1);
+
+        assertThrows(IdempotencyCache.KeyReuseException.class, () -> cache.execute("k2", "other body", () -> 2));
+    }
+
+    @Test
+    void failureIsNotRemembered() {
+        assertThrows(IllegalStateException.class, () -> cache.execute("k3", "body", () -> {
+            throw new IllegalStateException("rejected");
+        }));
+
+        IdempotencyCache.Result<Integer> retry = cache.execute("k3", "body", () -> 3);
+        assertFalse(retry.isReplayed());
+        assertEquals(3, retry.getValue());
+    }
+
+    @Test
+    void failedRequestsDoNotStayQueued() {
+        for (int i = 0; i < 1000; i++) {
+            assertThrows(IllegalStateException.class, () -> cache.execute("k5", "body", () -> {
+                throw new IllegalStateException("rejected");
+            }));
+        }
+        cache.execute("k5", "body", () -> 5);
+
+        assertEquals(1, cache.queuedEntries());
+    }
+
+    @Test
+    void clearForgetsStoredResults() {
+        cache.execute("k6", "body", () -> 6);
+
+        cache.clear();
+
+        IdempotencyCache.Result<Integer> retry = cache.execute("k6", "body", () -> 7);
+        assertFalse(retry.isReplayed());
+        assertEquals(7, retry.getValue());
+        assertEquals(1, cache.queuedEntries());
+    }
+
+    @Test
+    void errorReleasesWaitingDuplicatesAndTheKey() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> cache.execute("k4", "body", () -> {
+            started.countDown();
+            await(release);
+            throw new AssertionError("boom");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Object> duplicate = CompletableFuture.supplyAsync(() -> cache.execute("k4", "body", () -> 0));
+
+        release.countDown();
+
+        ExecutionException firstFailure = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(AssertionError.class, firstFailure.getCause());
+        // The duplicate either waited on the failed request and got its error, or ran once the key was freed
+        int expected;
+        try {
+            duplicate.get(5, TimeUnit.SECONDS);
+            expected = 0;
+        } catch (ExecutionException e) {
+            assertInstanceOf(AssertionError.class, e.getCause());
+            expected = 5;
+        }
+        assertEquals(expected, cache.execute("k4", "body", () -> 5).getValue());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
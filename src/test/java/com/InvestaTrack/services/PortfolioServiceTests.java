@@ -0,0 +1,73 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.models.Portfolio;
+import com.InvestaTrack.models.Position;
+import com.InvestaTrack.models.Stock;
+import com.InvestaTrack.models.Transaction;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class PortfolioServiceTests extends ServiceTestSupport {
+
+    @Test
+    void reconcileCorrectsDriftedTotals() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        buy(portfolio, stock, 10, "10.00", day(1));
+
+        Portfolio drifted = new Portfolio();
+        drifted.setTotalCost(money("1.00"));
+        portfolioService.updatePortfolio(portfolio.getPortfolioID(), drifted);
+
+        assertTrue(portfolioService.reconcileAllPortfolios() >= 1);
+        assertEquals(0, money("100.00").compareTo(reload(portfolio).getTotalCost()));
+    }
+
+    @Test
+    void reconcileLosesNoConcurrentTrades() throws Exception {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        buy(portfolio, stock, 1, "10.00", day(1));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        try {
+                            transactionService.createTransaction(
+                                    new Transaction(portfolio, stock, Transaction.TransactionType.BUY, 1, money("10.00")));
+                        } catch (RuntimeException e) {
+                            // Retries exhausted; the trade then leaves no trace
+                        }
+                    }
+                }));
+            }
+            while (writers.stream().anyMatch(writer -> !writer.isDone())) {
+                portfolioService.reconcileAllPortfolios();
+            }
+            for (Future<?> writer : writers) {
+                writer.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Position position = position(portfolio, stock);
+        Portfolio reloaded = reload(portfolio);
+        assertEquals(0, position.getTotalCost().compareTo(reloaded.getTotalCost()));
+        assertEquals(0, position.getCurrentValue().compareTo(reloaded.getTotalValue()));
+    }
+}
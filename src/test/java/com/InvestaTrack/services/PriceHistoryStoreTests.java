@@ -0,0 +1,147 @@
+package com.InvestaTrack.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceHistoryStoreTests {
+
+    // Points per block in PriceHistoryStore; bounds are enforced a whole block at a time
+    private static final int BLOCK = 4096;
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    private final LocalDateTime start = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS).minusHours(1);
+
+    @Test
+    void deltasRoundTripAcrossBlocks() throws IOException {
+        // The gaps below add up to weeks, so retention is effectively off
+        PriceHistoryStore store = new PriceHistoryStore(Long.MAX_VALUE / 4, 1_000_000);
+        Random random = new Random(7);
+        List<String> expected = new ArrayList<>();
+
+        // Rising and falling prices, jumps across most of the long range, and uneven gaps in time
+        String[] extremes = {"0.0001", "922337203685.4775", "0.0001", "500000000000.0000", "12.3400"};
+        long offset = 0;
+        for (int i = 0; i < BLOCK * 2 + 100; i++) {
+            BigDecimal price = i < extremes.length
+                    ? new BigDecimal(extremes[i])
+                    : BigDecimal.valueOf(random.nextInt(2_000_000) + 1, 4);
+            offset += random.nextInt(4) == 0 ? random.nextInt(3_000_000) : random.nextInt(3);
+            store.append("CODEC", start.plusNanos(offset * 1_000_000), price);
+            expected.add(point(start.plusNanos(offset * 1_000_000), price));
+        }
+
+        assertEquals(expected.size(), store.size("CODEC"));
+        assertEquals(expected, points(store, "CODEC", null, null));
+    }
+
+    @Test
+    void pricesAreRoundedToFourDecimals() throws IOException {
+        PriceHistoryStore store = new PriceHistoryStore(DAY_MS, 1_000_000);
+        store.append("ROUND", start, new BigDecimal("1.23455"));
+        store.append("ROUND", start.plusSeconds(1), new BigDecimal("1.23454"));
+
+        assertEquals(List.of(point(start, new BigDecimal("1.2346")), point(start.plusSeconds(1), new BigDecimal("1.2345"))),
+                points(store, "ROUND", null, null));
+    }
+
+    @Test
+    void outOfOrderTimestampsAreClampedToTheLatest() throws IOException {
+        PriceHistoryStore store = new PriceHistoryStore(DAY_MS, 1_000_000);
+        store.append("LATE", start.plusSeconds(10), BigDecimal.ONE);
+        store.append("LATE", start, BigDecimal.TEN);
+
+        assertEquals(List.of(point(start.plusSeconds(10), BigDecimal.ONE), point(start.plusSeconds(10), BigDecimal.TEN)),
+                points(store, "LATE", null, null));
+
+        // Also against the last sealed block once a new block has started
+        for (int i = 2; i < BLOCK; i++) {
+            store.append("LATE", start.plusSeconds(20), BigDecimal.ONE);
+        }
+        store.append("LATE", start, new BigDecimal("2"));
+        List<String> all = points(store, "LATE", null, null);
+        assertEquals(BLOCK + 1, all.size());
+        assertEquals(point(start.plusSeconds(20), new BigDecimal("2")), all.get(BLOCK));
+    }
+
+    @Test
+    void rangeReadsOnlyReturnPointsInsideTheBounds() throws IOException {
+        PriceHistoryStore store = new PriceHistoryStore(DAY_MS, 1_000_000);
+        for (int i = 0; i < BLOCK * 3; i++) {
+            store.append("RANGE", start.plusSeconds(i), BigDecimal.valueOf(i));
+        }
+
+        List<String> range = points(store, "RANGE", start.plusSeconds(BLOCK - 2), start.plusSeconds(BLOCK + 1));
+
+        assertEquals(List.of(point(start.plusSeconds(BLOCK - 2), BigDecimal.valueOf(BLOCK - 2)),
+                point(start.plusSeconds(BLOCK - 1), BigDecimal.valueOf(BLOCK - 1)),
+                point(start.plusSeconds(BLOCK), BigDecimal.valueOf(BLOCK)),
+                point(start.plusSeconds(BLOCK + 1), BigDecimal.valueOf(BLOCK + 1))), range);
+    }
+
+    @Test
+    void pointLimitDropsTheOldestBlocks() throws IOException {
+        PriceHistoryStore store = new PriceHistoryStore(DAY_MS, BLOCK);
+        for (int i = 0; i < BLOCK * 3 + 10; i++) {
+            store.append("CAP", start.plusNanos(i * 1_000_000L), BigDecimal.valueOf(i));
+        }
+
+        // The third block sealed with two full blocks held, so the oldest went; the tail is kept
+        assertEquals(BLOCK + 10, store.size("CAP"));
+        List<String> all = points(store, "CAP", null, null);
+        assertEquals(point(start.plusNanos(BLOCK * 2 * 1_000_000L), BigDecimal.valueOf(BLOCK * 2)), all.get(0));
+    }
+
+    @Test
+    void retentionDropsBlocksThatEndBeforeTheCutoff() throws IOException {
+        PriceHistoryStore store = new PriceHistoryStore(60 * 60 * 1000L, 1_000_000);
+        LocalDateTime old = start.minusHours(5);
+        for (int i = 0; i < BLOCK; i++) {
+            store.append("AGE", old.plusNanos(i * 1_000_000L), BigDecimal.ONE);
+        }
+        for (int i = 0; i < BLOCK; i++) {
+            store.append("AGE", start.plusNanos(i * 1_000_000L), BigDecimal.TEN);
+        }
+
+        // Sealing the second block pushed the cutoff past the first one
+        assertEquals(BLOCK, store.size("AGE"));
+        assertEquals(point(start, BigDecimal.TEN), points(store, "AGE", null, null).get(0));
+    }
+
+    @Test
+    void purgeRemovesSeriesThatStoppedTicking() {
+        PriceHistoryStore store = new PriceHistoryStore(DAY_MS, 1_000_000);
+        store.append("STALE", start.minusDays(2), BigDecimal.ONE);
+        store.append("FRESH", start, BigDecimal.ONE);
+
+        store.purgeExpired();
+
+        assertFalse(store.hasHistory("STALE"));
+        assertEquals(0, store.size("STALE"));
+        assertTrue(store.hasHistory("FRESH"));
+        assertEquals(1, store.size("FRESH"));
+    }
+
+    private static List<String> points(PriceHistoryStore store, String symbol, LocalDateTime from, LocalDateTime to)
+            throws IOException {
+        List<String> points = new ArrayList<>();
+        store.forEachInRange(symbol, from, to,
+                (millis, price) -> points.add(point(PriceHistoryStore.toLocalDateTime(millis), price)));
+        return points;
+    }
+
+    private static String point(LocalDateTime time, BigDecimal price) {
+        return time + "=" + price.setScale(PriceHistoryStore.PRICE_SCALE).toPlainString();
+    }
+}
@@ -0,0 +1,90 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.dto.TradeRequestDTO;
+import com.InvestaTrack.models.Portfolio;
+import com.InvestaTrack.models.Position;
+import com.InvestaTrack.models.Stock;
+import com.InvestaTrack.models.Transaction;
+import com.InvestaTrack.models.Transaction.TransactionType;
+import com.InvestaTrack.models.User;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Fixtures for service tests against the in-memory database. Every test creates its own
+// user, portfolio and stocks, so tests don't see each other's trades.
+public abstract class ServiceTestSupport {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    protected UserService userService;
+
+    @Autowired
+    protected PortfolioService portfolioService;
+
+    @Autowired
+    protected StockService stockService;
+
+    @Autowired
+    protected TransactionService transactionService;
+
+    @Autowired
+    protected PositionService positionService;
+
+    protected Portfolio newPortfolio() {
+        int n = SEQUENCE.incrementAndGet();
+        User user = userService.createUser(new User("tester" + n, "tester" + n + "@test.com", "password123",
+                "Test", "User"));
+        return portfolioService.createPortfolio(new Portfolio(user, "Test Fund " + n, "Test portfolio"));
+    }
+
+    protected Stock newStock(String price) {
+        return stockService.createStock(new Stock("TST" + SEQUENCE.incrementAndGet(), "Test Corp", new BigDecimal(price)));
+    }
+
+    protected Transaction trade(Portfolio portfolio, Stock stock, TransactionType type, int quantity, String price,
+                                LocalDateTime date) {
+        Transaction transaction = new Transaction(portfolio, stock, type, quantity, new BigDecimal(price));
+        transaction.setTransactionDate(date);
+        return transactionService.createTransaction(transaction);
+    }
+
+    protected Transaction buy(Portfolio portfolio, Stock stock, int quantity, String price, LocalDateTime date) {
+        return trade(portfolio, stock, TransactionType.BUY, quantity, price, date);
+    }
+
+    protected Transaction sell(Portfolio portfolio, Stock stock, int quantity, String price, LocalDateTime date) {
+        return trade(portfolio, stock, TransactionType.SELL, quantity, price, date);
+    }
+
+    protected TradeRequestDTO tradeRequest(Portfolio portfolio, Stock stock, TransactionType type, int quantity,
+                                           String price, LocalDateTime date) {
+        TradeRequestDTO request = new TradeRequestDTO();
+        request.setPortfolioId(portfolio.getPortfolioID());
+        request.setStockId(stock.getStockID());
+        request.setTransactionType(type.name());
+        request.setQuantity(quantity);
+        request.setPricePerShare(new BigDecimal(price));
+        request.setTransactionDate(date);
+        return request;
+    }
+
+    protected Position position(Portfolio portfolio, Stock stock) {
+        return positionService.getPositionByPortfolioAndStock(portfolio.getPortfolioID(), stock.getStockID());
+    }
+
+    protected Portfolio reload(Portfolio portfolio) {
+        return portfolioService.getPortfolioById(portfolio.getPortfolioID());
+    }
+
+    protected static LocalDateTime day(int dayOfMonth) {
+        return LocalDateTime.of(2024, 1, dayOfMonth, 10, 0);
+    }
+
+    protected static BigDecimal money(String amount) {
+        return new BigDecimal(amount);
+    }
+}
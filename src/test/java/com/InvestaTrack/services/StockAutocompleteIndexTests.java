@@ -0,0 +1,114 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.models.Stock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StockAutocompleteIndexTests {
+
+    // A long debounce, so nothing reaches the snapshot until the test asks for it
+    private final StockAutocompleteIndex index = new StockAutocompleteIndex(60_000);
+
+    @AfterEach
+    void shutdown() {
+        index.shutdown();
+    }
+
+    @Test
+    void lookupsServeThePreviousSnapshotUntilTheRefresh() {
+        index.put(stock(1L, "AAPL", "Apple Inc", 3000));
+        index.awaitRefresh();
+
+        index.put(stock(2L, "AMZN", "Amazon.com Inc", 2000));
+        assertEquals(List.of("AAPL"), symbols("a"));
+
+        index.awaitRefresh();
+        assertEquals(List.of("AAPL", "AMZN"), symbols("a"));
+    }
+
+    @Test
+    void mergedChangesMatchAFullRebuild() {
+        Random random = new Random(42);
+        Map<Long, Stock> stocks = new HashMap<>();
+        for (long id = 1; id <= 500; id++) {
+            stocks.put(id, randomStock(random, id));
+        }
+        index.rebuild(new ArrayList<>(stocks.values()));
+        index.awaitRefresh();
+
+        // Small rounds of renames, removals and additions, each below the merge threshold
+        for (int round = 0; round < 20; round++) {
+            for (int change = 0; change < 10; change++) {
+                long id = 1 + random.nextInt(600);
+                if (random.nextInt(4) == 0 && stocks.remove(id) != null) {
+                    index.remove(id);
+                } else {
+                    Stock stock = randomStock(random, id);
+                    stocks.put(id, stock);
+                    index.put(stock);
+                }
+            }
+            index.awaitRefresh();
+
+            StockAutocompleteIndex rebuilt = new StockAutocompleteIndex(0);
+            try {
+                rebuilt.rebuild(new ArrayList<>(stocks.values()));
+                rebuilt.awaitRefresh();
+                for (String prefix : List.of("a", "b", "ab", "ca", "corp", "xyz")) {
+                    assertEquals(symbols(rebuilt, prefix), symbols(prefix), "prefix " + prefix + " in round " + round);
+                }
+            } finally {
+                rebuilt.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void clearEmptiesTheIndex() {
+        index.put(stock(1L, "AAPL", "Apple Inc", 3000));
+        index.awaitRefresh();
+
+        index.clear();
+        index.awaitRefresh();
+
+        assertTrue(index.suggest("a", 10).isEmpty());
+    }
+
+    private List<String> symbols(String prefix) {
+        return symbols(index, prefix);
+    }
+
+    private static List<String> symbols(StockAutocompleteIndex index, String prefix) {
+        return index.suggest(prefix, StockAutocompleteIndex.MAX_LIMIT).stream()
+                .map(StockAutocompleteIndex.Suggestion::getSymbol)
+                .toList();
+    }
+
+    private static Stock randomStock(Random random, long id) {
+        String letters = "ABCX";
+        StringBuilder symbol = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            symbol.append(letters.charAt(random.nextInt(letters.length())));
+        }
+        symbol.append(id);
+        String name = (random.nextBoolean() ? "Cab " : "Abc ") + (random.nextBoolean() ? "Corp" : "Bancorp");
+        return stock(id, symbol.toString(), name, random.nextInt(10_000));
+    }
+
+    private static Stock stock(Long id, String symbol, String name, long marketCap) {
+        Stock stock = new Stock(symbol, name, BigDecimal.TEN);
+        stock.setStockID(id);
+        stock.setMarketCap(BigDecimal.valueOf(marketCap));
+        return stock;
+    }
+}
@@ -0,0 +1,72 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.models.Stock;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class StockServiceTests extends ServiceTestSupport {
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PriceBook priceBook;
+
+    @Autowired
+    private StockSearchIndex searchIndex;
+
+    @Autowired
+    private HoldingsIndex holdingsIndex;
+
+    @Test
+    void rolledBackStockNeverReachesThePriceBookOrIndexes() {
+        String symbol = "RB" + System.nanoTime() % 100000;
+        Long stockId = transactionTemplate.execute(status -> {
+            Stock stock = stockService.getOrCreateStock(symbol, "Rolled Back Corp", new BigDecimal("12.00"));
+            status.setRollbackOnly();
+            return stock.getStockID();
+        });
+
+        assertNull(priceBook.resolveSymbol(symbol));
+        assertNull(priceBook.getPrice(stockId));
+        assertTrue(searchIndex.search(symbol).isEmpty());
+    }
+
+    @Test
+    void rolledBackPriceChangeLeavesThePriceBookAlone() {
+        Stock stock = newStock("10.00");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            stockService.updateStockPrice(stock.getStockID(), new BigDecimal("99.00"));
+            status.setRollbackOnly();
+        });
+        assertEquals(0, new BigDecimal("10.00").compareTo(priceBook.getPrice(stock.getStockID())));
+
+        stockService.updateStockPrice(stock.getStockID(), new BigDecimal("11.00"));
+        assertEquals(0, new BigDecimal("11.00").compareTo(priceBook.getPrice(stock.getStockID())));
+    }
+
+    @Test
+    void rolledBackClearKeepsTheInMemoryState() {
+        Stock stock = newStock("10.00");
+        buy(newPortfolio(), stock, 5, "10.00", day(1));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            positionService.deleteAllPositions();
+            stockService.deleteAllStocks();
+            status.setRollbackOnly();
+        });
+
+        assertEquals(stock.getStockID(), priceBook.resolveSymbol(stock.getSymbol()));
+        assertEquals(1, holdingsIndex.getHolders(stock.getStockID()).size());
+    }
+}
@@ -0,0 +1,162 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.models.Portfolio;
+import com.InvestaTrack.models.Stock;
+import com.InvestaTrack.models.TaxLot;
+import com.InvestaTrack.models.TaxLot.MatchingMethod;
+import com.InvestaTrack.models.Transaction;
+import com.InvestaTrack.repos.TaxLotRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class TaxLotServiceTests extends ServiceTestSupport {
+
+    @Autowired
+    private TaxLotService taxLotService;
+
+    @Autowired
+    private TaxLotRepository taxLotRepository;
+
+    @Autowired
+    private TransactionSummaryService transactionSummaryService;
+
+    @Test
+    void fifoSellTakesTheOldestLotsFirst() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        buy(portfolio, stock, 10, "10.00", day(1));
+        Transaction second = buy(portfolio, stock, 10, "20.00", day(2));
+
+        Transaction sell = sellWith(portfolio, stock, 15, MatchingMethod.FIFO, null);
+
+        // 10 @ 10 and 5 @ 20 against 15 @ 30
+        assertMoney("250.00", sell.getRealizedGain());
+        List<TaxLot> open = openLots(portfolio, stock);
+        assertEquals(1, open.size());
+        assertEquals(second.getTransactionId(), open.get(0).getBuyTransactionId());
+        assertEquals(5, open.get(0).getRemainingQuantity());
+        assertMoney("100.00", open.get(0).getRemainingCost());
+    }
+
+    @Test
+    void lifoSellTakesTheNewestLotsFirst() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        Transaction first = buy(portfolio, stock, 10, "10.00", day(1));
+        buy(portfolio, stock, 10, "20.00", day(2));
+
+        Transaction sell = sellWith(portfolio, stock, 15, MatchingMethod.LIFO, null);
+
+        // 10 @ 20 and 5 @ 10 against 15 @ 30
+        assertMoney("200.00", sell.getRealizedGain());
+        List<TaxLot> open = openLots(portfolio, stock);
+        assertEquals(1, open.size());
+        assertEquals(first.getTransactionId(), open.get(0).getBuyTransactionId());
+        assertMoney("50.00", open.get(0).getRemainingCost());
+        assertMoney("200.00", (BigDecimal) transactionSummaryService.getSummary(portfolio.getPortfolioID())
+                .get("realizedGain"));
+    }
+
+    @Test
+    void specificIdSellTakesOnlyTheNamedLot() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        buy(portfolio, stock, 10, "10.00", day(1));
+        Transaction second = buy(portfolio, stock, 10, "20.00", day(2));
+        Long lotId = lotOf(second).getLotId();
+
+        Transaction sell = sellWith(portfolio, stock, 4, MatchingMethod.SPECIFIC_ID, lotId);
+
+        assertMoney("40.00", sell.getRealizedGain());
+        assertEquals(6, lotOf(second).getRemainingQuantity());
+        assertEquals(16, openLots(portfolio, stock).stream().mapToInt(TaxLot::getRemainingQuantity).sum());
+        // The named lot has 6 shares left, too few for this sell even though the position holds 16
+        assertThrows(RuntimeException.class,
+                () -> sellWith(portfolio, stock, 7, MatchingMethod.SPECIFIC_ID, lotId));
+    }
+
+    @Test
+    void deletingTheLatestSellGivesItsSharesBack() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        buy(portfolio, stock, 10, "10.00", day(1));
+        buy(portfolio, stock, 10, "20.00", day(2));
+        sellWith(portfolio, stock, 5, MatchingMethod.FIFO, null);
+        Transaction latest = sellWith(portfolio, stock, 8, MatchingMethod.FIFO, null);
+
+        transactionService.deleteTransaction(latest.getTransactionId());
+
+        List<String> restored = describe(portfolio, stock);
+        assertEquals(List.of("5/50.00/true", "10/200.00/true"), restored);
+        assertMoney("100.00", (BigDecimal) transactionSummaryService.getSummary(portfolio.getPortfolioID())
+                .get("realizedGain"));
+        // A full replay agrees
+        taxLotService.rebuildLots(portfolio.getPortfolioID(), stock.getStockID());
+        assertEquals(restored, describe(portfolio, stock));
+    }
+
+    @Test
+    void deletingTheLatestBuyDropsItsLot() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        buy(portfolio, stock, 10, "10.00", day(1));
+        Transaction latest = buy(portfolio, stock, 10, "20.00", day(2));
+
+        transactionService.deleteTransaction(latest.getTransactionId());
+
+        assertEquals(List.of("10/100.00/true"), describe(portfolio, stock));
+    }
+
+    @Test
+    void deletingAnEarlierTradeRematchesLaterSells() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        Transaction first = buy(portfolio, stock, 10, "10.00", day(1));
+        buy(portfolio, stock, 10, "20.00", day(2));
+        Transaction sell = sellWith(portfolio, stock, 5, MatchingMethod.FIFO, null);
+
+        transactionService.deleteTransaction(first.getTransactionId());
+
+        // The sell now comes out of the 20.00 lot
+        assertMoney("50.00", transactionService.getTransactionById(sell.getTransactionId()).getRealizedGain());
+        assertEquals(List.of("5/100.00/true"), describe(portfolio, stock));
+        assertMoney("50.00", (BigDecimal) transactionSummaryService.getSummary(portfolio.getPortfolioID())
+                .get("realizedGain"));
+    }
+
+    // Sell at 30.00, dated now, through the trade helper that takes a matching method
+    private Transaction sellWith(Portfolio portfolio, Stock stock, int quantity, MatchingMethod method, Long lotId) {
+        return transactionService.createSellTransaction(portfolio.getPortfolioID(), stock.getStockID(), quantity,
+                money("30.00"), null, method, lotId);
+    }
+
+    private List<TaxLot> openLots(Portfolio portfolio, Stock stock) {
+        return taxLotService.getOpenLots(portfolio.getPortfolioID(), stock.getStockID());
+    }
+
+    private TaxLot lotOf(Transaction buy) {
+        return taxLotRepository.findByBuyTransactionId(buy.getTransactionId()).orElseThrow();
+    }
+
+    // Every lot of the position, oldest first, as remaining quantity/remaining cost/open
+    private List<String> describe(Portfolio portfolio, Stock stock) {
+        return taxLotRepository.findByPortfolioIdAndStockId(portfolio.getPortfolioID(), stock.getStockID()).stream()
+                .sorted(Comparator.comparing(TaxLot::getBuyTransactionId))
+                .map(lot -> lot.getRemainingQuantity() + "/" + lot.getRemainingCost().setScale(2) + "/" + lot.isOpen())
+                .collect(Collectors.toList());
+    }
+
+    private static void assertMoney(String expected, BigDecimal actual) {
+        assertEquals(0, money(expected).compareTo(actual), () -> expected + " != " + actual);
+    }
+}
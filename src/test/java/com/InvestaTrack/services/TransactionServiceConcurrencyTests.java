@@ -0,0 +1,176 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.models.Portfolio;
+import com.InvestaTrack.models.Position;
+import com.InvestaTrack.models.Stock;
+import com.InvestaTrack.models.TaxLot;
+import com.InvestaTrack.models.Transaction;
+import com.InvestaTrack.models.Transaction.TransactionType;
+import com.InvestaTrack.repos.PositionRepository;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Concurrent createTransaction calls on one position, bypassing the trade sequencer, so the
+// version checks and OptimisticRetry are all that keep the position and portfolio totals right.
+// The same workload through a PESSIMISTIC_WRITE position lookup gives the throughput to compare with.
+@SpringBootTest
+class TransactionServiceConcurrencyTests extends ServiceTestSupport {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionServiceConcurrencyTests.class);
+
+    private static final int THREADS = 8;
+    private static final int TRADES_PER_THREAD = 15;
+
+    @Autowired
+    private TaxLotService taxLotService;
+
+    @Autowired
+    private TransactionSummaryService transactionSummaryService;
+
+    @Autowired
+    private PositionRepository positionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void concurrentBuysLoseNoUpdates() throws Exception {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+
+        int succeeded = runConcurrently(portfolio, stock, thread -> TransactionType.BUY);
+
+        assertTrue(succeeded > 0);
+        Position position = position(portfolio, stock);
+        assertEquals(succeeded, position.getQuantity());
+        assertEquals(0, money("10.00").multiply(BigDecimal.valueOf(succeeded)).compareTo(position.getTotalCost()));
+        assertTotalsMatchPosition(portfolio, position);
+
+        List<TaxLot> lots = taxLotService.getOpenLots(portfolio.getPortfolioID(), stock.getStockID());
+        assertEquals(succeeded, lots.size());
+        Map<String, Object> summary = transactionSummaryService.getSummary(portfolio.getPortfolioID());
+        assertEquals((long) succeeded, summary.get("buyTransactions"));
+    }
+
+    @Test
+    void concurrentBuysAndSellsKeepPortfolioTotalsInStep() throws Exception {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        buy(portfolio, stock, 1000, "10.00", null);
+
+        // Half the threads buy, half sell, one share per trade
+        int succeeded = runConcurrently(portfolio, stock,
+                thread -> thread % 2 == 0 ? TransactionType.BUY : TransactionType.SELL);
+
+        assertTrue(succeeded > 0);
+        Position position = position(portfolio, stock);
+        Map<String, Object> summary = transactionSummaryService.getSummary(portfolio.getPortfolioID());
+        long buys = (long) summary.get("buyTransactions") - 1;
+        long sells = (long) summary.get("sellTransactions");
+        assertEquals(succeeded, buys + sells);
+        assertEquals(1000 + buys - sells, (long) position.getQuantity());
+        assertTotalsMatchPosition(portfolio, position);
+    }
+
+    @Test
+    void optimisticAndPessimisticLockingBothLoseNoUpdates() throws Exception {
+        Stock stock = newStock("10.00");
+        Portfolio optimistic = newPortfolio();
+        Portfolio pessimistic = newPortfolio();
+        // Positions exist up front, so the pessimistic variant always has a row to lock
+        buy(optimistic, stock, 1, "10.00", null);
+        buy(pessimistic, stock, 1, "10.00", null);
+
+        long optimisticStart = System.nanoTime();
+        int optimisticTrades = runConcurrently(optimistic, stock, thread -> TransactionType.BUY);
+        double optimisticRate = optimisticTrades / seconds(optimisticStart);
+
+        // Each trade locks the position row first, so writers queue on the lock instead of retrying
+        long pessimisticStart = System.nanoTime();
+        int pessimisticTrades = runConcurrently(pessimistic, stock, thread -> TransactionType.BUY,
+                transaction -> transactionTemplate.execute(status -> {
+                    positionRepository.findForUpdate(pessimistic.getPortfolioID(), stock.getStockID()).orElseThrow();
+                    return transactionService.createTransaction(transaction);
+                }));
+        double pessimisticRate = pessimisticTrades / seconds(pessimisticStart);
+
+        logger.info("{} threads x {} buys: optimistic {} applied ({} trades/s), pessimistic {} applied ({} trades/s)",
+                THREADS, TRADES_PER_THREAD, optimisticTrades, String.format("%.1f", optimisticRate),
+                pessimisticTrades, String.format("%.1f", pessimisticRate));
+        // Zero lost quantity either way: every applied trade is in the position and the portfolio totals
+        assertEquals(optimisticTrades + 1, position(optimistic, stock).getQuantity());
+        assertEquals(pessimisticTrades + 1, position(pessimistic, stock).getQuantity());
+        assertTotalsMatchPosition(optimistic, position(optimistic, stock));
+        assertTotalsMatchPosition(pessimistic, position(pessimistic, stock));
+        assertEquals(THREADS * TRADES_PER_THREAD, pessimisticTrades);
+    }
+
+    private static double seconds(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000_000.0;
+    }
+
+    private void assertTotalsMatchPosition(Portfolio portfolio, Position position) {
+        Portfolio reloaded = reload(portfolio);
+        assertEquals(0, position.getTotalCost().compareTo(reloaded.getTotalCost()));
+        assertEquals(0, position.getCurrentValue().compareTo(reloaded.getTotalValue()));
+    }
+
+    private int runConcurrently(Portfolio portfolio, Stock stock,
+                                IntFunction<TransactionType> typeForThread) throws Exception {
+        return runConcurrently(portfolio, stock, typeForThread, transactionService::createTransaction);
+    }
+
+    // Run THREADS writers of TRADES_PER_THREAD one-share trades each through the given trade call;
+    // returns how many succeeded
+    private int runConcurrently(Portfolio portfolio, Stock stock, IntFunction<TransactionType> typeForThread,
+                                Consumer<Transaction> trade) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                TransactionType type = typeForThread.apply(t);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < TRADES_PER_THREAD; i++) {
+                        try {
+                            trade.accept(new Transaction(portfolio, stock, type, 1, money("10.00")));
+                            succeeded.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            // Retries exhausted; the trade must then leave no trace
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return succeeded.get();
+    }
+}
@@ -0,0 +1,124 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.dto.TradeRequestDTO;
+import com.InvestaTrack.models.Portfolio;
+import com.InvestaTrack.models.Position;
+import com.InvestaTrack.models.PositionSnapshot;
+import com.InvestaTrack.models.Stock;
+import com.InvestaTrack.repos.PositionSnapshotRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.InvestaTrack.models.Transaction.TransactionType.BUY;
+import static com.InvestaTrack.models.Transaction.TransactionType.SELL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class TransactionServiceTests extends ServiceTestSupport {
+
+    @Autowired
+    private BatchTradeService batchTradeService;
+
+    @Autowired
+    private PositionSnapshotRepository snapshotRepository;
+
+    @Value("${investatrack.positions.snapshot-interval}")
+    private int snapshotInterval;
+
+    @Test
+    void backDatedBuyIsReplayedIntoTheCostBasis() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        buy(portfolio, stock, 10, "10.00", day(10));
+        sell(portfolio, stock, 5, "20.00", day(20));
+
+        buy(portfolio, stock, 10, "20.00", day(1));
+
+        // 10 @ 20 + 10 @ 10 = 300 for 20 shares, then the sell takes 5 at the 15.00 average
+        Position position = position(portfolio, stock);
+        assertEquals(15, position.getQuantity());
+        assertEquals(0, money("225.00").compareTo(position.getTotalCost()));
+        assertEquals(0, money("225.00").compareTo(reload(portfolio).getTotalCost()));
+    }
+
+    @Test
+    void backDatedSellIsCheckedAgainstTheSharesHeldAtItsDate() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        buy(portfolio, stock, 10, "10.00", day(10));
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> sell(portfolio, stock, 5, "12.00", day(5)));
+
+        assertEquals("Insufficient shares to sell. Available: 0", error.getMessage());
+        assertEquals(10, position(portfolio, stock).getQuantity());
+    }
+
+    @Test
+    void backDatedSellMayNotUncoverALaterSell() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        buy(portfolio, stock, 10, "10.00", day(1));
+        buy(portfolio, stock, 4, "10.00", day(15));
+        sell(portfolio, stock, 10, "15.00", day(20));
+
+        // 10 held on day 10, but the day-20 sell needs 6 of them
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> sell(portfolio, stock, 5, "12.00", day(10)));
+        assertEquals("Insufficient shares to sell. Available: 4", error.getMessage());
+
+        sell(portfolio, stock, 4, "12.00", day(10));
+        Position position = position(portfolio, stock);
+        assertEquals(0, position.getQuantity());
+        assertEquals(0, position.getTotalCost().signum());
+    }
+
+    @Test
+    void backDatedTradeReplaysFromTheNearestSnapshotBeforeIt() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        Long portfolioId = portfolio.getPortfolioID();
+        Long stockId = stock.getStockID();
+
+        // Two and a half snapshot intervals of trades, one a minute, with uneven prices so the order matters
+        int trades = snapshotInterval * 5 / 2;
+        List<TradeRequestDTO> requests = new ArrayList<>();
+        for (int i = 0; i < trades; i++) {
+            boolean sell = i % 4 == 3;
+            requests.add(tradeRequest(portfolio, stock, sell ? SELL : BUY, sell ? 2 : 3,
+                    BigDecimal.valueOf(1000 + (i * 37) % 500, 2).toPlainString(), day(1).plusMinutes(i)));
+        }
+        batchTradeService.applyTrades(requests);
+        positionService.recalculatePosition(portfolioId, stockId);
+        List<PositionSnapshot> before = snapshotRepository.findLatest(portfolioId, stockId, PageRequest.of(0, 10));
+        assertEquals(2, before.size());
+
+        // Lands between the first and second snapshot
+        buy(portfolio, stock, 7, "99.99", day(1).plusMinutes(snapshotInterval * 3L / 2).plusSeconds(30));
+
+        List<PositionSnapshot> after = snapshotRepository.findLatest(portfolioId, stockId, PageRequest.of(0, 10));
+        assertEquals(2, after.size());
+        // The first snapshot was kept, the second rebuilt one trade earlier in the timeline
+        assertEquals(before.get(1).getSnapshotId(), after.get(1).getSnapshotId());
+        assertEquals((long) snapshotInterval * 2, after.get(0).getTransactionCount());
+
+        Position replayed = position(portfolio, stock);
+        int quantity = replayed.getQuantity();
+        BigDecimal totalCost = replayed.getTotalCost();
+        BigDecimal portfolioCost = reload(portfolio).getTotalCost();
+
+        // A full replay from the first trade gives the same position
+        Position full = positionService.recalculatePosition(portfolioId, stockId);
+        assertEquals(full.getQuantity(), quantity);
+        assertEquals(0, full.getTotalCost().compareTo(totalCost));
+        assertEquals(0, full.getTotalCost().compareTo(portfolioCost));
+    }
+}
@@ -0,0 +1,142 @@
+package com.InvestaTrack.services;
+
+import com.InvestaTrack.models.Portfolio;
+import com.InvestaTrack.models.Stock;
+import com.InvestaTrack.models.Transaction;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class TransactionSummaryServiceTests extends ServiceTestSupport {
+
+    @Autowired
+    private TransactionSummaryService transactionSummaryService;
+
+    @Test
+    void summaryFollowsCreatedAndDeletedTrades() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        buy(portfolio, stock, 10, "10.00", day(1));
+        Transaction sell = sell(portfolio, stock, 4, "15.00", day(2));
+        Transaction extra = buy(portfolio, stock, 2, "12.00", day(3));
+        transactionService.deleteTransaction(extra.getTransactionId());
+
+        Map<String, Object> summary = summary(portfolio);
+        assertEquals(2L, summary.get("totalTransactions"));
+        assertEquals(1L, summary.get("buyTransactions"));
+        assertEquals(1L, summary.get("sellTransactions"));
+        assertMoney("100.00", summary.get("totalBuyAmount"));
+        assertMoney("60.00", summary.get("totalSellAmount"));
+        assertMoney("40.00", summary.get("netInvested"));
+        assertMoney("20.00", summary.get("realizedGain"));
+        assertMoney("20.00", sell.getRealizedGain());
+    }
+
+    @Test
+    void editedFeesMoveTheTotals() {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        Transaction buy = buy(portfolio, stock, 10, "10.00", day(1));
+        Transaction sell = sell(portfolio, stock, 5, "14.00", day(2));
+
+        transactionService.updateTransaction(buy.getTransactionId(), fees("10.00"));
+        transactionService.updateTransaction(sell.getTransactionId(), fees("2.00"));
+
+        // The buy now cost 110, so the 5 sold cost 55 against 70 - 2 of proceeds
+        Map<String, Object> summary = summary(portfolio);
+        assertMoney("12.00", summary.get("totalFees"));
+        assertMoney("13.00", summary.get("realizedGain"));
+        assertMoney("13.00", transactionService.getTransactionById(sell.getTransactionId()).getRealizedGain());
+        assertEquals(0, money("55.00").compareTo(position(portfolio, stock).getTotalCost()));
+        assertEquals(0, money("55.00").compareTo(reload(portfolio).getTotalCost()));
+
+        // Nothing left for a rebuild to correct
+        transactionSummaryService.rebuildAll();
+        assertEquals(summary, summary(portfolio));
+    }
+
+    @Test
+    void rebuildRepairsDriftedAndMissingRows() {
+        Portfolio drifted = newPortfolio();
+        Portfolio missing = newPortfolio();
+        Stock stock = newStock("10.00");
+        buy(drifted, stock, 10, "10.00", day(1));
+        buy(missing, stock, 3, "20.00", day(1));
+        Map<String, Object> expectedDrifted = summary(drifted);
+        Map<String, Object> expectedMissing = summary(missing);
+
+        transactionSummaryService.recordFeesChanged(drifted.getPortfolioID(), money("99.00"));
+        transactionSummaryService.deleteSummary(missing.getPortfolioID());
+
+        assertTrue(transactionSummaryService.rebuildAll() >= 2);
+        assertEquals(expectedDrifted, summary(drifted));
+        assertEquals(expectedMissing, summary(missing));
+    }
+
+    @Test
+    void rebuildLosesNoConcurrentTrades() throws Exception {
+        Portfolio portfolio = newPortfolio();
+        Stock stock = newStock("10.00");
+        buy(portfolio, stock, 1, "10.00", day(1));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicInteger succeeded = new AtomicInteger();
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        try {
+                            transactionService.createTransaction(
+                                    new Transaction(portfolio, stock, Transaction.TransactionType.BUY, 1, money("10.00")));
+                            succeeded.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            // Retries exhausted; the trade then leaves no trace
+                        }
+                    }
+                }));
+            }
+            while (writers.stream().anyMatch(writer -> !writer.isDone())) {
+                transactionSummaryService.rebuildAll();
+            }
+            for (Future<?> writer : writers) {
+                writer.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<String, Object> summary = summary(portfolio);
+        assertEquals((long) succeeded.get() + 1, summary.get("buyTransactions"));
+        assertMoney(BigDecimal.TEN.multiply(BigDecimal.valueOf(succeeded.get() + 1)).toPlainString(),
+                summary.get("totalBuyAmount"));
+    }
+
+    private Map<String, Object> summary(Portfolio portfolio) {
+        return transactionSummaryService.getSummary(portfolio.getPortfolioID());
+    }
+
+    private static Transaction fees(String fees) {
+        Transaction details = new Transaction();
+        details.setFees(money(fees));
+        return details;
+    }
+
+    private static void assertMoney(String expected, Object actual) {
+        assertEquals(0, money(expected).compareTo((BigDecimal) actual), () -> expected + " != " + actual);
+    }
+}